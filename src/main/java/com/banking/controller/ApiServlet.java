@@ -0,0 +1,287 @@
+package com.banking.controller;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.banking.model.AccountType;
+import com.banking.service.AccountService;
+import com.banking.service.StatementExporter;
+import com.banking.service.StatementExporter.Format;
+import com.banking.service.TransactionService;
+import com.banking.util.JsonWriter;
+import com.banking.util.SessionTokens.Session;
+
+/**
+ * JSON API for machine clients, mapped to {@code /api/*}.
+ * <ul>
+ * <li>{@code GET balance?account=checking|savings}</li>
+ * <li>{@code GET history?start=yyyy-MM-dd&end=yyyy-MM-dd} - every transaction in the range, newest first</li>
+ * <li>{@code GET statement?start=&end=[&format=csv|ofx]} - a statement file download</li>
+ * </ul>
+ * History is written to the response as rows come off the result set, so
+ * memory per response is constant however long the range. Responses carry
+ * an entity tag; a request whose {@code If-None-Match} matches gets a 304
+ * without the body being produced. History is gzip-compressed when the
+ * client accepts it.
+ * <p>
+ * Authentication is the same session token as the web pages, usually sent
+ * as an {@code Authorization: Bearer} header.
+ */
+public class ApiServlet extends AsyncServlet {
+    private static final long serialVersionUID = 1L;
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final int WRITE_BUFFER_SIZE = 8192;
+    private static final int ETAG_BYTES = 16;
+
+    private final transient TransactionService transactionService = new TransactionService();
+    private final transient StatementExporter statementExporter = new StatementExporter();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Session session = authenticate(request);
+        if (session == null) {
+            sendError(response, HttpServletResponse.SC_UNAUTHORIZED, "Not logged in");
+            return;
+        }
+
+        String path = request.getPathInfo();
+        if ("/balance".equals(path)) {
+            balance(request, response, session);
+        } else if ("/history".equals(path)) {
+            history(request, response, session);
+        } else if ("/statement".equals(path)) {
+            statement(request, response, session);
+        } else {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, "Unknown resource");
+        }
+    }
+
+    private void balance(HttpServletRequest request, HttpServletResponse response, Session session)
+            throws IOException {
+        String accountType = request.getParameter("account");
+        AccountType type = AccountType.fromName(accountType);
+        if (type == null) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "account must be checking or savings");
+            return;
+        }
+
+        String customerId = session.getUsername();
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        respondAsync(request, response, () -> {
+            AccountService accounts = getAccountService();
+            String accountNumber = accounts.getAccountNumber(type, customerId);
+            if (accountNumber == null) {
+                return null;
+            }
+            BigDecimal balance = accounts.getBalance(type, accountNumber);
+            return new Object[] { accountNumber, balance };
+        }, (result, out) -> {
+            if (result == null) {
+                sendError(out, HttpServletResponse.SC_NOT_FOUND, "No " + accountType + " account");
+                return;
+            }
+            String accountNumber = (String) result[0];
+            BigDecimal balance = (BigDecimal) result[1];
+            String etag = entityTag("balance", accountNumber, balance.toPlainString());
+            if (notModified(out, ifNoneMatch, etag)) {
+                return;
+            }
+
+            startJson(out, etag);
+            JsonWriter json = new JsonWriter(new BufferedWriter(
+                    new OutputStreamWriter(out.getOutputStream(), StandardCharsets.UTF_8)));
+            json.beginObject()
+                    .name("type").value(accountType)
+                    .name("accountNumber").value(accountNumber)
+                    .name("balance").value(balance)
+                    .endObject();
+            json.flush();
+        });
+    }
+
+    private void history(HttpServletRequest request, HttpServletResponse response, Session session)
+            throws IOException {
+        String start = request.getParameter("start");
+        String end = request.getParameter("end");
+        if (!isDateRange(start, end)) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "start and end must be yyyy-MM-dd dates");
+            return;
+        }
+
+        String customerId = session.getUsername();
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+
+        streamAsync(request, response, out -> {
+            // One index-only aggregate decides whether the body needs producing at all
+            String version = transactionService.getHistoryVersion(customerId, start, end);
+            String etag = entityTag("history", customerId, start, end, version);
+            if (notModified(out, ifNoneMatch, etag)) {
+                return;
+            }
+
+            startJson(out, etag);
+            out.setHeader("Vary", "Accept-Encoding");
+            OutputStream body = openBody(out, gzip);
+            JsonWriter json = new JsonWriter(new BufferedWriter(
+                    new OutputStreamWriter(body, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE));
+            json.beginObject()
+                    .name("start").value(start)
+                    .name("end").value(end)
+                    .name("transactions").beginArray();
+            int count;
+            try {
+                count = transactionService.streamTransactions(customerId, start, end, details -> {
+                    try {
+                        json.beginObject()
+                                .name("transactionNumber").value(details.getTransactionNumber())
+                                .name("type").value(details.getTransactionType())
+                                .name("amount").value(details.getAmount())
+                                .name("date").value(details.getDate())
+                                .name("time").value(details.getTime())
+                                .name("fromAccount").value(details.getFromAccount())
+                                .name("toAccount").value(details.getToAccount())
+                                .endObject();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            json.endArray()
+                    .name("count").value(count)
+                    .endObject();
+            json.close();
+        });
+    }
+
+    private void statement(HttpServletRequest request, HttpServletResponse response, Session session)
+            throws IOException {
+        String start = request.getParameter("start");
+        String end = request.getParameter("end");
+        Format format = "ofx".equals(request.getParameter("format")) ? Format.OFX : Format.CSV;
+        if (!isDateRange(start, end)) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "start and end must be yyyy-MM-dd dates");
+            return;
+        }
+
+        String customerId = session.getUsername();
+        boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+        streamAsync(request, response, out -> {
+            out.setStatus(HttpServletResponse.SC_OK);
+            out.setContentType(format.getContentType());
+            out.setCharacterEncoding("UTF-8");
+            out.setHeader("Content-Disposition", "attachment; filename=\"statement-" + start + "-" + end + "."
+                    + format.getExtension() + "\"");
+            out.setHeader("Cache-Control", "private, no-store");
+            out.setHeader("Vary", "Accept-Encoding");
+            // Closed only on success: closing finishes the gzip stream, which would
+            // make a statement cut short by an error look complete
+            Writer writer = new OutputStreamWriter(openBody(out, gzip), StandardCharsets.UTF_8);
+            statementExporter.exportCustomer(customerId, start, end, format, writer);
+            writer.close();
+        });
+    }
+
+    /**
+     * Opens the response body, gzip-compressed if the client accepts it.
+     * Closing the returned stream finishes the compressed data.
+     */
+    private static OutputStream openBody(HttpServletResponse response, boolean gzip) throws IOException {
+        OutputStream body = response.getOutputStream();
+        if (!gzip) {
+            return body;
+        }
+        response.setHeader("Content-Encoding", "gzip");
+        return new GZIPOutputStream(body, WRITE_BUFFER_SIZE);
+    }
+
+    private static boolean isDateRange(String start, String end) {
+        try {
+            return !LocalDate.parse(start).isAfter(LocalDate.parse(end));
+        } catch (DateTimeParseException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    private static void startJson(HttpServletResponse response, String etag) {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(JSON_CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("ETag", etag);
+        // Clients may keep the body but must revalidate it with If-None-Match
+        response.setHeader("Cache-Control", "private, no-cache");
+    }
+
+    /**
+     * Sends a 304 if the client's cached copy is current.
+     *
+     * @return true if a 304 was sent
+     */
+    private static boolean notModified(HttpServletResponse response, String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                response.setHeader("ETag", etag);
+                response.setHeader("Cache-Control", "private, no-cache");
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds a strong entity tag from a digest of the values, so balances
+     * and customer IDs are not exposed in headers.
+     */
+    private static String entityTag(String... values) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String value : values) {
+                digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            byte[] hash = Arrays.copyOf(digest.digest(), ETAG_BYTES);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.banking.controller;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.banking.service.AccountService;
+import com.banking.util.ServiceExecutor;
+import com.banking.util.SessionTokens.Session;
+
+/**
+ * Base class for servlets whose work runs on the shared {@link ServiceExecutor}.
+ * A request is put into asynchronous mode and its container thread is
+ * released while JDBC work runs; the response is written on a container
+ * thread once the work finishes. If the client goes away or the container
+ * times the request out, the service call is cancelled along with any
+ * statement it is running.
+ * <p>
+ * Subclasses hold no per-request state, so one instance serves every request.
+ */
+public abstract class AsyncServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = Logger.getLogger(AsyncServlet.class.getName());
+
+    /** Name of the cookie that carries the session token. */
+    static final String SESSION_COOKIE = "BANKING_SESSION";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /** Extra time the container gives a request beyond the service call timeout. */
+    private static final long CONTAINER_TIMEOUT_SLACK_MILLIS = 5000;
+
+    private final transient AccountService accountService = new AccountService();
+
+    /**
+     * Writes the result of a service call to the response.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    protected interface ResultWriter<T> {
+        void write(T result, HttpServletResponse response) throws IOException;
+    }
+
+    protected AccountService getAccountService() {
+        return accountService;
+    }
+
+    /**
+     * Writes a response directly to the servlet output.
+     */
+    @FunctionalInterface
+    protected interface StreamingCall {
+        void stream(HttpServletResponse response) throws Exception;
+    }
+
+    /**
+     * Validates the session token sent with a request, either in the
+     * session cookie or in an {@code Authorization: Bearer} header.
+     * The token is checked in memory; the database is not consulted.
+     *
+     * @param request the request
+     * @return the session, or null if no valid token was sent
+     */
+    protected Session authenticate(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            return accountService.validateSession(header.substring(BEARER_PREFIX.length()).trim());
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (SESSION_COOKIE.equals(cookie.getName())) {
+                    return accountService.validateSession(cookie.getValue());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs a service call on the shared executor and writes its result
+     * asynchronously. The calling container thread returns immediately.
+     *
+     * @param request the request
+     * @param response the response
+     * @param call the blocking service call
+     * @param writer writes the call's result to the response
+     * @param <T> the result type
+     */
+    protected <T> void respondAsync(HttpServletRequest request, HttpServletResponse response,
+                                    Callable<T> call, ResultWriter<T> writer) {
+        ServiceExecutor executor = ServiceExecutor.getInstance();
+        AsyncContext context = request.startAsync();
+        AtomicBoolean finished = new AtomicBoolean();
+
+        long timeoutMillis = executor.getDefaultTimeoutMillis();
+        if (timeoutMillis > 0) {
+            // Let the executor's timeout fire first so the statement is cancelled and a clean error is sent
+            context.setTimeout(timeoutMillis + CONTAINER_TIMEOUT_SLACK_MILLIS);
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = executor.submit(call);
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.WARNING, "Service executor rejected request", e);
+            finish(context, finished, () -> sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Service unavailable"));
+            return;
+        }
+
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                future.cancel(true);
+                finish(context, finished, () -> sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                        "Request timed out"));
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                // Usually the client disconnected; stop the database work
+                future.cancel(true);
+                if (finished.compareAndSet(false, true)) {
+                    context.complete();
+                }
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        future.whenComplete((result, failure) -> {
+            if (finished.get()) {
+                return;
+            }
+            // Write on a container thread so the service thread, and its concurrency permit, are released
+            context.start(() -> finish(context, finished, () -> {
+                if (failure == null) {
+                    writer.write(result, response);
+                } else {
+                    handleFailure(response, failure);
+                }
+            }));
+        });
+    }
+
+    /**
+     * Runs a call that writes its own response on the shared executor. Use
+     * this when the response is streamed from an open result set; the
+     * executor thread holds a concurrency permit until the call returns.
+     * <p>
+     * A stream has no time limit, because a long export is not a stuck
+     * request; only a client disconnect cancels it. The request completes
+     * once the call has returned, never while it may still be writing. If
+     * the call fails after the response is committed the status can no
+     * longer change, so the failure is logged and the body is left as the
+     * call left it.
+     *
+     * @param request the request
+     * @param response the response
+     * @param call writes the response
+     */
+    protected void streamAsync(HttpServletRequest request, HttpServletResponse response, StreamingCall call) {
+        AsyncContext context = request.startAsync();
+        context.setTimeout(0);
+        AtomicBoolean started = new AtomicBoolean();
+        AtomicBoolean disconnected = new AtomicBoolean();
+        AtomicReference<CompletableFuture<Void>> running = new AtomicReference<>();
+
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                // Usually the client disconnected; stop the database work
+                disconnected.set(true);
+                CompletableFuture<Void> future = running.get();
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        CompletableFuture<Void> future;
+        try {
+            future = ServiceExecutor.getInstance().submit(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    return null;
+                }
+                try {
+                    call.stream(response);
+                    response.flushBuffer();
+                } catch (Exception e) {
+                    handleStreamFailure(response, e, disconnected.get());
+                } finally {
+                    context.complete();
+                }
+                return null;
+            }, 0);
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.WARNING, "Service executor rejected request", e);
+            finish(context, new AtomicBoolean(), () -> sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Service unavailable"));
+            return;
+        }
+        running.set(future);
+
+        future.whenComplete((result, failure) -> {
+            // Cancelled before the call ran, so the call will never complete the request
+            if (failure != null && started.compareAndSet(false, true)) {
+                context.complete();
+            }
+        });
+    }
+
+    private void handleStreamFailure(HttpServletResponse response, Exception failure, boolean disconnected)
+            throws IOException {
+        if (disconnected || failure instanceof IOException) {
+            LOGGER.log(Level.FINE, "Streamed response abandoned by client", failure);
+        } else if (response.isCommitted()) {
+            LOGGER.log(Level.SEVERE, "Streamed response failed after it was committed; the body is incomplete",
+                    failure);
+        } else {
+            handleFailure(response, failure);
+        }
+    }
+
+    private void handleFailure(HttpServletResponse response, Throwable failure) throws IOException {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        if (cause instanceof IOException || cause instanceof UncheckedIOException) {
+            // The client went away while the response was being streamed
+            LOGGER.log(Level.FINE, "Response stream closed by client", cause);
+        } else if (cause instanceof TimeoutException || cause instanceof CancellationException) {
+            sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Request timed out");
+        } else if (cause instanceof IllegalArgumentException) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, cause.getMessage());
+        } else {
+            LOGGER.log(Level.SEVERE, "Service call failed", cause);
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal error");
+        }
+    }
+
+    private void finish(AsyncContext context, AtomicBoolean finished, ResponseAction action) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            action.run();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error writing response", e);
+        } finally {
+            context.complete();
+        }
+    }
+
+    /**
+     * Sends a plain-text error response.
+     *
+     * @param response the response
+     * @param status the HTTP status
+     * @param message the message body
+     * @throws IOException if the response cannot be written
+     */
+    protected void sendError(HttpServletResponse response, int status, String message) throws IOException {
+        if (response.isCommitted()) {
+            return;
+        }
+        response.setStatus(status);
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter writer = response.getWriter();
+        writer.println(message);
+        writer.flush();
+    }
+
+    @FunctionalInterface
+    private interface ResponseAction {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,290 @@
+package com.banking.controller;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.banking.model.AccountOverview;
+import com.banking.model.AccountType;
+import com.banking.model.Transaction.TransactionDetails;
+import com.banking.service.AccountService;
+import com.banking.service.TransactionService;
+import com.banking.util.SessionTokens.Session;
+
+/**
+ * Front controller for banking operations, mapped to {@code /banking/*}.
+ * <ul>
+ * <li>{@code GET overview} - balances and recent transactions</li>
+ * <li>{@code GET balance?account=checking|savings}</li>
+ * <li>{@code GET history?start=&end=[&pageSize=][&token=]} - one page, newest first</li>
+ * <li>{@code POST deposit} and {@code POST withdraw} with {@code account} and {@code amount}</li>
+ * <li>{@code POST transfer} with {@code from}, {@code to} and {@code amount}, between
+ * the session user's own accounts</li>
+ * </ul>
+ * Every request needs a valid session token. Operations act on the session
+ * user's own accounts, resolved from the customer ID in the token, so a
+ * client cannot name an account it does not own as the source of funds.
+ * Responses are plain text with one {@code name: value} line per field.
+ */
+public class BankingServlet extends AsyncServlet {
+    private static final long serialVersionUID = 1L;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private final transient TransactionService transactionService = new TransactionService();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Session session = requireSession(request, response);
+        if (session == null) {
+            return;
+        }
+
+        String operation = operationOf(request);
+        if ("overview".equals(operation)) {
+            overview(request, response, session);
+        } else if ("balance".equals(operation)) {
+            balance(request, response, session);
+        } else if ("history".equals(operation)) {
+            history(request, response, session);
+        } else if (isPostOperation(operation)) {
+            sendError(response, HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Use POST for " + operation);
+        } else {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, "Unknown operation");
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Session session = requireSession(request, response);
+        if (session == null) {
+            return;
+        }
+
+        String operation = operationOf(request);
+        if ("deposit".equals(operation) || "withdraw".equals(operation)) {
+            depositOrWithdraw(request, response, session, "deposit".equals(operation));
+        } else if ("transfer".equals(operation)) {
+            transfer(request, response, session);
+        } else {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, "Unknown operation");
+        }
+    }
+
+    private void overview(HttpServletRequest request, HttpServletResponse response, Session session) {
+        String customerId = session.getUsername();
+        respondAsync(request, response, () -> getAccountService().getOverview(customerId), (overview, out) -> {
+            if (overview == null) {
+                sendError(out, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Overview is not available");
+                return;
+            }
+            PrintWriter writer = startText(out);
+            writer.println("name: " + session.getName());
+            writeAccount(writer, AccountType.CHECKING.getName(), overview.getCheckingAccountNumber(),
+                    overview.getCheckingBalance());
+            writeAccount(writer, AccountType.SAVINGS.getName(), overview.getSavingsAccountNumber(),
+                    overview.getSavingsBalance());
+            writeTransactions(writer, overview);
+            writer.flush();
+        });
+    }
+
+    private void balance(HttpServletRequest request, HttpServletResponse response, Session session)
+            throws IOException {
+        String accountType = request.getParameter("account");
+        AccountType type = AccountType.fromName(accountType);
+        if (type == null) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "account must be checking or savings");
+            return;
+        }
+
+        String customerId = session.getUsername();
+        respondAsync(request, response, () -> {
+            AccountService accounts = getAccountService();
+            String accountNumber = accounts.getAccountNumber(type, customerId);
+            if (accountNumber == null) {
+                return null;
+            }
+            BigDecimal balance = accounts.getBalance(type, accountNumber);
+            return new String[] { accountNumber, balance.toPlainString() };
+        }, (result, out) -> {
+            if (result == null) {
+                sendError(out, HttpServletResponse.SC_NOT_FOUND, "No " + accountType + " account");
+                return;
+            }
+            PrintWriter writer = startText(out);
+            writer.println("account: " + result[0]);
+            writer.println("balance: " + result[1]);
+            writer.flush();
+        });
+    }
+
+    private void history(HttpServletRequest request, HttpServletResponse response, Session session)
+            throws IOException {
+        String start = request.getParameter("start");
+        String end = request.getParameter("end");
+        String token = request.getParameter("token");
+        int pageSize;
+        try {
+            LocalDate.parse(start);
+            LocalDate.parse(end);
+            String pageSizeParameter = request.getParameter("pageSize");
+            pageSize = pageSizeParameter != null ? Integer.parseInt(pageSizeParameter) : DEFAULT_PAGE_SIZE;
+        } catch (DateTimeParseException | NullPointerException e) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "start and end must be yyyy-MM-dd dates");
+            return;
+        } catch (NumberFormatException e) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "pageSize must be a number");
+            return;
+        }
+
+        String customerId = session.getUsername();
+        respondAsync(request, response,
+                () -> transactionService.searchTransactions(customerId, start, end, pageSize, token),
+                (page, out) -> {
+                    PrintWriter writer = startText(out);
+                    for (TransactionDetails details : page.getTransactions()) {
+                        writeTransaction(writer, details);
+                    }
+                    if (page.hasMore()) {
+                        writer.println("next: " + page.getContinuationToken());
+                    }
+                    writer.flush();
+                });
+    }
+
+    private void depositOrWithdraw(HttpServletRequest request, HttpServletResponse response, Session session,
+                                   boolean deposit) throws IOException {
+        String accountType = request.getParameter("account");
+        AccountType type = AccountType.fromName(accountType);
+        if (type == null) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "account must be checking or savings");
+            return;
+        }
+        String amount = parseAmount(request, response);
+        if (amount == null) {
+            return;
+        }
+
+        String customerId = session.getUsername();
+        respondAsync(request, response, () -> {
+            String accountNumber = getAccountService().getAccountNumber(type, customerId);
+            if (accountNumber == null) {
+                return null;
+            }
+            return deposit ? transactionService.deposit(type, accountNumber, customerId, amount)
+                    : transactionService.withdraw(type, accountNumber, customerId, amount);
+        }, (success, out) -> writeOutcome(out, success, "No " + accountType + " account",
+                deposit ? "Deposit failed" : "Withdrawal failed"));
+    }
+
+    private void transfer(HttpServletRequest request, HttpServletResponse response, Session session)
+            throws IOException {
+        AccountType fromType = AccountType.fromName(request.getParameter("from"));
+        AccountType toType = AccountType.fromName(request.getParameter("to"));
+        if (fromType == null || toType == null) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "from and to must be checking or savings");
+            return;
+        }
+        if (fromType == toType) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Cannot transfer an account to itself");
+            return;
+        }
+        String amount = parseAmount(request, response);
+        if (amount == null) {
+            return;
+        }
+
+        String customerId = session.getUsername();
+        respondAsync(request, response, () -> {
+            AccountService accounts = getAccountService();
+            String fromAccountNumber = accounts.getAccountNumber(fromType, customerId);
+            String toAccountNumber = accounts.getAccountNumber(toType, customerId);
+            if (fromAccountNumber == null || toAccountNumber == null) {
+                return null;
+            }
+            return transactionService.transfer(fromAccountNumber, toAccountNumber, customerId, amount, fromType,
+                    toType);
+        }, (success, out) -> writeOutcome(out, success, "Account not found", "Transfer failed"));
+    }
+
+    /**
+     * Reads and validates the {@code amount} parameter, sending a 400 response if it is invalid.
+     *
+     * @return the amount in plain notation, or null if an error was sent
+     */
+    private String parseAmount(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String amount = request.getParameter("amount");
+        try {
+            BigDecimal value = new BigDecimal(amount);
+            if (value.signum() > 0 && value.scale() <= 4) {
+                return value.toPlainString();
+            }
+        } catch (NumberFormatException | NullPointerException e) {
+            // Fall through to the error response
+        }
+        sendError(response, HttpServletResponse.SC_BAD_REQUEST,
+                "amount must be a positive number with at most four decimal places");
+        return null;
+    }
+
+    private Session requireSession(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Session session = authenticate(request);
+        if (session == null) {
+            sendError(response, HttpServletResponse.SC_UNAUTHORIZED, "Not logged in");
+        }
+        return session;
+    }
+
+    private static String operationOf(HttpServletRequest request) {
+        String path = request.getPathInfo();
+        return path == null || path.length() < 2 ? "" : path.substring(1);
+    }
+
+    private static boolean isPostOperation(String operation) {
+        return "deposit".equals(operation) || "withdraw".equals(operation) || "transfer".equals(operation);
+    }
+
+    private void writeOutcome(HttpServletResponse response, Boolean success, String notFoundMessage,
+                              String failureMessage) throws IOException {
+        if (success == null) {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, notFoundMessage);
+        } else if (!success) {
+            sendError(response, HttpServletResponse.SC_CONFLICT, failureMessage);
+        } else {
+            PrintWriter writer = startText(response);
+            writer.println("status: ok");
+            writer.flush();
+        }
+    }
+
+    private static PrintWriter startText(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        return response.getWriter();
+    }
+
+    private static void writeAccount(PrintWriter writer, String type, String accountNumber, BigDecimal balance) {
+        if (accountNumber != null) {
+            writer.println(type + ": " + accountNumber + " " + balance.toPlainString());
+        }
+    }
+
+    private static void writeTransactions(PrintWriter writer, AccountOverview overview) {
+        for (TransactionDetails details : overview.getRecentTransactions()) {
+            writeTransaction(writer, details);
+        }
+    }
+
+    private static void writeTransaction(PrintWriter writer, TransactionDetails details) {
+        writer.println("transaction: " + details.getTransactionNumber() + " " + details.getDate() + " "
+                + details.getTime() + " " + details.getTransactionType() + " " + details.getAmount().toPlainString()
+                + " " + details.getFromAccount() + " " + details.getToAccount());
+    }
+}
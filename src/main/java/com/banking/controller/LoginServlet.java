@@ -1,95 +1,77 @@
 package com.banking.controller;
 
-import java.io.*;
-import java.util.logging.Level;
+import java.io.IOException;
 import java.util.logging.Logger;
 
-import com.banking.service.AccountService;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.banking.service.LoginThrottle;
 
 /**
  * Servlet for handling user login.
+ * Posting the {@code UserName} and {@code PassWord} form fields checks the
+ * login throttle, verifies the credentials on the service executor and, on
+ * success, sets an HttpOnly session cookie and redirects to the account
+ * overview. The servlet keeps no per-user state.
  */
-public class LoginServlet {
+public class LoginServlet extends AsyncServlet {
+    private static final long serialVersionUID = 1L;
     private static final Logger LOGGER = Logger.getLogger(LoginServlet.class.getName());
-    
-    private String username;
-    private String password;
-    private PrintWriter output;
-    private AccountService accountService;
+    private static final String RETRY_AFTER_SECONDS = "60";
 
-    /**
-     * Constructor for LoginServlet.
-     */
-    public LoginServlet() {
-        username = "";
-        password = "";
-        accountService = new AccountService();
-    }
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String username = request.getParameter("UserName");
+        String password = request.getParameter("PassWord");
+
+        if (username == null || username.isEmpty() || password == null || password.isEmpty()) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Username and password are required");
+            return;
+        }
+
+        if (!LoginThrottle.getInstance().tryAcquire(username, request.getRemoteAddr())) {
+            LOGGER.fine("Login attempt throttled for user: " + username);
+            response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+            sendError(response, 429, "Too many login attempts");
+            return;
+        }
 
-    /**
-     * Authenticates a user login.
-     * 
-     * @param username the username
-     * @param password the password
-     * @return the user's name if authentication was successful, empty string otherwise
-     */
-    public String authenticateUser(String username, String password) {
-        this.username = username;
-        this.password = password;
-        
         LOGGER.info("Login attempt for user: " + username);
-        
-        try {
-            String customerName = accountService.authenticateUser(username, password);
-            
-            if (customerName != null && !customerName.isEmpty()) {
-                // Authentication successful
-                LOGGER.info("Authentication successful for user: " + username);
-                return customerName;
-            } else {
-                // Authentication failed
+        String contextPath = request.getContextPath();
+        boolean secure = request.isSecure();
+
+        respondAsync(request, response, () -> getAccountService().login(username, password), (token, out) -> {
+            if (token == null) {
                 LOGGER.info("Authentication failed for user: " + username);
-                return "";
+                sendError(out, HttpServletResponse.SC_UNAUTHORIZED, "Invalid username or password");
+                return;
             }
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error during login process", e);
-            return "";
-        }
-    }
-    
-    /**
-     * Gets the username.
-     * 
-     * @return the username
-     */
-    public String getUsername() {
-        return username;
-    }
-    
-    /**
-     * Sets the username.
-     * 
-     * @param username the username to set
-     */
-    public void setUsername(String username) {
-        this.username = username;
-    }
-    
-    /**
-     * Gets the password.
-     * 
-     * @return the password
-     */
-    public String getPassword() {
-        return password;
+
+            LOGGER.info("Authentication successful for user: " + username);
+            Cookie cookie = new Cookie(SESSION_COOKIE, token);
+            cookie.setHttpOnly(true);
+            cookie.setSecure(secure);
+            cookie.setPath(contextPath.isEmpty() ? "/" : contextPath);
+            out.addCookie(cookie);
+            out.sendRedirect(contextPath + "/banking/overview");
+        });
     }
-    
+
     /**
-     * Sets the password.
-     * 
-     * @param password the password to set
+     * Logs the user out by clearing the session cookie. Tokens are stateless,
+     * so a copied token stays valid until it expires.
      */
-    public void setPassword(String password) {
-        this.password = password;
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response) {
+        String contextPath = request.getContextPath();
+        Cookie cookie = new Cookie(SESSION_COOKIE, "");
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setPath(contextPath.isEmpty() ? "/" : contextPath);
+        cookie.setMaxAge(0);
+        response.addCookie(cookie);
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
     }
 }
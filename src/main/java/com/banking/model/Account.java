@@ -1,16 +1,20 @@
 package com.banking.model;
 
-import java.sql.Connection;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.banking.util.DatabaseUtil;
+import com.banking.repository.CredentialRepository;
+import com.banking.repository.Repositories;
+import com.banking.util.PasswordHasher;
 
 /**
  * Model class representing a user account in the banking system.
+ * Passwords are stored as salted hashes produced by {@link PasswordHasher}.
+ * Accounts still holding a legacy plaintext password are upgraded to a hash
+ * on their next successful sign-in. Logins are stored through the
+ * {@link CredentialRepository} from {@link Repositories}.
  */
 public class Account {
     private static final Logger LOGGER = Logger.getLogger(Account.class.getName());
@@ -56,37 +60,24 @@ public class Account {
             return false;
         }
         
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
-            
-            // Check if username already exists
-            String checkUserSql = "SELECT Username FROM Account WHERE Username = '" + username + "'";
-            resultSet = statement.executeQuery(checkUserSql);
+            // Hash before touching storage so no connection is held during the hash
+            String passwordHash = PasswordHasher.getInstance().hash(password);
             
-            if (resultSet.next()) {
+            if (!Repositories.credentials().insert(username, passwordHash, name)) {
                 LOGGER.info("Username already exists: " + username);
                 return false;
             }
             
-            // Insert new account
-            String insertAccountSql = "INSERT INTO Account(Username, Password, Name) VALUES ('"
-                    + username + "','" + password + "','" + name + "')";
-            statement.executeUpdate(insertAccountSql);
-            
             LOGGER.info("Account created successfully for: " + username);
             return true;
             
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error creating account", e);
             return false;
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Password hashing is saturated; sign-up rejected for: " + username);
+            return false;
         }
     }
 
@@ -100,35 +91,63 @@ public class Account {
             return "";
         }
         
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
+            String[] credentials = findCredentials();
+            PasswordHasher hasher = PasswordHasher.getInstance();
             
-            String sql = "SELECT Name FROM Account WHERE Username = '" + username
-                    + "' AND Password = '" + password + "'";
-            resultSet = statement.executeQuery(sql);
+            if (credentials == null) {
+                hasher.verifyUnknownUser(password);
+                LOGGER.info("Authentication failed for: " + username);
+                return "";
+            }
             
-            if (resultSet.next()) {
-                name = resultSet.getString(1);
-                LOGGER.info("User authenticated: " + username);
-                return name;
-            } else {
+            if (!hasher.verify(password, credentials[1])) {
                 LOGGER.info("Authentication failed for: " + username);
                 return "";
             }
             
+            if (hasher.needsRehash(credentials[1])) {
+                upgradePassword(credentials[1]);
+            }
+            
+            name = credentials[0];
+            LOGGER.info("User authenticated: " + username);
+            return name;
+            
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error during authentication", e);
             return "";
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Password hashing is saturated; sign-in rejected for: " + username);
+            return "";
+        }
+    }
+    
+    /**
+     * Replaces a plaintext or outdated stored password with a fresh hash.
+     * A failure is logged and otherwise ignored; the user is already authenticated.
+     * 
+     * @param stored the stored value that was just verified
+     */
+    private void upgradePassword(String stored) {
+        try {
+            String passwordHash = PasswordHasher.getInstance().hash(password);
+            Repositories.credentials().replacePassword(username, stored, passwordHash);
+            LOGGER.info("Password hash upgraded for user: " + username);
+        } catch (SQLException | RejectedExecutionException e) {
+            LOGGER.log(Level.WARNING, "Could not upgrade password hash for user: " + username, e);
         }
     }
+    
+    /**
+     * Looks up the display name and stored password for the username.
+     * 
+     * @return the name and stored password, or null if the username does not exist
+     * @throws SQLException if a database access error occurs
+     */
+    private String[] findCredentials() throws SQLException {
+        return Repositories.credentials().findCredentials(username);
+    }
 
     /**
      * Changes a user's password.
@@ -141,29 +160,24 @@ public class Account {
             return false;
         }
         
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
-            
             // Verify current credentials
-            String checkUserSql = "SELECT * FROM Account WHERE Username = '" + username
-                    + "' AND Password = '" + password + "'";
-            resultSet = statement.executeQuery(checkUserSql);
+            String[] credentials = findCredentials();
+            PasswordHasher hasher = PasswordHasher.getInstance();
             
-            if (!resultSet.next()) {
+            if (credentials == null || !hasher.verify(password, credentials[1])) {
                 LOGGER.info("Current credentials are invalid for user: " + username);
                 return false;
             }
             
-            // Update password
-            String updatePasswordSql = "UPDATE Account SET Password = '" + newPassword
-                    + "' WHERE Username = '" + username + "'";
-            statement.executeUpdate(updatePasswordSql);
+            // Update password, unless it changed since it was verified
+            boolean updated = Repositories.credentials().replacePassword(username, credentials[1],
+                    hasher.hash(newPassword));
+            
+            if (!updated) {
+                LOGGER.info("Password changed concurrently for user: " + username);
+                return false;
+            }
             
             LOGGER.info("Password updated successfully for user: " + username);
             return true;
@@ -171,8 +185,9 @@ public class Account {
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error changing password", e);
             return false;
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Password hashing is saturated; password change rejected for: " + username);
+            return false;
         }
     }
     
@@ -0,0 +1,203 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.banking.model.Transaction.TransactionDetails;
+import com.banking.repository.AccountRepository;
+import com.banking.repository.JdbcLedgerRepository;
+import com.banking.repository.Repositories;
+import com.banking.util.DatabaseUtil;
+import com.banking.util.MemoryLedger;
+
+/**
+ * Immutable snapshot of everything the overview page shows for one customer:
+ * both account numbers, both balances and the most recent transactions.
+ * It is loaded with a single batch of three queries on one connection, so
+ * the page costs one round trip instead of one per value. Accounts held by
+ * the {@link MemoryLedger} replace the database rows of their type. When the
+ * accounts and ledger are not kept in the database, the values are read
+ * through the repositories instead.
+ */
+public final class AccountOverview {
+    private static final int MAX_RECENT_TRANSACTIONS = 100;
+    private static final String EARLIEST_DATE = "0001-01-01";
+    private static final String LATEST_DATE = "9999-12-31";
+
+    private static final String OVERVIEW_SQL =
+            "SELECT CheckingAccountNumber, Balance FROM CheckingAccount WHERE CustomerID = ?;\n"
+            + "SELECT SavingAccountNumber, Balance FROM SavingAccount WHERE CustomerID = ?;\n"
+            + "SELECT TOP (?) " + JdbcLedgerRepository.DETAIL_COLUMNS + " FROM Transactions WHERE CustomerID = ?"
+            + JdbcLedgerRepository.HISTORY_ORDER;
+
+    private final String customerId;
+    private final String checkingAccountNumber;
+    private final BigDecimal checkingBalance;
+    private final String savingsAccountNumber;
+    private final BigDecimal savingsBalance;
+    private final List<TransactionDetails> recentTransactions;
+
+    /**
+     * Creates an overview.
+     *
+     * @param customerId the customer ID
+     * @param checkingAccountNumber the checking account number, or null if the customer has none
+     * @param checkingBalance the checking balance
+     * @param savingsAccountNumber the savings account number, or null if the customer has none
+     * @param savingsBalance the savings balance
+     * @param recentTransactions the most recent transactions, newest first
+     */
+    public AccountOverview(String customerId, String checkingAccountNumber, BigDecimal checkingBalance,
+                           String savingsAccountNumber, BigDecimal savingsBalance,
+                           List<TransactionDetails> recentTransactions) {
+        this.customerId = customerId;
+        this.checkingAccountNumber = checkingAccountNumber;
+        this.checkingBalance = checkingBalance != null ? checkingBalance : BigDecimal.ZERO;
+        this.savingsAccountNumber = savingsAccountNumber;
+        this.savingsBalance = savingsBalance != null ? savingsBalance : BigDecimal.ZERO;
+        this.recentTransactions = Collections.unmodifiableList(new ArrayList<>(recentTransactions));
+    }
+
+    /**
+     * Loads the overview for a customer in one round trip.
+     *
+     * @param customerId the customer ID
+     * @param recentCount the number of recent transactions to include
+     * @return the overview
+     * @throws SQLException if a database access error occurs
+     */
+    public static AccountOverview load(String customerId, int recentCount) throws SQLException {
+        if (recentCount < 0 || recentCount > MAX_RECENT_TRANSACTIONS) {
+            throw new IllegalArgumentException("recentCount must be between 0 and " + MAX_RECENT_TRANSACTIONS);
+        }
+
+        if (!Repositories.isDatabaseBacked()) {
+            return loadFromRepositories(customerId, recentCount);
+        }
+
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        Connection connection = null;
+        PreparedStatement statement = null;
+
+        try {
+            connection = dbUtil.getConnection();
+            statement = connection.prepareStatement(OVERVIEW_SQL);
+            dbUtil.bindParameters(statement, customerId, customerId, recentCount, customerId);
+
+            String checkingNumber = null;
+            BigDecimal checkingBalance = null;
+            String savingsNumber = null;
+            BigDecimal savingsBalance = null;
+            List<TransactionDetails> transactions = new ArrayList<>(recentCount);
+
+            // Walk the result sets in batch order, skipping any update counts
+            int resultIndex = 0;
+            boolean isResultSet = statement.execute();
+            while (isResultSet || statement.getUpdateCount() != -1) {
+                if (isResultSet) {
+                    try (ResultSet resultSet = statement.getResultSet()) {
+                        switch (resultIndex++) {
+                            case 0:
+                                if (resultSet.next()) {
+                                    checkingNumber = resultSet.getString(1);
+                                    checkingBalance = resultSet.getBigDecimal(2);
+                                }
+                                break;
+                            case 1:
+                                if (resultSet.next()) {
+                                    savingsNumber = resultSet.getString(1);
+                                    savingsBalance = resultSet.getBigDecimal(2);
+                                }
+                                break;
+                            default:
+                                while (resultSet.next()) {
+                                    transactions.add(JdbcLedgerRepository.readDetails(resultSet));
+                                }
+                                break;
+                        }
+                    }
+                }
+                isResultSet = statement.getMoreResults();
+            }
+
+            if (MemoryLedger.isEnabled()) {
+                MemoryLedger ledger = MemoryLedger.getInstance();
+                String heldChecking = ledger.findAccountNumber(AccountType.CHECKING.getLedgerKind(), customerId);
+                if (heldChecking != null) {
+                    checkingNumber = heldChecking;
+                    checkingBalance = ledger.getBalance(AccountType.CHECKING.getLedgerKind(), heldChecking);
+                }
+                String heldSavings = ledger.findAccountNumber(AccountType.SAVINGS.getLedgerKind(), customerId);
+                if (heldSavings != null) {
+                    savingsNumber = heldSavings;
+                    savingsBalance = ledger.getBalance(AccountType.SAVINGS.getLedgerKind(), heldSavings);
+                }
+            }
+
+            return new AccountOverview(customerId, checkingNumber, checkingBalance, savingsNumber, savingsBalance,
+                    transactions);
+
+        } finally {
+            dbUtil.closeResources(connection, statement, null);
+        }
+    }
+
+    /**
+     * Assembles the overview from the repositories one value at a time, for
+     * storage other than the database.
+     */
+    private static AccountOverview loadFromRepositories(String customerId, int recentCount) throws SQLException {
+        AccountRepository checking = Repositories.checkingAccounts();
+        AccountRepository savings = Repositories.savingsAccounts();
+        String checkingNumber = checking.findAccountNumber(customerId);
+        String savingsNumber = savings.findAccountNumber(customerId);
+        BigDecimal checkingBalance = checkingNumber != null ? checking.findBalance(checkingNumber) : null;
+        BigDecimal savingsBalance = savingsNumber != null ? savings.findBalance(savingsNumber) : null;
+
+        List<TransactionDetails> transactions = recentCount > 0
+                ? Repositories.ledger().searchPage(customerId, EARLIEST_DATE, LATEST_DATE, recentCount, null)
+                        .getTransactions()
+                : Collections.<TransactionDetails>emptyList();
+
+        return new AccountOverview(customerId, checkingNumber, checkingBalance, savingsNumber, savingsBalance,
+                transactions);
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public String getCheckingAccountNumber() {
+        return checkingAccountNumber;
+    }
+
+    public BigDecimal getCheckingBalance() {
+        return checkingBalance;
+    }
+
+    public String getSavingsAccountNumber() {
+        return savingsAccountNumber;
+    }
+
+    public BigDecimal getSavingsBalance() {
+        return savingsBalance;
+    }
+
+    public List<TransactionDetails> getRecentTransactions() {
+        return recentTransactions;
+    }
+
+    public boolean hasCheckingAccount() {
+        return checkingAccountNumber != null;
+    }
+
+    public boolean hasSavingsAccount() {
+        return savingsAccountNumber != null;
+    }
+}
@@ -0,0 +1,105 @@
+package com.banking.model;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.banking.util.MemoryLedger;
+
+/**
+ * The kinds of bank account, with everything that differs between them:
+ * the name used in requests, the table and key column that hold them, and
+ * the account kind in the {@link MemoryLedger}. Code that handles both kinds
+ * takes an {@code AccountType} instead of branching on type names.
+ */
+public enum AccountType {
+    CHECKING("checking", "Checking", "CheckingAccount", "CheckingAccountNumber", MemoryLedger.CHECKING),
+    SAVINGS("savings", "Savings", "SavingAccount", "SavingAccountNumber", MemoryLedger.SAVINGS);
+
+    private static final Map<String, AccountType> BY_NAME = new HashMap<>();
+
+    static {
+        for (AccountType type : values()) {
+            BY_NAME.put(type.name, type);
+        }
+    }
+
+    private final String name;
+    private final String displayName;
+    private final String table;
+    private final String numberColumn;
+    private final char ledgerKind;
+
+    AccountType(String name, String displayName, String table, String numberColumn, char ledgerKind) {
+        this.name = name;
+        this.displayName = displayName;
+        this.table = table;
+        this.numberColumn = numberColumn;
+        this.ledgerKind = ledgerKind;
+    }
+
+    /**
+     * Looks up an account type by its request name, ignoring case.
+     *
+     * @param name the type name, such as "checking"
+     * @return the account type, or null if the name is not recognized
+     */
+    public static AccountType fromName(String name) {
+        return name == null ? null : BY_NAME.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Creates an account object of this type for an existing account.
+     *
+     * @param accountNumber the account number
+     * @return the account
+     */
+    public BankAccount newAccount(String accountNumber) {
+        return this == SAVINGS ? new SavingsAccount(accountNumber) : new CheckingAccount(accountNumber);
+    }
+
+    /**
+     * Creates an account object of this type for a new account.
+     *
+     * @param accountNumber the account number
+     * @param customerName the customer name
+     * @param customerId the customer ID
+     * @param initialDeposit the initial deposit amount
+     * @return the account, ready to be opened
+     */
+    public BankAccount newAccount(String accountNumber, String customerName, String customerId,
+                                  String initialDeposit) {
+        return this == SAVINGS ? new SavingsAccount(accountNumber, customerName, customerId, initialDeposit)
+                : new CheckingAccount(accountNumber, customerName, customerId, initialDeposit);
+    }
+
+    /**
+     * Gets the name used in requests, such as "checking".
+     *
+     * @return the lower-case type name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the name used in messages, such as "Checking".
+     *
+     * @return the capitalized type name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getNumberColumn() {
+        return numberColumn;
+    }
+
+    public char getLedgerKind() {
+        return ledgerKind;
+    }
+}
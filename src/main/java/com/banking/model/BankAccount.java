@@ -2,20 +2,22 @@ package com.banking.model;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.banking.util.DatabaseUtil;
+import com.banking.repository.AccountRepository;
+import com.banking.repository.Repositories;
 
 /**
  * Abstract base class for all bank account types.
+ * Holds the account rules shared by every type, so each rule exists once;
+ * the {@link AccountType} only selects where balances are stored.
  */
 public abstract class BankAccount {
     private static final Logger LOGGER = Logger.getLogger(BankAccount.class.getName());
     
+    protected final AccountType accountType;
     protected String accountNumber;
     protected String customerName;
     protected String customerId;
@@ -24,12 +26,15 @@ public abstract class BankAccount {
     /**
      * Constructor for a bank account.
      * 
+     * @param accountType the account type
      * @param accountNumber the account number
      * @param customerName the customer name
      * @param customerId the customer ID
      * @param balance the initial balance
      */
-    public BankAccount(String accountNumber, String customerName, String customerId, BigDecimal balance) {
+    public BankAccount(AccountType accountType, String accountNumber, String customerName, String customerId,
+                       BigDecimal balance) {
+        this.accountType = accountType;
         this.accountNumber = accountNumber;
         this.customerName = customerName;
         this.customerId = customerId;
@@ -39,16 +44,85 @@ public abstract class BankAccount {
     /**
      * Constructor with account number only.
      * 
+     * @param accountType the account type
      * @param accountNumber the account number
      */
-    public BankAccount(String accountNumber) {
+    public BankAccount(AccountType accountType, String accountNumber) {
+        this.accountType = accountType;
         this.accountNumber = accountNumber;
     }
     
     /**
-     * Default constructor.
+     * Constructor for an account not yet identified.
+     * 
+     * @param accountType the account type
+     */
+    public BankAccount(AccountType accountType) {
+        this.accountType = accountType;
+    }
+    
+    /**
+     * Gets the storage that holds accounts of this type.
+     * 
+     * @return the account repository
+     */
+    protected AccountRepository repository() {
+        return Repositories.accounts(accountType);
+    }
+    
+    /**
+     * Opens a new account.
+     * 
+     * @return true if account creation was successful, false otherwise
      */
-    public BankAccount() {
+    public boolean openAccount() {
+        if (accountNumber == null || accountNumber.isEmpty() || 
+            customerName == null || customerName.isEmpty() || 
+            customerId == null || customerId.isEmpty() || 
+            balance == null) {
+            LOGGER.warning("Invalid account information provided");
+            return false;
+        }
+        
+        try {
+            if (!repository().insert(accountNumber, customerName, customerId, balance)) {
+                LOGGER.warning(accountType.getDisplayName() + " account number already exists: " + accountNumber);
+                return false;
+            }
+            
+            LOGGER.info(accountType.getDisplayName() + " account created successfully: " + accountNumber);
+            return true;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error creating " + accountType.getName() + " account", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Gets the account number associated with a customer ID.
+     * 
+     * @param customerId the customer ID
+     * @return the account number
+     */
+    public String getAccountNumber(String customerId) {
+        if (customerId == null || customerId.isEmpty()) {
+            return null;
+        }
+        
+        try {
+            String found = repository().findAccountNumber(customerId);
+            
+            if (found != null) {
+                accountNumber = found;
+            }
+            
+            return found;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving " + accountType.getName() + " account number", e);
+            return null;
+        }
     }
     
     /**
@@ -56,7 +130,15 @@ public abstract class BankAccount {
      * 
      * @return the current balance
      */
-    public abstract BigDecimal getBalance();
+    public BigDecimal getBalance() {
+        if (accountNumber == null || accountNumber.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        
+        BigDecimal current = getBalance(accountNumber);
+        balance = current;
+        return current;
+    }
     
     /**
      * Gets the balance for a specific account number.
@@ -64,7 +146,32 @@ public abstract class BankAccount {
      * @param accountNumber the account number
      * @return the current balance
      */
-    public abstract BigDecimal getBalance(String accountNumber);
+    public BigDecimal getBalance(String accountNumber) {
+        if (accountNumber == null || accountNumber.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        
+        try {
+            BigDecimal found = findBalance(accountNumber);
+            return found != null ? found : BigDecimal.ZERO;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving " + accountType.getName() + " account balance", e);
+            return BigDecimal.ZERO;
+        }
+    }
+    
+    /**
+     * Looks up the balance for a specific account number, distinguishing a
+     * missing account from a zero balance.
+     * 
+     * @param accountNumber the account number
+     * @return the current balance, or null if the account does not exist
+     * @throws SQLException if a database access error occurs
+     */
+    public BigDecimal findBalance(String accountNumber) throws SQLException {
+        return repository().findBalance(accountNumber);
+    }
     
     /**
      * Deposits funds into the account.
@@ -73,7 +180,43 @@ public abstract class BankAccount {
      * @param customerId the customer ID making the deposit
      * @return true if the deposit was successful, false otherwise
      */
-    public abstract boolean deposit(BigDecimal amount, String customerId);
+    public boolean deposit(BigDecimal amount, String customerId) {
+        try {
+            return deposit(null, amount, customerId);
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error processing deposit to " + accountType.getName() + " account", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Deposits funds into the account as one step of a database transaction.
+     * 
+     * @param connection the transaction to join, or null to apply the deposit on its own
+     * @param amount the amount to deposit
+     * @param customerId the customer ID making the deposit
+     * @return true if the deposit was applied, false if it was rejected
+     * @throws SQLException if a database access error occurs
+     */
+    public boolean deposit(Connection connection, BigDecimal amount, String customerId) throws SQLException {
+        if (accountNumber == null || accountNumber.isEmpty() || customerId == null || customerId.isEmpty()) {
+            return false;
+        }
+        
+        if (!validateAmount(amount)) {
+            LOGGER.warning("Invalid deposit amount: " + amount);
+            return false;
+        }
+        
+        if (credit(connection, amount, customerId) != null) {
+            LOGGER.info("Deposit successful to " + accountType.getName() + " account: " + accountNumber);
+            return true;
+        } else {
+            LOGGER.warning("Account not found for deposit: " + accountNumber);
+            return false;
+        }
+    }
     
     /**
      * Withdraws funds from the account.
@@ -82,22 +225,89 @@ public abstract class BankAccount {
      * @param customerId the customer ID making the withdrawal
      * @return true if the withdrawal was successful, false otherwise
      */
-    public abstract boolean withdraw(BigDecimal amount, String customerId);
+    public boolean withdraw(BigDecimal amount, String customerId) {
+        try {
+            return withdraw(null, amount, customerId);
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error processing withdrawal from " + accountType.getName() + " account", e);
+            return false;
+        }
+    }
     
     /**
-     * Opens a new account.
+     * Withdraws funds from the account as one step of a database transaction.
      * 
-     * @return true if account creation was successful, false otherwise
+     * @param connection the transaction to join, or null to apply the withdrawal on its own
+     * @param amount the amount to withdraw
+     * @param customerId the customer ID making the withdrawal
+     * @return true if the withdrawal was applied, false if it was rejected
+     * @throws SQLException if a database access error occurs
      */
-    public abstract boolean openAccount();
+    public boolean withdraw(Connection connection, BigDecimal amount, String customerId) throws SQLException {
+        if (accountNumber == null || accountNumber.isEmpty() || customerId == null || customerId.isEmpty()) {
+            return false;
+        }
+        
+        if (!validateAmount(amount)) {
+            LOGGER.warning("Invalid withdrawal amount: " + amount);
+            return false;
+        }
+        
+        String typeName = accountType.getName();
+        if (debit(connection, amount, customerId) != null) {
+            LOGGER.info("Withdrawal successful from " + typeName + " account: " + accountNumber);
+            return true;
+        }
+        
+        // The conditional debit matched nothing. Inside a transaction, looking up
+        // the reason would borrow a second pooled connection while this one is held
+        if (connection != null) {
+            LOGGER.warning("Insufficient funds or unknown account for withdrawal from " + typeName + " account: "
+                    + accountNumber);
+        } else if (repository().isOwnedBy(accountNumber, customerId)) {
+            LOGGER.warning("Insufficient funds for withdrawal from " + typeName + " account: " + accountNumber);
+        } else {
+            LOGGER.warning("Account not found for withdrawal: " + accountNumber);
+        }
+        return false;
+    }
     
     /**
-     * Gets the account number associated with a customer ID.
+     * Adds funds to the account as one step of a database transaction.
      * 
-     * @param customerId the customer ID
-     * @return the account number
+     * @param connection the transaction to join, or null to apply the change on its own
+     * @param amount the amount to add
+     * @param customerId the customer ID that must own the account
+     * @return the new balance, or null if the account was not found
+     * @throws SQLException if a database access error occurs
      */
-    public abstract String getAccountNumber(String customerId);
+    public BigDecimal credit(Connection connection, BigDecimal amount, String customerId) throws SQLException {
+        BigDecimal newBalance = repository().credit(connection, accountNumber, customerId, amount);
+        if (newBalance != null) {
+            balance = newBalance;
+        }
+        return newBalance;
+    }
+    
+    /**
+     * Removes funds from the account as one step of a database transaction.
+     * The sufficient-funds check is part of the change, so concurrent
+     * withdrawals cannot overdraw the account.
+     * 
+     * @param connection the transaction to join, or null to apply the change on its own
+     * @param amount the amount to remove
+     * @param customerId the customer ID that must own the account
+     * @return the new balance, or null if the account was not found or has insufficient funds
+     * @throws SQLException if a database access error occurs
+     */
+    public BigDecimal debit(Connection connection, BigDecimal amount, String customerId) throws SQLException {
+        BigDecimal newBalance = repository().debit(connection, accountNumber, customerId, amount);
+        if (newBalance != null) {
+            balance = newBalance;
+        }
+        return newBalance;
+    }
     
     /**
      * Validates that an amount is positive.
@@ -120,6 +330,10 @@ public abstract class BankAccount {
     }
 
     // Getters and Setters
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
     public String getAccountNumber() {
         return accountNumber;
     }
@@ -2,15 +2,10 @@ package com.banking.model;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.sql.Connection;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.banking.util.DatabaseUtil;
-
 /**
  * Model class representing a savings account in the banking system.
  */
@@ -29,7 +24,7 @@ public class SavingsAccount extends BankAccount {
      * @param initialDeposit the initial deposit amount
      */
     public SavingsAccount(String accountNumber, String customerName, String customerId, String initialDeposit) {
-        super(accountNumber, customerName, customerId, 
+        super(AccountType.SAVINGS, accountNumber, customerName, customerId, 
               initialDeposit != null ? new BigDecimal(initialDeposit) : BigDecimal.ZERO);
         this.interestRate = DEFAULT_INTEREST_RATE;
     }
@@ -40,297 +35,14 @@ public class SavingsAccount extends BankAccount {
      * @param accountNumber the account number
      */
     public SavingsAccount(String accountNumber) {
-        super(accountNumber);
+        super(AccountType.SAVINGS, accountNumber);
     }
     
     /**
      * Default constructor.
      */
     public SavingsAccount() {
-        super();
-    }
-    
-    /**
-     * Opens a new savings account.
-     * 
-     * @return true if account creation was successful, false otherwise
-     */
-    @Override
-    public boolean openAccount() {
-        if (accountNumber == null || accountNumber.isEmpty() || 
-            customerName == null || customerName.isEmpty() || 
-            customerId == null || customerId.isEmpty() || 
-            balance == null) {
-            LOGGER.warning("Invalid account information provided");
-            return false;
-        }
-        
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
-        try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
-            
-            // Check if account number already exists
-            String checkAccountSql = "SELECT SavingAccountNumber FROM SavingAccount WHERE SavingAccountNumber = '" 
-                                    + accountNumber + "'";
-            resultSet = statement.executeQuery(checkAccountSql);
-            
-            if (resultSet.next()) {
-                LOGGER.warning("Savings account number already exists: " + accountNumber);
-                return false;
-            }
-            
-            // Insert new savings account
-            String insertAccountSql = "INSERT INTO SavingAccount(SavingAccountNumber, CustomerName, Balance, CustomerID) VALUES ('"
-                    + accountNumber + "','" + customerName + "'," + balance + ",'" + customerId + "')";
-            statement.executeUpdate(insertAccountSql);
-            
-            LOGGER.info("Savings account created successfully: " + accountNumber);
-            return true;
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error creating savings account", e);
-            return false;
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
-        }
-    }
-    
-    /**
-     * Gets the account number associated with a customer ID.
-     * 
-     * @param customerId the customer ID
-     * @return the account number
-     */
-    @Override
-    public String getAccountNumber(String customerId) {
-        if (customerId == null || customerId.isEmpty()) {
-            return null;
-        }
-        
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
-        try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
-            
-            String sql = "SELECT SavingAccountNumber FROM SavingAccount WHERE CustomerID = '" + customerId + "'";
-            resultSet = statement.executeQuery(sql);
-            
-            if (resultSet.next()) {
-                accountNumber = resultSet.getString("SavingAccountNumber");
-                return accountNumber;
-            }
-            
-            return null;
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error retrieving savings account number", e);
-            return null;
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
-        }
-    }
-    
-    /**
-     * Gets the account's current balance.
-     * 
-     * @return the current balance
-     */
-    @Override
-    public BigDecimal getBalance() {
-        if (accountNumber == null || accountNumber.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
-        try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
-            
-            String sql = "SELECT Balance FROM SavingAccount WHERE SavingAccountNumber = '" + accountNumber + "'";
-            resultSet = statement.executeQuery(sql);
-            
-            if (resultSet.next()) {
-                balance = BigDecimal.valueOf(resultSet.getFloat(1));
-                return balance;
-            }
-            
-            return BigDecimal.ZERO;
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error retrieving savings account balance", e);
-            return BigDecimal.ZERO;
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
-        }
-    }
-    
-    /**
-     * Gets the balance for a specific account number.
-     * 
-     * @param accountNumber the account number
-     * @return the current balance
-     */
-    @Override
-    public BigDecimal getBalance(String accountNumber) {
-        if (accountNumber == null || accountNumber.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
-        try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
-            
-            String sql = "SELECT Balance FROM SavingAccount WHERE SavingAccountNumber = '" + accountNumber + "'";
-            resultSet = statement.executeQuery(sql);
-            
-            if (resultSet.next()) {
-                return BigDecimal.valueOf(resultSet.getFloat(1));
-            }
-            
-            return BigDecimal.ZERO;
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error retrieving savings account balance", e);
-            return BigDecimal.ZERO;
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
-        }
-    }
-    
-    /**
-     * Deposits funds into the account.
-     * 
-     * @param amount the amount to deposit
-     * @param customerId the customer ID making the deposit
-     * @return true if the deposit was successful, false otherwise
-     */
-    @Override
-    public boolean deposit(BigDecimal amount, String customerId) {
-        if (accountNumber == null || accountNumber.isEmpty() || customerId == null || customerId.isEmpty()) {
-            return false;
-        }
-        
-        if (!validateAmount(amount)) {
-            LOGGER.warning("Invalid deposit amount: " + amount);
-            return false;
-        }
-        
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
-        try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
-            
-            // Get current balance
-            String getBalanceSql = "SELECT Balance FROM SavingAccount WHERE SavingAccountNumber = '" 
-                                  + accountNumber + "' AND CustomerID = '" + customerId + "'";
-            resultSet = statement.executeQuery(getBalanceSql);
-            
-            if (resultSet.next()) {
-                balance = BigDecimal.valueOf(resultSet.getFloat(1));
-                balance = balance.add(amount);
-                
-                // Update balance
-                String updateBalanceSql = "UPDATE SavingAccount SET Balance = " + balance 
-                                         + " WHERE SavingAccountNumber = '" + accountNumber + "'";
-                statement.executeUpdate(updateBalanceSql);
-                
-                LOGGER.info("Deposit successful to savings account: " + accountNumber);
-                return true;
-            } else {
-                LOGGER.warning("Account not found for deposit: " + accountNumber);
-                return false;
-            }
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error processing deposit to savings account", e);
-            return false;
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
-        }
-    }
-    
-    /**
-     * Withdraws funds from the account.
-     * 
-     * @param amount the amount to withdraw
-     * @param customerId the customer ID making the withdrawal
-     * @return true if the withdrawal was successful, false otherwise
-     */
-    @Override
-    public boolean withdraw(BigDecimal amount, String customerId) {
-        if (accountNumber == null || accountNumber.isEmpty() || customerId == null || customerId.isEmpty()) {
-            return false;
-        }
-        
-        if (!validateAmount(amount)) {
-            LOGGER.warning("Invalid withdrawal amount: " + amount);
-            return false;
-        }
-        
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
-        try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
-            
-            // Get current balance
-            String getBalanceSql = "SELECT Balance FROM SavingAccount WHERE SavingAccountNumber = '" 
-                                  + accountNumber + "' AND CustomerID = '" + customerId + "'";
-            resultSet = statement.executeQuery(getBalanceSql);
-            
-            if (resultSet.next()) {
-                balance = BigDecimal.valueOf(resultSet.getFloat(1));
-                
-                if (!validateSufficientFunds(amount)) {
-                    LOGGER.warning("Insufficient funds for withdrawal from savings account: " + accountNumber);
-                    return false;
-                }
-                
-                balance = balance.subtract(amount);
-                
-                // Update balance
-                String updateBalanceSql = "UPDATE SavingAccount SET Balance = " + balance 
-                                         + " WHERE SavingAccountNumber = '" + accountNumber + "'";
-                statement.executeUpdate(updateBalanceSql);
-                
-                LOGGER.info("Withdrawal successful from savings account: " + accountNumber);
-                return true;
-            } else {
-                LOGGER.warning("Account not found for withdrawal: " + accountNumber);
-                return false;
-            }
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error processing withdrawal from savings account", e);
-            return false;
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
-        }
+        super(AccountType.SAVINGS);
     }
     
     /**
@@ -373,29 +85,11 @@ public class SavingsAccount extends BankAccount {
             return false;
         }
         
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
+            BigDecimal newBalance = repository().addInterest(accountNumber, interestAmount);
             
-            // Get current balance
-            String getBalanceSql = "SELECT Balance FROM SavingAccount WHERE SavingAccountNumber = '" 
-                                  + accountNumber + "'";
-            resultSet = statement.executeQuery(getBalanceSql);
-            
-            if (resultSet.next()) {
-                balance = BigDecimal.valueOf(resultSet.getFloat(1));
-                balance = balance.add(interestAmount);
-                
-                // Update balance
-                String updateBalanceSql = "UPDATE SavingAccount SET Balance = " + balance 
-                                         + " WHERE SavingAccountNumber = '" + accountNumber + "'";
-                statement.executeUpdate(updateBalanceSql);
-                
+            if (newBalance != null) {
+                balance = newBalance;
                 LOGGER.info("Interest applied to savings account: " + accountNumber);
                 return true;
             } else {
@@ -406,11 +100,18 @@ public class SavingsAccount extends BankAccount {
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error applying interest to savings account", e);
             return false;
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
         }
     }
     
+    /**
+     * Gets the interest rate applied to new savings accounts.
+     * 
+     * @return the default interest rate
+     */
+    public static BigDecimal getDefaultInterestRate() {
+        return DEFAULT_INTEREST_RATE;
+    }
+    
     /**
      * Gets the interest rate for the account.
      * 
@@ -2,19 +2,20 @@ package com.banking.model;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
-import java.sql.ResultSet;
+import java.sql.Date;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.time.LocalDate;
-import java.time.LocalTime;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.banking.util.DatabaseUtil;
+import com.banking.repository.Repositories;
+import com.banking.util.SnowflakeIdGenerator;
+import com.banking.util.TransactionIdGenerator;
 
 /**
  * Model class representing a banking transaction.
@@ -22,6 +23,13 @@ import com.banking.util.DatabaseUtil;
 public class Transaction {
     private static final Logger LOGGER = Logger.getLogger(Transaction.class.getName());
     
+    private static final int MAX_PAGE_SIZE = 500;
+    
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    
+    private static volatile TransactionIdGenerator idGenerator = SnowflakeIdGenerator.fromSystemProperties();
+    
     private String transactionNumber;
     private String transactionType;
     private String transactionTime;
@@ -75,63 +83,71 @@ public class Transaction {
         this.endDate = endDate;
     }
     
+    /**
+     * Replaces the generator used for new transaction numbers.
+     * 
+     * @param generator the generator to use
+     */
+    public static void setIdGenerator(TransactionIdGenerator generator) {
+        if (generator == null) {
+            throw new IllegalArgumentException("generator must not be null");
+        }
+        idGenerator = generator;
+    }
+    
     /**
      * Records a transaction in the database.
      * 
      * @return the transaction number
      */
     public String recordTransaction() {
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
-            
-            // Generate a unique transaction number
-            boolean isDuplicate = true;
-            while (isDuplicate) {
-                Random rand = new Random();
-                int randomNum = rand.nextInt(9999) + 1000;
-                transactionNumber = Integer.toString(randomNum);
-                
-                String checkTransactionSql = "SELECT TransactionNumber FROM Transactions WHERE TransactionNumber = '" 
-                                           + transactionNumber + "'";
-                resultSet = statement.executeQuery(checkTransactionSql);
-                isDuplicate = resultSet.next();
-            }
-            
-            // Set the transaction time and date
-            LocalTime now = LocalTime.now();
-            LocalDate today = LocalDate.now();
-            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-            
-            transactionTime = now.format(timeFormatter);
-            transactionDate = today.format(dateFormatter);
-            
-            // Insert the transaction
-            String insertTransactionSql = "INSERT INTO Transactions(TransactionNumber, TransactionType, TransactionAmount, " +
-                                         "TransactionTime, TransactionDate, FromAccount, ToAccount, CustomerID) VALUES ('" +
-                                         transactionNumber + "','" + transactionType + "','" + amount + "','" + 
-                                         transactionTime + "','" + transactionDate + "','" + fromAccount + "','" + 
-                                         toAccount + "','" + customerId + "')";
-            
-            statement.executeUpdate(insertTransactionSql);
-            LOGGER.info("Transaction recorded successfully: " + transactionNumber);
-            
-            return transactionNumber;
+            return recordTransaction(null);
             
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error recording transaction", e);
             return "";
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
         }
     }
     
+    /**
+     * Records a transaction on a connection the caller already holds, so the
+     * ledger entry can commit or roll back together with the balance changes.
+     * 
+     * @param connection the transaction to join, or null to record the entry on its own
+     * @return the transaction number
+     * @throws SQLException if a database access error occurs
+     */
+    public String recordTransaction(Connection connection) throws SQLException {
+        prepareForRecording();
+        
+        // Insert the transaction
+        Repositories.ledger().insert(connection, this);
+        LOGGER.info("Transaction recorded successfully: " + transactionNumber);
+        
+        return transactionNumber;
+    }
+    
+    /**
+     * Assigns the transaction number, time and date if they have not been
+     * assigned yet. Recording paths call this before the insert so that the
+     * number is known even when the insert is deferred.
+     * 
+     * @return the transaction number
+     */
+    public String prepareForRecording() {
+        if (transactionNumber == null) {
+            // Generate a unique transaction number
+            transactionNumber = Long.toString(idGenerator.nextId());
+            
+            // Set the transaction time and date
+            LocalDateTime now = LocalDateTime.now();
+            transactionTime = now.format(TIME_FORMATTER);
+            transactionDate = now.format(DATE_FORMATTER);
+        }
+        return transactionNumber;
+    }
+    
     /**
      * Searches for transactions within a date range.
      * 
@@ -141,39 +157,13 @@ public class Transaction {
     public List<TransactionDetails> searchTransactions(String customerId) {
         List<TransactionDetails> transactions = new ArrayList<>();
         
-        if (startDate == null || startDate.isEmpty() || endDate == null || endDate.isEmpty()) {
+        if (!hasValidDateRange()) {
             LOGGER.warning("Invalid date range for transaction search");
             return transactions;
         }
         
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            DatabaseUtil dbUtil = DatabaseUtil.getInstance();
-            connection = dbUtil.getConnection();
-            statement = connection.createStatement();
-            
-            String searchTransactionSql = "SELECT * FROM Transactions WHERE CustomerID = '" + customerId +
-                                          "' AND TransactionDate BETWEEN '" + startDate + "' AND '" + endDate + 
-                                          "' ORDER BY TransactionDate DESC, TransactionTime DESC";
-            
-            resultSet = statement.executeQuery(searchTransactionSql);
-            
-            while (resultSet.next()) {
-                TransactionDetails transaction = new TransactionDetails(
-                    resultSet.getString("TransactionNumber"),
-                    resultSet.getString("TransactionType"),
-                    new BigDecimal(resultSet.getString("TransactionAmount")),
-                    resultSet.getString("TransactionTime"),
-                    resultSet.getString("TransactionDate"),
-                    resultSet.getString("FromAccount"),
-                    resultSet.getString("ToAccount")
-                );
-                
-                transactions.add(transaction);
-            }
+            transactions.addAll(Repositories.ledger().search(customerId, startDate, endDate));
             
             LOGGER.info("Found " + transactions.size() + " transactions for user " + customerId + 
                        " between " + startDate + " and " + endDate);
@@ -183,8 +173,121 @@ public class Transaction {
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Error searching for transactions", e);
             return transactions;
-        } finally {
-            DatabaseUtil.getInstance().closeResources(connection, statement, resultSet);
+        }
+    }
+    
+    /**
+     * Searches for one page of transactions within the date range, newest first.
+     * Each page continues from the position of the previous page's last
+     * transaction, so deep pages cost no more than the first.
+     * 
+     * @param customerId the customer ID
+     * @param pageSize the maximum number of transactions to return
+     * @param continuationToken the token from the previous page, or null for the first page
+     * @return the page of transactions
+     * @throws IllegalArgumentException if the page size or continuation token is invalid
+     */
+    public TransactionPage searchTransactions(String customerId, int pageSize, String continuationToken) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        
+        if (!hasValidDateRange()) {
+            LOGGER.warning("Invalid date range for transaction search");
+            return new TransactionPage(new ArrayList<>(), null);
+        }
+        
+        try {
+            return Repositories.ledger().searchPage(customerId, startDate, endDate, pageSize, continuationToken);
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error searching for transactions", e);
+            return new TransactionPage(new ArrayList<>(), null);
+        }
+    }
+    
+    /**
+     * Streams every transaction within the date range to a consumer, newest
+     * first, as the repository reads them. The database repository holds only
+     * one row in memory at a time, so the cost does not grow with the size of
+     * the history.
+     * 
+     * @param customerId the customer ID
+     * @param consumer receives each transaction in order
+     * @return the number of transactions streamed
+     * @throws SQLException if a database access error occurs
+     */
+    public int forEachTransaction(String customerId, Consumer<TransactionDetails> consumer) throws SQLException {
+        if (!hasValidDateRange()) {
+            LOGGER.warning("Invalid date range for transaction search");
+            return 0;
+        }
+        
+        return Repositories.ledger().forEach(customerId, startDate, endDate, consumer);
+    }
+    
+    /**
+     * Gets a version string for the transactions within the date range.
+     * Ledger rows are only ever inserted, and transaction numbers increase,
+     * so the row count and the highest number change whenever the history
+     * does.
+     * 
+     * @param customerId the customer ID
+     * @return the version, or null if the date range is invalid
+     * @throws SQLException if a database access error occurs
+     */
+    public String findHistoryVersion(String customerId) throws SQLException {
+        if (!hasValidDateRange()) {
+            return null;
+        }
+        
+        return Repositories.ledger().findHistoryVersion(customerId, startDate, endDate);
+    }
+    
+    /**
+     * Checks that the search range holds two valid yyyy-MM-dd dates.
+     */
+    private boolean hasValidDateRange() {
+        if (startDate == null || startDate.isEmpty() || endDate == null || endDate.isEmpty()) {
+            return false;
+        }
+        try {
+            Date.valueOf(startDate);
+            Date.valueOf(endDate);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * One page of a transaction search.
+     */
+    public static class TransactionPage {
+        private final List<TransactionDetails> transactions;
+        private final String continuationToken;
+        
+        /**
+         * Constructor for a transaction page.
+         * 
+         * @param transactions the transactions on this page
+         * @param continuationToken the token for the next page, or null if this is the last page
+         */
+        public TransactionPage(List<TransactionDetails> transactions, String continuationToken) {
+            this.transactions = Collections.unmodifiableList(transactions);
+            this.continuationToken = continuationToken;
+        }
+        
+        public List<TransactionDetails> getTransactions() {
+            return transactions;
+        }
+        
+        public String getContinuationToken() {
+            return continuationToken;
+        }
+        
+        public boolean hasMore() {
+            return continuationToken != null;
         }
     }
     
@@ -0,0 +1,95 @@
+package com.banking.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Storage for the balances of one kind of bank account.
+ * <p>
+ * Methods that change a balance take an optional JDBC connection so that a
+ * caller running a database transaction can include the change in it. Pass
+ * null to run the change on its own. Implementations that do not keep
+ * accounts in the database ignore the connection.
+ */
+public interface AccountRepository {
+
+    /**
+     * Stores a new account.
+     *
+     * @param accountNumber the account number
+     * @param customerName the customer name
+     * @param customerId the owning customer ID
+     * @param balance the opening balance
+     * @return true if the account was stored, false if the account number is taken
+     * @throws SQLException if the account cannot be stored
+     */
+    boolean insert(String accountNumber, String customerName, String customerId, BigDecimal balance)
+            throws SQLException;
+
+    /**
+     * Finds the account held by a customer.
+     *
+     * @param customerId the customer ID
+     * @return the account number, or null if the customer has no account of this kind
+     * @throws SQLException if the lookup fails
+     */
+    String findAccountNumber(String customerId) throws SQLException;
+
+    /**
+     * Reads an account's balance.
+     *
+     * @param accountNumber the account number
+     * @return the balance, or null if the account does not exist
+     * @throws SQLException if the lookup fails
+     */
+    BigDecimal findBalance(String accountNumber) throws SQLException;
+
+    /**
+     * Checks whether an account exists and belongs to a customer.
+     *
+     * @param accountNumber the account number
+     * @param customerId the customer ID
+     * @return true if the customer owns the account
+     * @throws SQLException if the lookup fails
+     */
+    boolean isOwnedBy(String accountNumber, String customerId) throws SQLException;
+
+    /**
+     * Adds funds to an account owned by the customer.
+     *
+     * @param connection the transaction to join, or null
+     * @param accountNumber the account number
+     * @param customerId the customer ID that must own the account
+     * @param amount the amount to add
+     * @return the new balance, or null if the customer has no such account
+     * @throws SQLException if the update fails
+     */
+    BigDecimal credit(Connection connection, String accountNumber, String customerId, BigDecimal amount)
+            throws SQLException;
+
+    /**
+     * Removes funds from an account owned by the customer. The balance check
+     * and the change are one atomic step, so concurrent debits cannot
+     * overdraw the account.
+     *
+     * @param connection the transaction to join, or null
+     * @param accountNumber the account number
+     * @param customerId the customer ID that must own the account
+     * @param amount the amount to remove
+     * @return the new balance, or null if the customer has no such account or funds are insufficient
+     * @throws SQLException if the update fails
+     */
+    BigDecimal debit(Connection connection, String accountNumber, String customerId, BigDecimal amount)
+            throws SQLException;
+
+    /**
+     * Adds interest to an account regardless of its owner.
+     *
+     * @param accountNumber the account number
+     * @param amount the interest to add
+     * @return the new balance, or null if the account does not exist
+     * @throws SQLException if the update fails
+     */
+    BigDecimal addInterest(String accountNumber, BigDecimal amount) throws SQLException;
+}
@@ -0,0 +1,46 @@
+package com.banking.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.banking.model.Transaction.TransactionDetails;
+
+/**
+ * Encodes the position after the last entry of a history page, as the
+ * entry's date, time and transaction number.
+ */
+final class ContinuationTokens {
+    private static final String SEPARATOR = ",";
+
+    private ContinuationTokens() {
+    }
+
+    static String encode(TransactionDetails last) {
+        String position = last.getDate() + SEPARATOR + last.getTime() + SEPARATOR + last.getTransactionNumber();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token into its date, time and transaction number fields.
+     *
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode(TransactionDetails)}
+     */
+    static String[] decode(String token) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = position.split(SEPARATOR, -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected three token fields");
+            }
+            LocalDate.parse(parts[0]);
+            LocalTime.parse(parts[1]);
+            Long.parseLong(parts[2]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid continuation token", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.banking.repository;
+
+import java.sql.SQLException;
+
+/**
+ * Storage for user logins: display name and stored password hash by username.
+ */
+public interface CredentialRepository {
+
+    /**
+     * Stores a new user.
+     *
+     * @param username the username
+     * @param passwordHash the stored password hash
+     * @param name the display name
+     * @return true if the user was stored, false if the username is taken
+     * @throws SQLException if the user cannot be stored
+     */
+    boolean insert(String username, String passwordHash, String name) throws SQLException;
+
+    /**
+     * Reads a user's display name and stored password.
+     *
+     * @param username the username
+     * @return the name and stored password, or null if the username does not exist
+     * @throws SQLException if the lookup fails
+     */
+    String[] findCredentials(String username) throws SQLException;
+
+    /**
+     * Replaces a stored password if it still has the value the caller verified.
+     *
+     * @param username the username
+     * @param expectedHash the stored value the caller read
+     * @param newHash the new stored value
+     * @return true if the password was replaced, false if it had changed or the user does not exist
+     * @throws SQLException if the update fails
+     */
+    boolean replacePassword(String username, String expectedHash, String newHash) throws SQLException;
+}
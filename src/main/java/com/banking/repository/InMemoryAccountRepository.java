@@ -0,0 +1,92 @@
+package com.banking.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Account storage in process memory, for running the account logic without
+ * a database. Nothing survives a restart. Each account's balance changes
+ * under that account's own lock, so operations on different accounts never
+ * contend.
+ */
+public class InMemoryAccountRepository implements AccountRepository {
+    private final Map<String, Row> accounts = new ConcurrentHashMap<>();
+    private final Map<String, String> accountNumbersByCustomer = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean insert(String accountNumber, String customerName, String customerId, BigDecimal balance) {
+        if (accounts.putIfAbsent(accountNumber, new Row(customerId, balance)) != null) {
+            return false;
+        }
+        accountNumbersByCustomer.putIfAbsent(customerId, accountNumber);
+        return true;
+    }
+
+    @Override
+    public String findAccountNumber(String customerId) {
+        return accountNumbersByCustomer.get(customerId);
+    }
+
+    @Override
+    public BigDecimal findBalance(String accountNumber) {
+        Row row = accounts.get(accountNumber);
+        return row != null ? row.balance : null;
+    }
+
+    @Override
+    public boolean isOwnedBy(String accountNumber, String customerId) {
+        Row row = accounts.get(accountNumber);
+        return row != null && row.customerId.equals(customerId);
+    }
+
+    @Override
+    public BigDecimal credit(Connection connection, String accountNumber, String customerId, BigDecimal amount) {
+        Row row = accounts.get(accountNumber);
+        if (row == null || !row.customerId.equals(customerId)) {
+            return null;
+        }
+        synchronized (row) {
+            row.balance = row.balance.add(amount);
+            return row.balance;
+        }
+    }
+
+    @Override
+    public BigDecimal debit(Connection connection, String accountNumber, String customerId, BigDecimal amount) {
+        Row row = accounts.get(accountNumber);
+        if (row == null || !row.customerId.equals(customerId)) {
+            return null;
+        }
+        synchronized (row) {
+            if (row.balance.compareTo(amount) < 0) {
+                return null;
+            }
+            row.balance = row.balance.subtract(amount);
+            return row.balance;
+        }
+    }
+
+    @Override
+    public BigDecimal addInterest(String accountNumber, BigDecimal amount) {
+        Row row = accounts.get(accountNumber);
+        if (row == null) {
+            return null;
+        }
+        synchronized (row) {
+            row.balance = row.balance.add(amount);
+            return row.balance;
+        }
+    }
+
+    private static final class Row {
+        private final String customerId;
+        private volatile BigDecimal balance;
+
+        private Row(String customerId, BigDecimal balance) {
+            this.customerId = customerId;
+            this.balance = balance;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.banking.repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Login storage in process memory, for running sign-up and sign-in without
+ * a database. Nothing survives a restart.
+ */
+public class InMemoryCredentialRepository implements CredentialRepository {
+    /** Name and stored password by username; entries are replaced, never changed in place. */
+    private final Map<String, String[]> credentials = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean insert(String username, String passwordHash, String name) {
+        return credentials.putIfAbsent(username, new String[] { name, passwordHash }) == null;
+    }
+
+    @Override
+    public String[] findCredentials(String username) {
+        String[] stored = credentials.get(username);
+        return stored != null ? stored.clone() : null;
+    }
+
+    @Override
+    public boolean replacePassword(String username, String expectedHash, String newHash) {
+        String[] current = credentials.get(username);
+        if (current == null || !current[1].equals(expectedHash)) {
+            return false;
+        }
+        // The entry is compared by identity, so a concurrent replacement makes this fail
+        return credentials.replace(username, current, new String[] { current[0], newHash });
+    }
+}
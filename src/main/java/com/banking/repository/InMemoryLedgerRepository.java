@@ -0,0 +1,107 @@
+package com.banking.repository;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.banking.model.Transaction;
+import com.banking.model.Transaction.TransactionDetails;
+import com.banking.model.Transaction.TransactionPage;
+
+/**
+ * Ledger storage in process memory, for running the ledger logic without a
+ * database. Entries are kept per customer; searches copy the customer's
+ * entries in the date range and sort them. Nothing survives a restart.
+ */
+public class InMemoryLedgerRepository implements LedgerRepository {
+    private static final Comparator<TransactionDetails> NEWEST_FIRST =
+            Comparator.comparing(TransactionDetails::getDate)
+                    .thenComparing(TransactionDetails::getTime)
+                    .thenComparing(details -> Long.valueOf(details.getTransactionNumber()))
+                    .reversed();
+
+    private final Map<String, List<TransactionDetails>> entriesByCustomer = new ConcurrentHashMap<>();
+
+    @Override
+    public void insert(Connection connection, Transaction transaction) {
+        TransactionDetails details = new TransactionDetails(transaction.getTransactionNumber(),
+                transaction.getTransactionType(), transaction.getAmount(), transaction.getTransactionTime(),
+                transaction.getTransactionDate(), transaction.getFromAccount(), transaction.getToAccount());
+        List<TransactionDetails> entries =
+                entriesByCustomer.computeIfAbsent(transaction.getCustomerId(), customerId -> new ArrayList<>());
+        synchronized (entries) {
+            entries.add(details);
+        }
+    }
+
+    @Override
+    public List<TransactionDetails> search(String customerId, String startDate, String endDate) {
+        return findRange(customerId, startDate, endDate);
+    }
+
+    @Override
+    public TransactionPage searchPage(String customerId, String startDate, String endDate, int pageSize,
+            String continuationToken) {
+        List<TransactionDetails> range = findRange(customerId, startDate, endDate);
+        Iterator<TransactionDetails> entries = range.iterator();
+
+        if (continuationToken != null && !continuationToken.isEmpty()) {
+            String[] position = ContinuationTokens.decode(continuationToken);
+            TransactionDetails last = new TransactionDetails(position[2], null, null, position[1], position[0],
+                    null, null);
+            // Skip up to and including the last entry of the previous page
+            int skip = 0;
+            while (skip < range.size() && NEWEST_FIRST.compare(range.get(skip), last) <= 0) {
+                skip++;
+            }
+            entries = range.subList(skip, range.size()).iterator();
+        }
+
+        List<TransactionDetails> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && entries.hasNext()) {
+            page.add(entries.next());
+        }
+        String nextToken = entries.hasNext() ? ContinuationTokens.encode(page.get(page.size() - 1)) : null;
+        return new TransactionPage(page, nextToken);
+    }
+
+    @Override
+    public int forEach(String customerId, String startDate, String endDate, Consumer<TransactionDetails> consumer) {
+        List<TransactionDetails> range = findRange(customerId, startDate, endDate);
+        range.forEach(consumer);
+        return range.size();
+    }
+
+    @Override
+    public String findHistoryVersion(String customerId, String startDate, String endDate) {
+        List<TransactionDetails> range = findRange(customerId, startDate, endDate);
+        // Newest first, and transaction numbers increase, so the first entry has the highest number
+        return range.isEmpty() ? "0" : range.size() + "-" + range.get(0).getTransactionNumber();
+    }
+
+    /**
+     * Copies a customer's entries within the date range, newest first.
+     * {@code yyyy-MM-dd} dates sort correctly as strings.
+     */
+    private List<TransactionDetails> findRange(String customerId, String startDate, String endDate) {
+        List<TransactionDetails> range = new ArrayList<>();
+        List<TransactionDetails> entries = entriesByCustomer.get(customerId);
+        if (entries == null) {
+            return range;
+        }
+        synchronized (entries) {
+            for (TransactionDetails details : entries) {
+                if (details.getDate().compareTo(startDate) >= 0 && details.getDate().compareTo(endDate) <= 0) {
+                    range.add(details);
+                }
+            }
+        }
+        range.sort(NEWEST_FIRST);
+        return range;
+    }
+}
@@ -0,0 +1,135 @@
+package com.banking.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.banking.model.AccountType;
+import com.banking.util.DatabaseUtil;
+
+/**
+ * Account storage in one of the SQL Server account tables. The statements
+ * are built once per table when the repository is created.
+ */
+public class JdbcAccountRepository implements AccountRepository {
+
+    /** The checking account table. */
+    public static final JdbcAccountRepository CHECKING = new JdbcAccountRepository(AccountType.CHECKING);
+    /** The savings account table. */
+    public static final JdbcAccountRepository SAVINGS = new JdbcAccountRepository(AccountType.SAVINGS);
+
+    /**
+     * Gets the repository for the table that holds an account type.
+     *
+     * @param type the account type
+     * @return the repository
+     */
+    public static JdbcAccountRepository forType(AccountType type) {
+        return type == AccountType.SAVINGS ? SAVINGS : CHECKING;
+    }
+
+    private final String findAccountSql;
+    private final String insertAccountSql;
+    private final String findByCustomerSql;
+    private final String balanceSql;
+    private final String customerBalanceSql;
+    private final String creditSql;
+    private final String debitSql;
+    private final String interestSql;
+
+    private JdbcAccountRepository(AccountType type) {
+        String table = type.getTable();
+        String numberColumn = type.getNumberColumn();
+        this.findAccountSql = "SELECT " + numberColumn + " FROM " + table + " WHERE " + numberColumn + " = ?";
+        this.insertAccountSql = "INSERT INTO " + table + "(" + numberColumn
+                + ", CustomerName, Balance, CustomerID) VALUES (?, ?, ?, ?)";
+        this.findByCustomerSql = "SELECT " + numberColumn + " FROM " + table + " WHERE CustomerID = ?";
+        this.balanceSql = "SELECT Balance FROM " + table + " WHERE " + numberColumn + " = ?";
+        this.customerBalanceSql = "SELECT Balance FROM " + table + " WHERE " + numberColumn
+                + " = ? AND CustomerID = ?";
+        this.creditSql = "UPDATE " + table + " SET Balance = Balance + ? OUTPUT INSERTED.Balance "
+                + "WHERE " + numberColumn + " = ? AND CustomerID = ?";
+        this.debitSql = "UPDATE " + table + " SET Balance = Balance - ? OUTPUT INSERTED.Balance "
+                + "WHERE " + numberColumn + " = ? AND CustomerID = ? AND Balance >= ?";
+        this.interestSql = "UPDATE " + table + " SET Balance = Balance + ? OUTPUT INSERTED.Balance WHERE "
+                + numberColumn + " = ?";
+    }
+
+    /**
+     * Gets the statement that inserts one account row, for callers that batch
+     * inserts themselves. Bind the account number, customer name, balance and
+     * customer ID.
+     *
+     * @return the insert statement
+     */
+    public String getInsertSql() {
+        return insertAccountSql;
+    }
+
+    @Override
+    public boolean insert(String accountNumber, String customerName, String customerId, BigDecimal balance)
+            throws SQLException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        Connection connection = null;
+
+        try {
+            connection = dbUtil.getConnection();
+            if (dbUtil.executeQuery(connection, findAccountSql, ResultSet::next, accountNumber)) {
+                return false;
+            }
+            dbUtil.executeUpdate(connection, insertAccountSql, accountNumber, customerName, balance, customerId);
+            return true;
+        } finally {
+            dbUtil.closeConnection(connection);
+        }
+    }
+
+    @Override
+    public String findAccountNumber(String customerId) throws SQLException {
+        return DatabaseUtil.getInstance().executeQuery(findByCustomerSql,
+                resultSet -> resultSet.next() ? resultSet.getString(1) : null, customerId);
+    }
+
+    @Override
+    public BigDecimal findBalance(String accountNumber) throws SQLException {
+        return DatabaseUtil.getInstance().executeQuery(balanceSql,
+                resultSet -> resultSet.next() ? resultSet.getBigDecimal(1) : null, accountNumber);
+    }
+
+    @Override
+    public boolean isOwnedBy(String accountNumber, String customerId) throws SQLException {
+        return DatabaseUtil.getInstance().executeQuery(customerBalanceSql, ResultSet::next, accountNumber, customerId);
+    }
+
+    @Override
+    public BigDecimal credit(Connection connection, String accountNumber, String customerId, BigDecimal amount)
+            throws SQLException {
+        return applyBalanceChange(connection, creditSql, amount, accountNumber, customerId);
+    }
+
+    @Override
+    public BigDecimal debit(Connection connection, String accountNumber, String customerId, BigDecimal amount)
+            throws SQLException {
+        return applyBalanceChange(connection, debitSql, amount, accountNumber, customerId, amount);
+    }
+
+    @Override
+    public BigDecimal addInterest(String accountNumber, BigDecimal amount) throws SQLException {
+        return applyBalanceChange(null, interestSql, amount, accountNumber);
+    }
+
+    /**
+     * Runs a balance-changing UPDATE that returns the new balance through an
+     * {@code OUTPUT INSERTED.Balance} clause, so the change and the read-back
+     * take a single round trip.
+     */
+    private static BigDecimal applyBalanceChange(Connection connection, String sql, Object... parameters)
+            throws SQLException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        DatabaseUtil.ResultSetProcessor<BigDecimal> newBalance =
+                resultSet -> resultSet.next() ? resultSet.getBigDecimal(1) : null;
+        return connection != null ? dbUtil.executeQuery(connection, sql, newBalance, parameters)
+                : dbUtil.executeQuery(sql, newBalance, parameters);
+    }
+}
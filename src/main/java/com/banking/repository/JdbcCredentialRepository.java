@@ -0,0 +1,47 @@
+package com.banking.repository;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.banking.util.DatabaseUtil;
+
+/**
+ * Login storage in the SQL Server {@code Account} table.
+ */
+public class JdbcCredentialRepository implements CredentialRepository {
+    private static final String FIND_USERNAME_SQL = "SELECT Username FROM Account WHERE Username = ?";
+    private static final String INSERT_ACCOUNT_SQL = "INSERT INTO Account(Username, Password, Name) VALUES (?, ?, ?)";
+    private static final String CREDENTIALS_SQL = "SELECT Name, Password FROM Account WHERE Username = ?";
+    private static final String UPDATE_PASSWORD_SQL =
+            "UPDATE Account SET Password = ? WHERE Username = ? AND Password = ?";
+
+    @Override
+    public boolean insert(String username, String passwordHash, String name) throws SQLException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        Connection connection = null;
+
+        try {
+            connection = dbUtil.getConnection();
+            if (dbUtil.executeQuery(connection, FIND_USERNAME_SQL, ResultSet::next, username)) {
+                return false;
+            }
+            dbUtil.executeUpdate(connection, INSERT_ACCOUNT_SQL, username, passwordHash, name);
+            return true;
+        } finally {
+            dbUtil.closeConnection(connection);
+        }
+    }
+
+    @Override
+    public String[] findCredentials(String username) throws SQLException {
+        return DatabaseUtil.getInstance().executeQuery(CREDENTIALS_SQL,
+                resultSet -> resultSet.next() ? new String[] { resultSet.getString(1), resultSet.getString(2) } : null,
+                username);
+    }
+
+    @Override
+    public boolean replacePassword(String username, String expectedHash, String newHash) throws SQLException {
+        return DatabaseUtil.getInstance().executeUpdate(UPDATE_PASSWORD_SQL, newHash, username, expectedHash) > 0;
+    }
+}
@@ -0,0 +1,174 @@
+package com.banking.repository;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.banking.model.Transaction;
+import com.banking.model.Transaction.TransactionDetails;
+import com.banking.model.Transaction.TransactionPage;
+import com.banking.util.DatabaseUtil;
+
+/**
+ * Ledger storage in the SQL Server {@code Transactions} table.
+ * History pages are located by keyset on (TransactionDate, TransactionTime,
+ * TransactionNumber), so each page costs an index seek plus the page itself
+ * no matter how deep into the history it is.
+ */
+public class JdbcLedgerRepository implements LedgerRepository {
+
+    /** Inserts one ledger row; bind {@link #getInsertParameters(Transaction)}. */
+    public static final String INSERT_SQL =
+            "INSERT INTO Transactions(TransactionNumber, TransactionType, TransactionAmount, TransactionTime, "
+            + "TransactionDate, FromAccount, ToAccount, CustomerID) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    /** The columns read by {@link #readDetails(ResultSet)}, in order. */
+    public static final String DETAIL_COLUMNS =
+            "TransactionNumber, TransactionType, TransactionAmount, TransactionTime, TransactionDate, "
+            + "FromAccount, ToAccount";
+    /** Newest-first history order. */
+    public static final String HISTORY_ORDER =
+            " ORDER BY TransactionDate DESC, TransactionTime DESC, TransactionNumber DESC";
+
+    private static final String SEARCH_TRANSACTIONS_SQL =
+            "SELECT " + DETAIL_COLUMNS + " FROM Transactions WHERE CustomerID = ? AND TransactionDate BETWEEN ? AND ? "
+            + "ORDER BY TransactionDate DESC, TransactionTime DESC";
+    private static final String STREAM_TRANSACTIONS_SQL =
+            "SELECT " + DETAIL_COLUMNS + " FROM Transactions WHERE CustomerID = ? AND TransactionDate BETWEEN ? AND ?"
+            + HISTORY_ORDER;
+    private static final String FIRST_PAGE_SQL =
+            "SELECT TOP (?) " + DETAIL_COLUMNS + " FROM Transactions "
+            + "WHERE CustomerID = ? AND TransactionDate BETWEEN ? AND ?" + HISTORY_ORDER;
+    private static final String NEXT_PAGE_SQL =
+            "SELECT TOP (?) " + DETAIL_COLUMNS + " FROM Transactions "
+            + "WHERE CustomerID = ? AND TransactionDate BETWEEN ? AND ? "
+            + "AND (TransactionDate < ? OR (TransactionDate = ? AND (TransactionTime < ? "
+            + "OR (TransactionTime = ? AND TransactionNumber < ?))))" + HISTORY_ORDER;
+    private static final String HISTORY_VERSION_SQL =
+            "SELECT COUNT_BIG(*), MAX(TransactionNumber) FROM Transactions "
+            + "WHERE CustomerID = ? AND TransactionDate BETWEEN ? AND ?";
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Gets the values to bind to {@link #INSERT_SQL} for a ledger entry.
+     *
+     * @param transaction an entry whose number, date and time are assigned
+     * @return the insert parameters, in placeholder order
+     */
+    public static Object[] getInsertParameters(Transaction transaction) {
+        return new Object[] { Long.valueOf(transaction.getTransactionNumber()), transaction.getTransactionType(),
+                transaction.getAmount(), Time.valueOf(transaction.getTransactionTime()),
+                Date.valueOf(transaction.getTransactionDate()), transaction.getFromAccount(),
+                transaction.getToAccount(), transaction.getCustomerId() };
+    }
+
+    /**
+     * Reads the entry at the current result set row. Columns must be
+     * selected in {@link #DETAIL_COLUMNS} order.
+     *
+     * @param resultSet a result set positioned on a row
+     * @return the entry
+     * @throws SQLException if a column cannot be read
+     */
+    public static TransactionDetails readDetails(ResultSet resultSet) throws SQLException {
+        return new TransactionDetails(
+            resultSet.getString(1),
+            resultSet.getString(2),
+            resultSet.getBigDecimal(3),
+            resultSet.getTime(4).toString(),
+            resultSet.getDate(5).toString(),
+            resultSet.getString(6),
+            resultSet.getString(7)
+        );
+    }
+
+    @Override
+    public void insert(Connection connection, Transaction transaction) throws SQLException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        if (connection != null) {
+            dbUtil.executeUpdate(connection, INSERT_SQL, getInsertParameters(transaction));
+        } else {
+            dbUtil.executeUpdate(INSERT_SQL, getInsertParameters(transaction));
+        }
+    }
+
+    @Override
+    public List<TransactionDetails> search(String customerId, String startDate, String endDate)
+            throws SQLException {
+        return DatabaseUtil.getInstance().executeQuery(SEARCH_TRANSACTIONS_SQL, resultSet -> {
+            List<TransactionDetails> transactions = new ArrayList<>();
+            while (resultSet.next()) {
+                transactions.add(readDetails(resultSet));
+            }
+            return transactions;
+        }, customerId, Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+
+    @Override
+    public TransactionPage searchPage(String customerId, String startDate, String endDate, int pageSize,
+            String continuationToken) throws SQLException {
+        String sql;
+        Object[] parameters;
+        if (continuationToken == null || continuationToken.isEmpty()) {
+            sql = FIRST_PAGE_SQL;
+            parameters = new Object[] { pageSize + 1, customerId, Date.valueOf(startDate), Date.valueOf(endDate) };
+        } else {
+            String[] position = ContinuationTokens.decode(continuationToken);
+            Date date = Date.valueOf(position[0]);
+            Time time = Time.valueOf(position[1]);
+            sql = NEXT_PAGE_SQL;
+            parameters = new Object[] { pageSize + 1, customerId, Date.valueOf(startDate), Date.valueOf(endDate),
+                    date, date, time, time, Long.valueOf(position[2]) };
+        }
+
+        List<TransactionDetails> transactions = new ArrayList<>(pageSize);
+        // One extra row tells us whether another page follows
+        boolean hasMore = DatabaseUtil.getInstance().executeQuery(sql, resultSet -> {
+            while (resultSet.next()) {
+                if (transactions.size() == pageSize) {
+                    return true;
+                }
+                transactions.add(readDetails(resultSet));
+            }
+            return false;
+        }, parameters);
+
+        String nextToken = hasMore ? ContinuationTokens.encode(transactions.get(transactions.size() - 1)) : null;
+        return new TransactionPage(transactions, nextToken);
+    }
+
+    @Override
+    public int forEach(String customerId, String startDate, String endDate, Consumer<TransactionDetails> consumer)
+            throws SQLException {
+        return DatabaseUtil.getInstance().executeStreamingQuery(STREAM_TRANSACTIONS_SQL, STREAM_FETCH_SIZE,
+                resultSet -> {
+                    int count = 0;
+                    while (resultSet.next()) {
+                        consumer.accept(readDetails(resultSet));
+                        count++;
+                    }
+                    return count;
+                }, customerId, Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The query is answered from the customer/date index without reading
+     * the rows themselves.
+     */
+    @Override
+    public String findHistoryVersion(String customerId, String startDate, String endDate) throws SQLException {
+        return DatabaseUtil.getInstance().executeQuery(HISTORY_VERSION_SQL, resultSet -> {
+            if (!resultSet.next()) {
+                return "0";
+            }
+            long count = resultSet.getLong(1);
+            return count == 0 ? "0" : count + "-" + resultSet.getLong(2);
+        }, customerId, Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+}
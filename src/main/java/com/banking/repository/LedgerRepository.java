@@ -0,0 +1,78 @@
+package com.banking.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.banking.model.Transaction;
+import com.banking.model.Transaction.TransactionDetails;
+import com.banking.model.Transaction.TransactionPage;
+
+/**
+ * Storage for ledger entries. Entries are only ever added, and histories are
+ * returned newest first: by date, then time, then transaction number.
+ * Dates are {@code yyyy-MM-dd} strings and ranges include both ends.
+ */
+public interface LedgerRepository {
+
+    /**
+     * Stores a ledger entry whose number, date and time are already assigned.
+     *
+     * @param connection the transaction to join, or null to store the entry on its own
+     * @param transaction the entry
+     * @throws SQLException if the entry cannot be stored
+     */
+    void insert(Connection connection, Transaction transaction) throws SQLException;
+
+    /**
+     * Finds every entry of a customer within a date range.
+     *
+     * @param customerId the customer ID
+     * @param startDate the first date
+     * @param endDate the last date
+     * @return the entries, newest first
+     * @throws SQLException if the search fails
+     */
+    List<TransactionDetails> search(String customerId, String startDate, String endDate) throws SQLException;
+
+    /**
+     * Finds one page of a customer's entries within a date range.
+     *
+     * @param customerId the customer ID
+     * @param startDate the first date
+     * @param endDate the last date
+     * @param pageSize the maximum number of entries
+     * @param continuationToken the token from the previous page, or null for the first page
+     * @return the page, with a token for the next one if more entries follow
+     * @throws SQLException if the search fails
+     * @throws IllegalArgumentException if the continuation token is invalid
+     */
+    TransactionPage searchPage(String customerId, String startDate, String endDate, int pageSize,
+            String continuationToken) throws SQLException;
+
+    /**
+     * Passes every entry of a customer within a date range to a consumer
+     * without collecting them first.
+     *
+     * @param customerId the customer ID
+     * @param startDate the first date
+     * @param endDate the last date
+     * @param consumer receives each entry, newest first
+     * @return the number of entries passed
+     * @throws SQLException if the search fails
+     */
+    int forEach(String customerId, String startDate, String endDate, Consumer<TransactionDetails> consumer)
+            throws SQLException;
+
+    /**
+     * Gets a value that changes whenever an entry is added to the range.
+     *
+     * @param customerId the customer ID
+     * @param startDate the first date
+     * @param endDate the last date
+     * @return the entry count and highest transaction number as {@code count-max}, or {@code 0}
+     * @throws SQLException if the lookup fails
+     */
+    String findHistoryVersion(String customerId, String startDate, String endDate) throws SQLException;
+}
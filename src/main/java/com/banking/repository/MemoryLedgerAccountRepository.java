@@ -0,0 +1,99 @@
+package com.banking.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+import com.banking.util.MemoryLedger;
+
+/**
+ * Sends accounts held by the {@link MemoryLedger} to the ledger engine and
+ * every other account to the wrapped repository.
+ * <p>
+ * Ledger accounts cannot join a database transaction or receive interest,
+ * so those operations report the account as not found.
+ */
+public class MemoryLedgerAccountRepository implements AccountRepository {
+    private static final Logger LOGGER = Logger.getLogger(MemoryLedgerAccountRepository.class.getName());
+
+    private final char kind;
+    private final AccountRepository delegate;
+
+    /**
+     * Creates a routing repository.
+     *
+     * @param kind {@link MemoryLedger#CHECKING} or {@link MemoryLedger#SAVINGS}
+     * @param delegate the repository for accounts outside the memory ledger
+     */
+    public MemoryLedgerAccountRepository(char kind, AccountRepository delegate) {
+        this.kind = kind;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean insert(String accountNumber, String customerName, String customerId, BigDecimal balance)
+            throws SQLException {
+        if (MemoryLedger.handles(accountNumber)) {
+            return MemoryLedger.getInstance().openAccount(kind, accountNumber, customerId, balance);
+        }
+        return delegate.insert(accountNumber, customerName, customerId, balance);
+    }
+
+    @Override
+    public String findAccountNumber(String customerId) throws SQLException {
+        String held = MemoryLedger.getInstance().findAccountNumber(kind, customerId);
+        return held != null ? held : delegate.findAccountNumber(customerId);
+    }
+
+    @Override
+    public BigDecimal findBalance(String accountNumber) throws SQLException {
+        if (MemoryLedger.handles(accountNumber)) {
+            return MemoryLedger.getInstance().getBalance(kind, accountNumber);
+        }
+        return delegate.findBalance(accountNumber);
+    }
+
+    @Override
+    public boolean isOwnedBy(String accountNumber, String customerId) throws SQLException {
+        if (MemoryLedger.handles(accountNumber)) {
+            return accountNumber.equals(MemoryLedger.getInstance().findAccountNumber(kind, customerId));
+        }
+        return delegate.isOwnedBy(accountNumber, customerId);
+    }
+
+    @Override
+    public BigDecimal credit(Connection connection, String accountNumber, String customerId, BigDecimal amount)
+            throws SQLException {
+        if (!MemoryLedger.handles(accountNumber)) {
+            return delegate.credit(connection, accountNumber, customerId, amount);
+        }
+        if (connection != null) {
+            LOGGER.warning("Transfers are not supported for memory ledger account: " + accountNumber);
+            return null;
+        }
+        return MemoryLedger.getInstance().credit(kind, accountNumber, customerId, amount);
+    }
+
+    @Override
+    public BigDecimal debit(Connection connection, String accountNumber, String customerId, BigDecimal amount)
+            throws SQLException {
+        if (!MemoryLedger.handles(accountNumber)) {
+            return delegate.debit(connection, accountNumber, customerId, amount);
+        }
+        if (connection != null) {
+            LOGGER.warning("Transfers are not supported for memory ledger account: " + accountNumber);
+            return null;
+        }
+        return MemoryLedger.getInstance().debit(kind, accountNumber, customerId, amount);
+    }
+
+    @Override
+    public BigDecimal addInterest(String accountNumber, BigDecimal amount) throws SQLException {
+        if (MemoryLedger.handles(accountNumber)) {
+            LOGGER.warning("Interest is not supported for memory ledger account: " + accountNumber);
+            return null;
+        }
+        return delegate.addInterest(accountNumber, amount);
+    }
+}
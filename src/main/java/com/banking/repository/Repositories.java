@@ -0,0 +1,132 @@
+package com.banking.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+import com.banking.model.AccountType;
+import com.banking.util.DatabaseUtil;
+import com.banking.util.MemoryLedger;
+
+/**
+ * The storage used by the model classes. The {@code banking.storage} system
+ * property selects it at start-up: {@code jdbc} (the default) for SQL
+ * Server, or {@code memory} to keep everything in process memory, for
+ * exercising the business logic without a database. Tests and benchmarks
+ * can install their own repositories with {@link #use}.
+ * <p>
+ * When the {@link MemoryLedger} is configured, account repositories send
+ * its accounts to it whichever storage is selected.
+ */
+public final class Repositories {
+    private static final Logger LOGGER = Logger.getLogger(Repositories.class.getName());
+
+    private static volatile AccountRepository checkingAccounts;
+    private static volatile AccountRepository savingsAccounts;
+    private static volatile LedgerRepository ledger;
+    private static volatile CredentialRepository credentials;
+    private static volatile boolean databaseBacked;
+
+    static {
+        String storage = System.getProperty("banking.storage", "jdbc");
+        if ("memory".equalsIgnoreCase(storage)) {
+            use(new InMemoryAccountRepository(), new InMemoryAccountRepository(), new InMemoryLedgerRepository(),
+                    new InMemoryCredentialRepository());
+        } else {
+            if (!"jdbc".equalsIgnoreCase(storage)) {
+                LOGGER.warning("Unknown banking.storage '" + storage + "'; using jdbc");
+            }
+            use(JdbcAccountRepository.CHECKING, JdbcAccountRepository.SAVINGS, new JdbcLedgerRepository(),
+                    new JdbcCredentialRepository());
+        }
+    }
+
+    private Repositories() {
+    }
+
+    /**
+     * Replaces the storage used from now on.
+     *
+     * @param checking storage for checking accounts
+     * @param savings storage for savings accounts
+     * @param ledgerRepository storage for ledger entries
+     * @param credentialRepository storage for user logins
+     */
+    public static void use(AccountRepository checking, AccountRepository savings, LedgerRepository ledgerRepository,
+            CredentialRepository credentialRepository) {
+        if (checking == null || savings == null || ledgerRepository == null || credentialRepository == null) {
+            throw new IllegalArgumentException("repositories must not be null");
+        }
+        boolean inDatabase = checking instanceof JdbcAccountRepository && savings instanceof JdbcAccountRepository
+                && ledgerRepository instanceof JdbcLedgerRepository;
+        if (MemoryLedger.isEnabled()) {
+            checking = new MemoryLedgerAccountRepository(AccountType.CHECKING.getLedgerKind(), checking);
+            savings = new MemoryLedgerAccountRepository(AccountType.SAVINGS.getLedgerKind(), savings);
+        }
+        checkingAccounts = checking;
+        savingsAccounts = savings;
+        ledger = ledgerRepository;
+        credentials = credentialRepository;
+        databaseBacked = inDatabase;
+    }
+
+    /**
+     * Checks whether accounts and ledger are both kept in the database, so
+     * that callers can use their single-round-trip queries instead of going
+     * through the repositories one call at a time.
+     *
+     * @return true if the JDBC account and ledger repositories are in use
+     */
+    public static boolean isDatabaseBacked() {
+        return databaseBacked;
+    }
+
+    /**
+     * Starts a transaction that balance changes and ledger entries can join.
+     * Accounts held by the {@link MemoryLedger} cannot join it.
+     *
+     * @return the transaction; its connection is null unless accounts and
+     *         ledger are both kept in the database
+     * @throws SQLException if a connection cannot be obtained
+     */
+    public static RepositoryTransaction beginTransaction() throws SQLException {
+        if (!databaseBacked) {
+            return new RepositoryTransaction(null);
+        }
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        Connection connection = dbUtil.getConnection();
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            dbUtil.closeConnection(connection);
+            throw e;
+        }
+        return new RepositoryTransaction(connection);
+    }
+
+    /**
+     * Gets the storage for an account type.
+     *
+     * @param type the account type
+     * @return the account repository
+     */
+    public static AccountRepository accounts(AccountType type) {
+        return type == AccountType.SAVINGS ? savingsAccounts : checkingAccounts;
+    }
+
+    public static AccountRepository checkingAccounts() {
+        return checkingAccounts;
+    }
+
+    public static AccountRepository savingsAccounts() {
+        return savingsAccounts;
+    }
+
+    public static LedgerRepository ledger() {
+        return ledger;
+    }
+
+    public static CredentialRepository credentials() {
+        return credentials;
+    }
+}
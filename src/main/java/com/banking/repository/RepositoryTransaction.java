@@ -0,0 +1,79 @@
+package com.banking.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.banking.util.DatabaseUtil;
+
+/**
+ * A unit of work spanning several repository calls, started with
+ * {@link Repositories#beginTransaction()}. Pass {@link #getConnection()} to
+ * each balance change and ledger insert so that they commit or roll back
+ * together. Closing the transaction rolls back anything not committed.
+ * <p>
+ * When the repositories in use do not keep data in the database the
+ * connection is null, each call applies on its own, and commit and rollback
+ * do nothing.
+ */
+public class RepositoryTransaction implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RepositoryTransaction.class.getName());
+
+    private final Connection connection;
+    private boolean committed;
+
+    RepositoryTransaction(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Gets the connection the repository calls should join.
+     *
+     * @return the connection, or null if the repositories do not use the database
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Commits the work done so far.
+     *
+     * @throws SQLException if the commit fails
+     */
+    public void commit() throws SQLException {
+        if (connection != null) {
+            connection.commit();
+        }
+        committed = true;
+    }
+
+    /**
+     * Rolls back the work done so far. Errors are logged, not thrown, so
+     * this can be called while handling another failure.
+     */
+    public void rollback() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error rolling back transaction", e);
+        }
+    }
+
+    /**
+     * Rolls back uncommitted work and returns the connection to the pool.
+     */
+    @Override
+    public void close() {
+        if (connection == null) {
+            return;
+        }
+        if (!committed) {
+            rollback();
+        }
+        DatabaseUtil.getInstance().closeConnection(connection);
+    }
+}
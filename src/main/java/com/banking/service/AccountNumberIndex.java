@@ -0,0 +1,306 @@
+package com.banking.service;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.banking.model.AccountType;
+import com.banking.repository.Repositories;
+import com.banking.util.BoundedCache;
+import com.banking.util.DatabaseUtil;
+import com.banking.util.MemoryLedger;
+
+/**
+ * In-memory index from customer ID to the customer's checking and savings
+ * account numbers. A miss loads both numbers in one round trip; opening an
+ * account on this node updates the index directly. Accounts opened on other
+ * nodes become visible once the entry expires. Accounts held by the
+ * {@link MemoryLedger} take precedence over database rows, as they do in the
+ * account repositories. Customers with no account at all are not cached.
+ * When the accounts are not kept in the database, a miss asks the account
+ * repositories instead.
+ * <p>
+ * The index is bounded by an approximate memory budget rather than an entry
+ * count. Configured with the {@code banking.accountIndex.maxBytes} (default
+ * 64 MB) and {@code banking.accountIndex.ttlMillis} (default 600000) system
+ * properties.
+ */
+public class AccountNumberIndex {
+    private static final Logger LOGGER = Logger.getLogger(AccountNumberIndex.class.getName());
+
+    private static final String FIND_BY_CUSTOMER_SQL =
+            "SELECT 'C', CheckingAccountNumber FROM CheckingAccount WHERE CustomerID = ? "
+            + "UNION ALL SELECT 'S', SavingAccountNumber FROM SavingAccount WHERE CustomerID = ?";
+    private static final String PRELOAD_SQL =
+            "SELECT TOP (?) COALESCE(c.CustomerID, s.CustomerID), c.CheckingAccountNumber, s.SavingAccountNumber "
+            + "FROM CheckingAccount c FULL OUTER JOIN SavingAccount s ON s.CustomerID = c.CustomerID";
+    private static final int PRELOAD_FETCH_SIZE = 1000;
+
+    // Approximate heap cost of one entry with compressed references: the
+    // LinkedHashMap node (40), its share of the table (8), the cache entry
+    // wrapper (24) and the AccountNumbers pair (24). Strings are added separately.
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int ASSUMED_ID_LENGTH = 10;
+
+    private final BoundedCache<String, AccountNumbers> index;
+    private final LongAdder loadedEntries = new LongAdder();
+    private final LongAdder loadedStringBytes = new LongAdder();
+
+    /**
+     * Creates an index.
+     *
+     * @param maxBytes the approximate memory budget
+     * @param ttlMillis how long an entry is served, or 0 for no expiry
+     */
+    public AccountNumberIndex(long maxBytes, long ttlMillis) {
+        long assumedEntryBytes = ENTRY_OVERHEAD_BYTES + 3L * stringBytes(ASSUMED_ID_LENGTH);
+        this.index = new BoundedCache<>((int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / assumedEntryBytes)),
+                ttlMillis);
+    }
+
+    /**
+     * Gets the shared index.
+     *
+     * @return the shared instance
+     */
+    public static AccountNumberIndex getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Gets a customer's account number of one type.
+     *
+     * @param type the account type
+     * @param customerId the customer ID
+     * @return the account number, or null if the customer has no account of that type
+     */
+    public String getAccountNumber(AccountType type, String customerId) {
+        return type == AccountType.SAVINGS ? getSavingsAccountNumber(customerId)
+                : getCheckingAccountNumber(customerId);
+    }
+
+    /**
+     * Gets the checking account number for a customer.
+     *
+     * @param customerId the customer ID
+     * @return the account number, or null if the customer has no checking account
+     */
+    public String getCheckingAccountNumber(String customerId) {
+        AccountNumbers numbers = lookup(customerId);
+        return numbers != null ? numbers.getCheckingAccountNumber() : null;
+    }
+
+    /**
+     * Gets the savings account number for a customer.
+     *
+     * @param customerId the customer ID
+     * @return the account number, or null if the customer has no savings account
+     */
+    public String getSavingsAccountNumber(String customerId) {
+        AccountNumbers numbers = lookup(customerId);
+        return numbers != null ? numbers.getSavingsAccountNumber() : null;
+    }
+
+    private AccountNumbers lookup(String customerId) {
+        if (customerId == null || customerId.isEmpty()) {
+            return null;
+        }
+        return index.get(customerId, this::load);
+    }
+
+    private AccountNumbers load(String customerId) {
+        try {
+            AccountNumbers numbers = Repositories.isDatabaseBacked() ? query(customerId)
+                    : new AccountNumbers(Repositories.checkingAccounts().findAccountNumber(customerId),
+                            Repositories.savingsAccounts().findAccountNumber(customerId));
+
+            if (numbers.getCheckingAccountNumber() == null && numbers.getSavingsAccountNumber() == null) {
+                return null;
+            }
+            recordLoad(customerId, numbers);
+            return numbers;
+
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error retrieving account numbers for customer", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads both account numbers in one round trip.
+     */
+    private AccountNumbers query(String customerId) throws SQLException {
+        AccountNumbers numbers = DatabaseUtil.getInstance().executeQuery(FIND_BY_CUSTOMER_SQL, resultSet -> {
+            String checking = null;
+            String savings = null;
+            while (resultSet.next()) {
+                if ("C".equals(resultSet.getString(1))) {
+                    checking = checking != null ? checking : resultSet.getString(2);
+                } else {
+                    savings = savings != null ? savings : resultSet.getString(2);
+                }
+            }
+            return new AccountNumbers(checking, savings);
+        }, customerId, customerId);
+
+        return withMemoryLedgerAccounts(customerId, numbers);
+    }
+
+    /**
+     * Records a newly opened account.
+     *
+     * @param type the account type
+     * @param customerId the customer ID
+     * @param accountNumber the new account number
+     */
+    public void accountOpened(AccountType type, String customerId, String accountNumber) {
+        if (type == AccountType.SAVINGS) {
+            savingsAccountOpened(customerId, accountNumber);
+        } else {
+            checkingAccountOpened(customerId, accountNumber);
+        }
+    }
+
+    /**
+     * Records a newly opened checking account.
+     *
+     * @param customerId the customer ID
+     * @param accountNumber the new account number
+     */
+    public void checkingAccountOpened(String customerId, String accountNumber) {
+        index.update(customerId, current -> current.getCheckingAccountNumber() != null ? current
+                : new AccountNumbers(accountNumber, current.getSavingsAccountNumber()));
+    }
+
+    /**
+     * Records a newly opened savings account.
+     *
+     * @param customerId the customer ID
+     * @param accountNumber the new account number
+     */
+    public void savingsAccountOpened(String customerId, String accountNumber) {
+        index.update(customerId, current -> current.getSavingsAccountNumber() != null ? current
+                : new AccountNumbers(current.getCheckingAccountNumber(), accountNumber));
+    }
+
+    /**
+     * Loads account numbers for up to the index capacity of customers,
+     * typically once at startup.
+     *
+     * @return the number of customers loaded, or 0 if the accounts are not kept in the database
+     * @throws SQLException if a database access error occurs
+     */
+    public int preload() throws SQLException {
+        if (!Repositories.isDatabaseBacked()) {
+            return 0;
+        }
+        long started = System.nanoTime();
+        int loaded = DatabaseUtil.getInstance().executeStreamingQuery(PRELOAD_SQL, PRELOAD_FETCH_SIZE, resultSet -> {
+            int count = 0;
+            while (resultSet.next()) {
+                String customerId = resultSet.getString(1);
+                AccountNumbers numbers = withMemoryLedgerAccounts(customerId,
+                        new AccountNumbers(resultSet.getString(2), resultSet.getString(3)));
+                index.put(customerId, numbers);
+                recordLoad(customerId, numbers);
+                count++;
+            }
+            return count;
+        }, index.getMaxSize());
+
+        LOGGER.info("Preloaded account numbers for " + loaded + " customers in "
+                + (System.nanoTime() - started) / 1000000 + "ms");
+        return loaded;
+    }
+
+    /**
+     * Replaces the database account numbers with any the memory ledger holds.
+     */
+    private static AccountNumbers withMemoryLedgerAccounts(String customerId, AccountNumbers numbers) {
+        if (!MemoryLedger.isEnabled()) {
+            return numbers;
+        }
+        MemoryLedger ledger = MemoryLedger.getInstance();
+        String checking = ledger.findAccountNumber(AccountType.CHECKING.getLedgerKind(), customerId);
+        String savings = ledger.findAccountNumber(AccountType.SAVINGS.getLedgerKind(), customerId);
+        if (checking == null && savings == null) {
+            return numbers;
+        }
+        return new AccountNumbers(checking != null ? checking : numbers.getCheckingAccountNumber(),
+                savings != null ? savings : numbers.getSavingsAccountNumber());
+    }
+
+    private void recordLoad(String customerId, AccountNumbers numbers) {
+        long bytes = stringBytes(customerId.length());
+        if (numbers.getCheckingAccountNumber() != null) {
+            bytes += stringBytes(numbers.getCheckingAccountNumber().length());
+        }
+        if (numbers.getSavingsAccountNumber() != null) {
+            bytes += stringBytes(numbers.getSavingsAccountNumber().length());
+        }
+        loadedEntries.increment();
+        loadedStringBytes.add(bytes);
+    }
+
+    /**
+     * Approximate heap cost of a String of the given length: the object (24)
+     * plus a char array of two bytes per character, 8-byte aligned.
+     */
+    private static long stringBytes(int length) {
+        return 24 + ((16 + 2L * length + 7) & ~7L);
+    }
+
+    /**
+     * Estimates the heap needed to index one million customers, based on the
+     * identifier lengths seen so far.
+     *
+     * @return the estimated footprint in bytes
+     */
+    public long getEstimatedBytesPerMillionCustomers() {
+        long entries = loadedEntries.sum();
+        long stringBytesPerEntry = entries > 0
+                ? loadedStringBytes.sum() / entries
+                : 3L * stringBytes(ASSUMED_ID_LENGTH);
+        return (ENTRY_OVERHEAD_BYTES + stringBytesPerEntry) * 1000000L;
+    }
+
+    public BoundedCache<String, AccountNumbers> getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return index + ", ~" + getEstimatedBytesPerMillionCustomers() / (1024 * 1024) + "MB per million customers";
+    }
+
+    /**
+     * The account numbers held by one customer. Either number may be null.
+     */
+    public static class AccountNumbers {
+        private final String checkingAccountNumber;
+        private final String savingsAccountNumber;
+
+        public AccountNumbers(String checkingAccountNumber, String savingsAccountNumber) {
+            this.checkingAccountNumber = checkingAccountNumber;
+            this.savingsAccountNumber = savingsAccountNumber;
+        }
+
+        public String getCheckingAccountNumber() {
+            return checkingAccountNumber;
+        }
+
+        public String getSavingsAccountNumber() {
+            return savingsAccountNumber;
+        }
+    }
+
+    /**
+     * Lazily creates the shared index from system properties.
+     */
+    private static class InstanceHolder {
+        private static final AccountNumberIndex INSTANCE = new AccountNumberIndex(
+                Long.getLong("banking.accountIndex.maxBytes", 64L * 1024 * 1024),
+                Long.getLong("banking.accountIndex.ttlMillis", 600000L));
+    }
+}
@@ -1,18 +1,35 @@
 package com.banking.service;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.banking.model.Account;
-import com.banking.model.CheckingAccount;
+import com.banking.model.AccountOverview;
+import com.banking.model.AccountType;
+import com.banking.model.BankAccount;
 import com.banking.model.SavingsAccount;
 import com.banking.model.Transaction;
+import com.banking.service.BulkAccountLoader.AccountSpec;
+import com.banking.service.BulkAccountLoader.LoadReport;
+import com.banking.service.BulkAccountLoader.RowFailure;
+import com.banking.util.ServiceExecutor;
+import com.banking.util.SessionTokens;
+import com.banking.util.SessionTokens.Session;
 
 /**
  * Service class for account operations.
+ * Read operations have {@code ...Async} counterparts that run on the shared
+ * {@link ServiceExecutor}; cancelling or timing out their futures cancels the
+ * underlying statements.
  */
 public class AccountService {
     private static final Logger LOGGER = Logger.getLogger(AccountService.class.getName());
+    private static final int DEFAULT_OVERVIEW_TRANSACTIONS = 10;
     
     /**
      * Creates a new user account.
@@ -40,6 +57,31 @@ public class AccountService {
         return account.signIn();
     }
     
+    /**
+     * Authenticates a user login and issues a signed session token.
+     * 
+     * @param username the username
+     * @param password the password
+     * @return the session token, or null if authentication failed
+     */
+    public String login(String username, String password) {
+        String name = authenticateUser(username, password);
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        return SessionTokens.getInstance().issue(username, name);
+    }
+    
+    /**
+     * Validates a session token in memory, without a database round trip.
+     * 
+     * @param token the session token
+     * @return the session, or null if the token is invalid or expired
+     */
+    public Session validateSession(String token) {
+        return SessionTokens.getInstance().validate(token);
+    }
+    
     /**
      * Changes a user's password.
      * 
@@ -54,28 +96,45 @@ public class AccountService {
     }
     
     /**
-     * Opens a new checking account.
+     * Opens a new account.
      * 
+     * @param type the account type
      * @param accountNumber the account number
      * @param customerName the customer name
      * @param customerId the customer ID
      * @param initialDeposit the initial deposit amount
      * @return true if the account was created successfully, false otherwise
      */
-    public boolean openCheckingAccount(String accountNumber, String customerName, String customerId, String initialDeposit) {
-        CheckingAccount account = new CheckingAccount(accountNumber, customerName, customerId, initialDeposit);
+    public boolean openAccount(AccountType type, String accountNumber, String customerName, String customerId,
+                               String initialDeposit) {
+        BankAccount account = type.newAccount(accountNumber, customerName, customerId, initialDeposit);
         boolean success = account.openAccount();
         
         if (success) {
+            AccountNumberIndex.getInstance().accountOpened(type, customerId, accountNumber);
+            
             // Record the transaction
             Transaction transaction = new Transaction(accountNumber, customerId, initialDeposit);
             transaction.setTransactionType("Opening Deposit");
-            transaction.recordTransaction();
+            LedgerWriter.record(transaction);
         }
         
         return success;
     }
     
+    /**
+     * Opens a new checking account.
+     * 
+     * @param accountNumber the account number
+     * @param customerName the customer name
+     * @param customerId the customer ID
+     * @param initialDeposit the initial deposit amount
+     * @return true if the account was created successfully, false otherwise
+     */
+    public boolean openCheckingAccount(String accountNumber, String customerName, String customerId, String initialDeposit) {
+        return openAccount(AccountType.CHECKING, accountNumber, customerName, customerId, initialDeposit);
+    }
+    
     /**
      * Opens a new savings account.
      * 
@@ -86,60 +145,224 @@ public class AccountService {
      * @return true if the account was created successfully, false otherwise
      */
     public boolean openSavingsAccount(String accountNumber, String customerName, String customerId, String initialDeposit) {
-        SavingsAccount account = new SavingsAccount(accountNumber, customerName, customerId, initialDeposit);
-        boolean success = account.openAccount();
-        
-        if (success) {
-            // Record the transaction
-            Transaction transaction = new Transaction(accountNumber, customerId, initialDeposit);
-            transaction.setTransactionType("Opening Deposit");
-            transaction.recordTransaction();
+        return openAccount(AccountType.SAVINGS, accountNumber, customerName, customerId, initialDeposit);
+    }
+    
+    /**
+     * Opens many accounts with batched inserts, reporting rows that cannot be
+     * opened without stopping the load. See {@link BulkAccountLoader}.
+     * 
+     * @param specs the accounts to open
+     * @param failures receives each row that was not opened
+     * @return the load report, or null if the load was interrupted
+     */
+    public LoadReport openAccounts(Iterator<AccountSpec> specs, Consumer<RowFailure> failures) {
+        try {
+            return new BulkAccountLoader().load(specs, failures);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error opening accounts in bulk", e);
+            return null;
         }
-        
-        return success;
+    }
+    
+    /**
+     * Gets the balance of an account.
+     * Balances are served from the shared {@link BalanceCache}.
+     * 
+     * @param type the account type
+     * @param accountNumber the account number
+     * @return the account balance
+     */
+    public BigDecimal getBalance(AccountType type, String accountNumber) {
+        return BalanceCache.getInstance().getBalance(type, accountNumber, false);
     }
     
     /**
      * Gets the balance of a checking account.
+     * Balances are served from the shared {@link BalanceCache}.
      * 
      * @param accountNumber the account number
      * @return the account balance
      */
     public BigDecimal getCheckingBalance(String accountNumber) {
-        CheckingAccount account = new CheckingAccount(accountNumber);
-        return account.getBalance();
+        return getCheckingBalance(accountNumber, false);
+    }
+    
+    /**
+     * Gets the balance of a checking account, optionally bypassing the balance cache.
+     * 
+     * @param accountNumber the account number
+     * @param strict true to read the balance from the database even if it is cached
+     * @return the account balance
+     */
+    public BigDecimal getCheckingBalance(String accountNumber, boolean strict) {
+        return BalanceCache.getInstance().getCheckingBalance(accountNumber, strict);
     }
     
     /**
      * Gets the balance of a savings account.
+     * Balances are served from the shared {@link BalanceCache}.
      * 
      * @param accountNumber the account number
      * @return the account balance
      */
     public BigDecimal getSavingsBalance(String accountNumber) {
+        return getSavingsBalance(accountNumber, false);
+    }
+    
+    /**
+     * Gets the balance of a savings account, optionally bypassing the balance cache.
+     * 
+     * @param accountNumber the account number
+     * @param strict true to read the balance from the database even if it is cached
+     * @return the account balance
+     */
+    public BigDecimal getSavingsBalance(String accountNumber, boolean strict) {
+        return BalanceCache.getInstance().getSavingsBalance(accountNumber, strict);
+    }
+    
+    /**
+     * Applies interest to a savings account.
+     * 
+     * @param accountNumber the account number
+     * @return true if interest was applied, false otherwise
+     */
+    public boolean applySavingsInterest(String accountNumber) {
         SavingsAccount account = new SavingsAccount(accountNumber);
-        return account.getBalance();
+        account.setInterestRate(SavingsAccount.getDefaultInterestRate());
+        boolean success = account.applyInterest();
+        
+        if (success) {
+            BalanceCache.getInstance().invalidateSavings(accountNumber);
+        }
+        
+        return success;
+    }
+    
+    /**
+     * Gets a customer's account number of one type.
+     * Account numbers are served from the shared {@link AccountNumberIndex}.
+     * 
+     * @param type the account type
+     * @param customerId the customer ID
+     * @return the account number
+     */
+    public String getAccountNumber(AccountType type, String customerId) {
+        return AccountNumberIndex.getInstance().getAccountNumber(type, customerId);
     }
     
     /**
      * Gets the checking account number for a customer.
+     * Account numbers are served from the shared {@link AccountNumberIndex}.
      * 
      * @param customerId the customer ID
      * @return the account number
      */
     public String getCheckingAccountNumber(String customerId) {
-        CheckingAccount account = new CheckingAccount();
-        return account.getAccountNumber(customerId);
+        return AccountNumberIndex.getInstance().getCheckingAccountNumber(customerId);
     }
     
     /**
      * Gets the savings account number for a customer.
+     * Account numbers are served from the shared {@link AccountNumberIndex}.
      * 
      * @param customerId the customer ID
      * @return the account number
      */
     public String getSavingsAccountNumber(String customerId) {
-        SavingsAccount account = new SavingsAccount();
-        return account.getAccountNumber(customerId);
+        return AccountNumberIndex.getInstance().getSavingsAccountNumber(customerId);
+    }
+    
+    /**
+     * Gets everything the overview page shows for a customer with one
+     * database round trip, including the ten most recent transactions.
+     * 
+     * @param customerId the customer ID
+     * @return the overview, or null if it could not be loaded
+     */
+    public AccountOverview getOverview(String customerId) {
+        return getOverview(customerId, DEFAULT_OVERVIEW_TRANSACTIONS);
+    }
+    
+    /**
+     * Gets everything the overview page shows for a customer with one
+     * database round trip.
+     * 
+     * @param customerId the customer ID
+     * @param recentCount the number of recent transactions to include
+     * @return the overview, or null if it could not be loaded
+     */
+    public AccountOverview getOverview(String customerId, int recentCount) {
+        if (customerId == null || customerId.isEmpty()) {
+            return null;
+        }
+        
+        try {
+            return AccountOverview.load(customerId, recentCount);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error loading account overview", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Authenticates a user login asynchronously.
+     * 
+     * @param username the username
+     * @param password the password
+     * @return a future completed with the user's name, or an empty string if authentication failed
+     */
+    public CompletableFuture<String> authenticateUserAsync(String username, String password) {
+        return ServiceExecutor.getInstance().submit(() -> authenticateUser(username, password));
+    }
+    
+    /**
+     * Gets the balance of a checking account asynchronously.
+     * 
+     * @param accountNumber the account number
+     * @return a future completed with the account balance
+     */
+    public CompletableFuture<BigDecimal> getCheckingBalanceAsync(String accountNumber) {
+        return ServiceExecutor.getInstance().submit(() -> getCheckingBalance(accountNumber));
+    }
+    
+    /**
+     * Gets the balance of a savings account asynchronously.
+     * 
+     * @param accountNumber the account number
+     * @return a future completed with the account balance
+     */
+    public CompletableFuture<BigDecimal> getSavingsBalanceAsync(String accountNumber) {
+        return ServiceExecutor.getInstance().submit(() -> getSavingsBalance(accountNumber));
+    }
+    
+    /**
+     * Gets the account overview for a customer asynchronously.
+     * 
+     * @param customerId the customer ID
+     * @return a future completed with the overview, or null if it could not be loaded
+     */
+    public CompletableFuture<AccountOverview> getOverviewAsync(String customerId) {
+        return ServiceExecutor.getInstance().submit(() -> getOverview(customerId));
+    }
+    
+    /**
+     * Gets the checking account number for a customer asynchronously.
+     * 
+     * @param customerId the customer ID
+     * @return a future completed with the account number
+     */
+    public CompletableFuture<String> getCheckingAccountNumberAsync(String customerId) {
+        return ServiceExecutor.getInstance().submit(() -> getCheckingAccountNumber(customerId));
+    }
+    
+    /**
+     * Gets the savings account number for a customer asynchronously.
+     * 
+     * @param customerId the customer ID
+     * @return a future completed with the account number
+     */
+    public CompletableFuture<String> getSavingsAccountNumberAsync(String customerId) {
+        return ServiceExecutor.getInstance().submit(() -> getSavingsAccountNumber(customerId));
     }
 }
@@ -0,0 +1,161 @@
+package com.banking.service;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.banking.model.AccountType;
+import com.banking.util.BoundedCache;
+
+/**
+ * Read-through cache of account balances, keyed by account number.
+ * Every balance-changing path in the service layer invalidates the affected
+ * accounts after its write commits, so a node never serves a balance older
+ * than its own last write. Writes made by other nodes become visible once
+ * the entry expires.
+ * <p>
+ * Configured with the {@code banking.balanceCache.maxSize} (default 100000)
+ * and {@code banking.balanceCache.ttlMillis} (default 5000) system
+ * properties. Setting {@code banking.balanceCache.strict} to {@code true}
+ * bypasses the cache for all reads.
+ */
+public class BalanceCache {
+    private static final Logger LOGGER = Logger.getLogger(BalanceCache.class.getName());
+
+    private final BoundedCache<String, BigDecimal> checkingBalances;
+    private final BoundedCache<String, BigDecimal> savingsBalances;
+    private final boolean strict;
+
+    /**
+     * Creates a balance cache.
+     *
+     * @param maxSize the maximum number of balances cached per account type
+     * @param ttlMillis how long a cached balance is served
+     * @param strict whether reads bypass the cache
+     */
+    public BalanceCache(int maxSize, long ttlMillis, boolean strict) {
+        this.checkingBalances = new BoundedCache<>(maxSize, ttlMillis);
+        this.savingsBalances = new BoundedCache<>(maxSize, ttlMillis);
+        this.strict = strict;
+    }
+
+    /**
+     * Gets the shared balance cache.
+     *
+     * @return the shared instance
+     */
+    public static BalanceCache getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Gets the balance of an account.
+     *
+     * @param type the account type
+     * @param accountNumber the account number
+     * @param strict whether to bypass the cache and read the database
+     * @return the account balance, or zero if the account is not found
+     */
+    public BigDecimal getBalance(AccountType type, String accountNumber, boolean strict) {
+        if (accountNumber == null || accountNumber.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        if (strict || this.strict) {
+            return type.newAccount(accountNumber).getBalance();
+        }
+        BigDecimal balance = balancesOf(type).get(accountNumber, number -> {
+            try {
+                return type.newAccount(number).findBalance(number);
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Error retrieving " + type.getName() + " account balance", e);
+                return null;
+            }
+        });
+        return balance != null ? balance : BigDecimal.ZERO;
+    }
+
+    /**
+     * Gets the balance of a checking account.
+     *
+     * @param accountNumber the account number
+     * @param strict whether to bypass the cache and read the database
+     * @return the account balance, or zero if the account is not found
+     */
+    public BigDecimal getCheckingBalance(String accountNumber, boolean strict) {
+        return getBalance(AccountType.CHECKING, accountNumber, strict);
+    }
+
+    /**
+     * Gets the balance of a savings account.
+     *
+     * @param accountNumber the account number
+     * @param strict whether to bypass the cache and read the database
+     * @return the account balance, or zero if the account is not found
+     */
+    public BigDecimal getSavingsBalance(String accountNumber, boolean strict) {
+        return getBalance(AccountType.SAVINGS, accountNumber, strict);
+    }
+
+    /**
+     * Drops the cached balance of an account after a write.
+     *
+     * @param type the account type
+     * @param accountNumber the account number
+     */
+    public void invalidate(AccountType type, String accountNumber) {
+        balancesOf(type).invalidate(accountNumber);
+    }
+
+    /**
+     * Drops the cached balance of a checking account after a write.
+     *
+     * @param accountNumber the account number
+     */
+    public void invalidateChecking(String accountNumber) {
+        invalidate(AccountType.CHECKING, accountNumber);
+    }
+
+    /**
+     * Drops the cached balance of a savings account after a write.
+     *
+     * @param accountNumber the account number
+     */
+    public void invalidateSavings(String accountNumber) {
+        invalidate(AccountType.SAVINGS, accountNumber);
+    }
+
+    private BoundedCache<String, BigDecimal> balancesOf(AccountType type) {
+        return type == AccountType.SAVINGS ? savingsBalances : checkingBalances;
+    }
+
+    /**
+     * Drops every cached savings balance, for bulk writes such as interest runs.
+     */
+    public void invalidateAllSavings() {
+        savingsBalances.invalidateAll();
+    }
+
+    public BoundedCache<String, BigDecimal> getCheckingBalances() {
+        return checkingBalances;
+    }
+
+    public BoundedCache<String, BigDecimal> getSavingsBalances() {
+        return savingsBalances;
+    }
+
+    @Override
+    public String toString() {
+        return "checking[" + checkingBalances + "], savings[" + savingsBalances + "]";
+    }
+
+    /**
+     * Lazily creates the shared cache from system properties.
+     */
+    private static class InstanceHolder {
+        private static final BalanceCache INSTANCE = new BalanceCache(
+                Integer.getInteger("banking.balanceCache.maxSize", 100000),
+                Long.getLong("banking.balanceCache.ttlMillis", 5000L),
+                Boolean.getBoolean("banking.balanceCache.strict"));
+    }
+}
@@ -0,0 +1,549 @@
+package com.banking.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.banking.model.AccountType;
+import com.banking.model.Transaction;
+import com.banking.repository.JdbcAccountRepository;
+import com.banking.repository.JdbcLedgerRepository;
+import com.banking.util.DatabaseUtil;
+import com.banking.util.MemoryLedger;
+import com.banking.util.PoolConfig;
+
+/**
+ * Opens accounts in bulk, for onboarding another bank's customers.
+ * Specs are read from an iterator and collected into chunks of one account
+ * type. Each chunk runs in one transaction on a worker thread: a single
+ * query finds which account numbers already exist and which customers are
+ * unknown, then the account rows and their opening-deposit ledger rows are
+ * inserted with JDBC batches and committed together.
+ * <p>
+ * A row that cannot be opened is reported to the failure consumer and the
+ * load carries on. If a chunk fails as a whole, for example on a constraint
+ * the check did not foresee, it is rolled back and its rows are retried one
+ * transaction each, so only the offending rows are reported.
+ * <p>
+ * At most two chunks per worker are held in memory, so the input can be
+ * far larger than the heap. Accounts held by the {@link MemoryLedger}
+ * cannot be loaded this way.
+ */
+public class BulkAccountLoader {
+    private static final Logger LOGGER = Logger.getLogger(BulkAccountLoader.class.getName());
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+    // The check binds two parameters per row and SQL Server allows 2100 per statement
+    private static final int MAX_CHUNK_SIZE = 1000;
+    private static final int MAX_ID_LENGTH = 50;
+    private static final int MAX_NAME_LENGTH = 100;
+
+    private final int chunkSize;
+    private final int parallelism;
+    private final Map<AccountType, String> checkSql = new EnumMap<>(AccountType.class);
+
+    /**
+     * Creates a loader with the default chunk size, using up to half of the
+     * connection pool.
+     */
+    public BulkAccountLoader() {
+        this(DEFAULT_CHUNK_SIZE, defaultParallelism());
+    }
+
+    /**
+     * Creates a loader.
+     *
+     * @param chunkSize the number of accounts per chunk transaction, at most 1000
+     * @param parallelism the number of chunks loaded at once; each holds a pooled connection
+     */
+    public BulkAccountLoader(int chunkSize, int parallelism) {
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE || parallelism < 1) {
+            throw new IllegalArgumentException("chunkSize must be 1 to " + MAX_CHUNK_SIZE
+                    + " and parallelism at least 1");
+        }
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+
+        // Every chunk binds chunkSize values, padded with nulls, so each type has one statement text
+        String placeholders = String.join(", ", Collections.nCopies(chunkSize, "?"));
+        for (AccountType type : AccountType.values()) {
+            String column = type.getNumberColumn();
+            // The range locks keep concurrent chunks and single openings from taking these numbers first
+            checkSql.put(type, "SELECT 'A', " + column + " FROM " + type.getTable() + " WITH (UPDLOCK, HOLDLOCK) "
+                    + "WHERE " + column + " IN (" + placeholders + ") "
+                    + "UNION ALL SELECT 'C', Username FROM Account WHERE Username IN (" + placeholders + ")");
+        }
+    }
+
+    private static int defaultParallelism() {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                PoolConfig.fromSystemProperties().getMaxSize() / 2));
+    }
+
+    /**
+     * Opens every account in the input.
+     *
+     * @param specs the accounts to open; read once, on the calling thread
+     * @param failures receives each row that was not opened; calls are made
+     *                 from worker threads but never concurrently
+     * @return the load report
+     * @throws SQLException if the load is interrupted
+     */
+    public LoadReport load(Iterator<AccountSpec> specs, Consumer<RowFailure> failures) throws SQLException {
+        long started = System.nanoTime();
+        FailureSink sink = new FailureSink(failures);
+        LongAdder opened = new LongAdder();
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-account-loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<AccountType, List<Row>> pending = new EnumMap<>(AccountType.class);
+        long rows = 0;
+        int chunks = 0;
+
+        try {
+            while (specs.hasNext()) {
+                AccountSpec spec = specs.next();
+                Row row = new Row(++rows, spec);
+                String invalid = validate(spec);
+                if (invalid != null) {
+                    sink.fail(row, invalid);
+                    continue;
+                }
+
+                List<Row> chunk = pending.computeIfAbsent(spec.getType(), type -> new ArrayList<>(chunkSize));
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    pending.remove(spec.getType());
+                    submitChunk(workers, inFlight, spec.getType(), chunk, opened, sink);
+                    chunks++;
+                }
+            }
+            for (Map.Entry<AccountType, List<Row>> chunk : pending.entrySet()) {
+                submitChunk(workers, inFlight, chunk.getKey(), chunk.getValue(), opened, sink);
+                chunks++;
+            }
+
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            LoadReport report = new LoadReport(rows, opened.sum(), sink.getCount(), chunks,
+                    (System.nanoTime() - started) / 1000000);
+            LOGGER.info("Bulk account load completed: " + report);
+            return report;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during bulk account load after " + rows + " rows", e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks the fields of a spec that can be checked without the database.
+     *
+     * @return the reason the row is rejected, or null if it is valid
+     */
+    private static String validate(AccountSpec spec) {
+        if (spec == null) {
+            return "row must have a type, account number, customer name, customer ID and initial deposit";
+        }
+        if (spec.getType() == null) {
+            return "account type must be checking or savings";
+        }
+        if (!hasLength(spec.getAccountNumber(), MAX_ID_LENGTH)) {
+            return "account number must be 1 to " + MAX_ID_LENGTH + " characters";
+        }
+        if (!hasLength(spec.getCustomerId(), MAX_ID_LENGTH)) {
+            return "customer ID must be 1 to " + MAX_ID_LENGTH + " characters";
+        }
+        if (!hasLength(spec.getCustomerName(), MAX_NAME_LENGTH)) {
+            return "customer name must be 1 to " + MAX_NAME_LENGTH + " characters";
+        }
+        BigDecimal deposit = spec.getInitialDeposit();
+        if (deposit == null || deposit.signum() < 0 || deposit.scale() > 4) {
+            return "initial deposit must be zero or positive with at most four decimal places";
+        }
+        if (MemoryLedger.handles(spec.getAccountNumber())) {
+            return "account is held by the memory ledger";
+        }
+        return null;
+    }
+
+    private static boolean hasLength(String value, int maxLength) {
+        return value != null && !value.isEmpty() && value.length() <= maxLength;
+    }
+
+    private void submitChunk(ExecutorService workers, Semaphore inFlight, AccountType type, List<Row> chunk,
+                             LongAdder opened, FailureSink sink) throws InterruptedException {
+        // Blocks the reader once every worker has a chunk queued behind it
+        inFlight.acquire();
+        workers.execute(() -> {
+            try {
+                List<Row> retry = loadChunk(type, chunk, opened, sink);
+                if (retry != null) {
+                    for (Row row : retry) {
+                        loadRow(type, row, opened, sink);
+                    }
+                }
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Opens the accounts of one chunk in one transaction.
+     *
+     * @return null if the chunk committed, otherwise the rows to retry one at a time
+     */
+    private List<Row> loadChunk(AccountType type, List<Row> chunk, LongAdder opened, FailureSink sink) {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        Connection connection = null;
+        PreparedStatement accounts = null;
+        PreparedStatement ledger = null;
+        List<Row> accepted = chunk;
+
+        try {
+            connection = dbUtil.getConnection();
+            connection.setAutoCommit(false);
+
+            Object[] parameters = new Object[chunkSize * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                parameters[i] = chunk.get(i).spec.getAccountNumber();
+                parameters[chunkSize + i] = chunk.get(i).spec.getCustomerId();
+            }
+            Set<String> existingAccounts = new HashSet<>();
+            Set<String> knownCustomers = new HashSet<>();
+            dbUtil.executeQuery(connection, checkSql.get(type), resultSet -> {
+                while (resultSet.next()) {
+                    ("A".equals(resultSet.getString(1)) ? existingAccounts : knownCustomers)
+                            .add(resultSet.getString(2));
+                }
+                return null;
+            }, parameters);
+
+            List<Row> valid = new ArrayList<>(chunk.size());
+            Set<String> seen = new HashSet<>();
+            for (Row row : chunk) {
+                String accountNumber = row.spec.getAccountNumber();
+                if (existingAccounts.contains(accountNumber)) {
+                    sink.fail(row, type.getDisplayName() + " account number already exists");
+                } else if (!seen.add(accountNumber)) {
+                    sink.fail(row, "account number appears earlier in the input");
+                } else if (!knownCustomers.contains(row.spec.getCustomerId())) {
+                    sink.fail(row, "unknown customer");
+                } else {
+                    valid.add(row);
+                }
+            }
+            accepted = valid;
+
+            if (!accepted.isEmpty()) {
+                accounts = connection.prepareStatement(JdbcAccountRepository.forType(type).getInsertSql());
+                ledger = connection.prepareStatement(JdbcLedgerRepository.INSERT_SQL);
+                for (Row row : accepted) {
+                    AccountSpec spec = row.spec;
+                    dbUtil.bindParameters(accounts, spec.getAccountNumber(), spec.getCustomerName(),
+                            spec.getInitialDeposit(), spec.getCustomerId());
+                    accounts.addBatch();
+                    dbUtil.bindParameters(ledger, JdbcLedgerRepository.getInsertParameters(openingDeposit(spec)));
+                    ledger.addBatch();
+                }
+                accounts.executeBatch();
+                ledger.executeBatch();
+            }
+            connection.commit();
+
+        } catch (SQLException e) {
+            rollbackQuietly(connection);
+            LOGGER.log(Level.WARNING, "Bulk load of " + chunk.size() + " " + type.getName()
+                    + " accounts failed; retrying them one at a time", e);
+            return accepted;
+        } finally {
+            dbUtil.closeResources(null, ledger, null);
+            dbUtil.closeResources(connection, accounts, null);
+        }
+
+        opened(type, accepted, opened);
+        return null;
+    }
+
+    /**
+     * Opens one account in its own transaction, after its chunk failed.
+     */
+    private void loadRow(AccountType type, Row row, LongAdder opened, FailureSink sink) {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        AccountSpec spec = row.spec;
+        Connection connection = null;
+
+        try {
+            connection = dbUtil.getConnection();
+            connection.setAutoCommit(false);
+            dbUtil.executeUpdate(connection, JdbcAccountRepository.forType(type).getInsertSql(),
+                    spec.getAccountNumber(), spec.getCustomerName(), spec.getInitialDeposit(), spec.getCustomerId());
+            dbUtil.executeUpdate(connection, JdbcLedgerRepository.INSERT_SQL,
+                    JdbcLedgerRepository.getInsertParameters(openingDeposit(spec)));
+            connection.commit();
+        } catch (SQLException e) {
+            rollbackQuietly(connection);
+            sink.fail(row, e.getMessage());
+            return;
+        } finally {
+            dbUtil.closeConnection(connection);
+        }
+
+        opened(type, Collections.singletonList(row), opened);
+    }
+
+    private static Transaction openingDeposit(AccountSpec spec) {
+        Transaction transaction = new Transaction(spec.getAccountNumber(), spec.getCustomerId(),
+                spec.getInitialDeposit().toPlainString());
+        transaction.setTransactionType("Opening Deposit");
+        transaction.prepareForRecording();
+        return transaction;
+    }
+
+    private static void opened(AccountType type, List<Row> rows, LongAdder opened) {
+        AccountNumberIndex index = AccountNumberIndex.getInstance();
+        for (Row row : rows) {
+            index.accountOpened(type, row.spec.getCustomerId(), row.spec.getAccountNumber());
+        }
+        opened.add(rows.size());
+    }
+
+    private void rollbackQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error rolling back bulk account chunk", e);
+        }
+    }
+
+    /**
+     * An account to open.
+     */
+    public static class AccountSpec {
+        private final AccountType type;
+        private final String accountNumber;
+        private final String customerName;
+        private final String customerId;
+        private final BigDecimal initialDeposit;
+
+        public AccountSpec(AccountType type, String accountNumber, String customerName, String customerId,
+                           BigDecimal initialDeposit) {
+            this.type = type;
+            this.accountNumber = accountNumber;
+            this.customerName = customerName;
+            this.customerId = customerId;
+            this.initialDeposit = initialDeposit;
+        }
+
+        public AccountType getType() {
+            return type;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public String getCustomerName() {
+            return customerName;
+        }
+
+        public String getCustomerId() {
+            return customerId;
+        }
+
+        public BigDecimal getInitialDeposit() {
+            return initialDeposit;
+        }
+    }
+
+    /**
+     * A row that was not opened, and why.
+     */
+    public static class RowFailure {
+        private final long rowNumber;
+        private final String accountNumber;
+        private final String reason;
+
+        public RowFailure(long rowNumber, String accountNumber, String reason) {
+            this.rowNumber = rowNumber;
+            this.accountNumber = accountNumber;
+            this.reason = reason;
+        }
+
+        /**
+         * Gets the position of the row in the input, starting at 1.
+         *
+         * @return the row number
+         */
+        public long getRowNumber() {
+            return rowNumber;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "row " + rowNumber + " (" + accountNumber + "): " + reason;
+        }
+    }
+
+    /**
+     * An input row and its position.
+     */
+    private static class Row {
+        private final long rowNumber;
+        private final AccountSpec spec;
+
+        Row(long rowNumber, AccountSpec spec) {
+            this.rowNumber = rowNumber;
+            this.spec = spec;
+        }
+    }
+
+    /**
+     * Serializes calls to the caller's failure consumer and counts them.
+     */
+    private static class FailureSink {
+        private final Consumer<RowFailure> consumer;
+        private long count;
+
+        FailureSink(Consumer<RowFailure> consumer) {
+            this.consumer = consumer;
+        }
+
+        synchronized void fail(Row row, String reason) {
+            count++;
+            consumer.accept(new RowFailure(row.rowNumber, row.spec != null ? row.spec.getAccountNumber() : null,
+                    reason));
+        }
+
+        synchronized long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Summary of one bulk load.
+     */
+    public static class LoadReport {
+        private final long rowsRead;
+        private final long accountsOpened;
+        private final long rowsFailed;
+        private final int chunks;
+        private final long elapsedMillis;
+
+        public LoadReport(long rowsRead, long accountsOpened, long rowsFailed, int chunks, long elapsedMillis) {
+            this.rowsRead = rowsRead;
+            this.accountsOpened = accountsOpened;
+            this.rowsFailed = rowsFailed;
+            this.chunks = chunks;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getAccountsOpened() {
+            return accountsOpened;
+        }
+
+        public long getRowsFailed() {
+            return rowsFailed;
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis > 0 ? rowsRead * 1000.0 / elapsedMillis : 0;
+        }
+
+        @Override
+        public String toString() {
+            return rowsRead + " rows in " + chunks + " chunks: " + accountsOpened + " opened, " + rowsFailed
+                    + " failed, " + elapsedMillis + "ms (" + String.format("%.0f", getRowsPerSecond()) + " rows/s)";
+        }
+    }
+
+    /**
+     * Loads accounts from a CSV file with the columns type, account number,
+     * customer name, customer ID and initial deposit, and no header. Rejected
+     * rows are written to standard output as CSV.
+     *
+     * @param args the input file
+     * @throws SQLException if the load is interrupted
+     * @throws IOException if the file cannot be read
+     */
+    public static void main(String[] args) throws SQLException, IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BulkAccountLoader <file>");
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            Iterator<AccountSpec> specs = reader.lines().map(BulkAccountLoader::parseLine).iterator();
+            LoadReport report = new BulkAccountLoader().load(specs, failure -> System.out.println(
+                    failure.getRowNumber() + "," + failure.getAccountNumber() + ",\""
+                            + String.valueOf(failure.getReason()).replace("\"", "\"\"") + "\""));
+            System.err.println(report);
+        }
+    }
+
+    private static AccountSpec parseLine(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 5) {
+            return null;
+        }
+        BigDecimal deposit;
+        try {
+            deposit = new BigDecimal(fields[4].trim());
+        } catch (NumberFormatException e) {
+            deposit = null;
+        }
+        return new AccountSpec(AccountType.fromName(fields[0].trim()), fields[1].trim(), fields[2].trim(),
+                fields[3].trim(), deposit);
+    }
+}
@@ -0,0 +1,349 @@
+package com.banking.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.banking.model.SavingsAccount;
+import com.banking.model.Transaction;
+import com.banking.repository.JdbcLedgerRepository;
+import com.banking.util.DatabaseUtil;
+import com.banking.util.PoolConfig;
+
+/**
+ * Credits interest to every savings account in one run.
+ * Accounts are split into chunks of consecutive account numbers while a
+ * single ordered key scan streams past, and each chunk is processed on a
+ * worker thread as soon as its range is known. A chunk locks its rows, computes
+ * interest, applies the balance updates and writes the matching ledger
+ * entries with JDBC batches, and commits once.
+ * <p>
+ * Each credited account is stamped with the run ID in the same transaction,
+ * so running the same run ID again resumes where an interrupted run stopped
+ * and never credits an account twice.
+ */
+public class InterestAccrualJob {
+    private static final Logger LOGGER = Logger.getLogger(InterestAccrualJob.class.getName());
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int KEY_SCAN_FETCH_SIZE = 5000;
+
+    private static final String FIND_RUN_SQL =
+            "SELECT InterestRate, CompletedAt FROM InterestRun WHERE RunId = ?";
+    private static final String INSERT_RUN_SQL =
+            "INSERT INTO InterestRun(RunId, InterestRate, StartedAt) VALUES (?, ?, CURRENT_TIMESTAMP)";
+    private static final String COMPLETE_RUN_SQL =
+            "UPDATE InterestRun SET CompletedAt = CURRENT_TIMESTAMP WHERE RunId = ?";
+    private static final String PENDING_KEYS_SQL =
+            "SELECT SavingAccountNumber FROM SavingAccount "
+            + "WHERE Balance > 0 AND (LastInterestRunId IS NULL OR LastInterestRunId <> ?) "
+            + "ORDER BY SavingAccountNumber";
+    private static final String LOCK_CHUNK_SQL =
+            "SELECT SavingAccountNumber, Balance, CustomerID FROM SavingAccount WITH (UPDLOCK, ROWLOCK) "
+            + "WHERE SavingAccountNumber > ? AND SavingAccountNumber <= ? AND Balance > 0 "
+            + "AND (LastInterestRunId IS NULL OR LastInterestRunId <> ?) ORDER BY SavingAccountNumber";
+    private static final String CREDIT_INTEREST_SQL =
+            "UPDATE SavingAccount SET Balance = Balance + ?, LastInterestRunId = ? WHERE SavingAccountNumber = ?";
+
+    private final BigDecimal interestRate;
+    private final int chunkSize;
+    private final int parallelism;
+
+    /**
+     * Creates a job with the default interest rate and chunk size, using up
+     * to half of the connection pool.
+     */
+    public InterestAccrualJob() {
+        this(SavingsAccount.getDefaultInterestRate(), DEFAULT_CHUNK_SIZE, defaultParallelism());
+    }
+
+    /**
+     * Creates a job.
+     *
+     * @param interestRate the rate applied to each balance
+     * @param chunkSize the number of accounts per chunk transaction
+     * @param parallelism the number of chunks processed at once; each holds a pooled connection
+     */
+    public InterestAccrualJob(BigDecimal interestRate, int chunkSize, int parallelism) {
+        if (interestRate == null || interestRate.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("interestRate must be positive");
+        }
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be at least 1");
+        }
+        this.interestRate = interestRate;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    private static int defaultParallelism() {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                PoolConfig.fromSystemProperties().getMaxSize() / 2));
+    }
+
+    /**
+     * Runs or resumes an interest run.
+     *
+     * @param runId identifies the accrual period, for example {@code 2024-06}
+     * @return the run report
+     * @throws SQLException if the run cannot be started or a chunk fails
+     */
+    public RunReport run(String runId) throws SQLException {
+        if (runId == null || runId.isEmpty()) {
+            throw new IllegalArgumentException("runId is required");
+        }
+        if (!startRun(runId)) {
+            LOGGER.info("Interest run " + runId + " has already completed");
+            return new RunReport(runId, 0, 0, BigDecimal.ZERO, 0);
+        }
+
+        long started = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "interest-accrual-" + runId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<ChunkResult>> chunks = new ArrayList<>();
+
+        try {
+            // Stream the pending keys once and hand each range to a worker as soon as it is known
+            DatabaseUtil.getInstance().executeStreamingQuery(PENDING_KEYS_SQL, KEY_SCAN_FETCH_SIZE, resultSet -> {
+                String low = "";
+                String high = null;
+                int inChunk = 0;
+                while (resultSet.next()) {
+                    high = resultSet.getString(1);
+                    if (++inChunk == chunkSize) {
+                        chunks.add(submitChunk(workers, runId, low, high));
+                        low = high;
+                        inChunk = 0;
+                    }
+                }
+                if (inChunk > 0) {
+                    chunks.add(submitChunk(workers, runId, low, high));
+                }
+                return null;
+            }, runId);
+
+            int accounts = 0;
+            BigDecimal totalInterest = BigDecimal.ZERO;
+            SQLException failure = null;
+            for (Future<ChunkResult> chunk : chunks) {
+                try {
+                    ChunkResult result = chunk.get();
+                    accounts += result.accounts;
+                    totalInterest = totalInterest.add(result.interest);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = new SQLException("Interest run " + runId + " did not complete", e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+
+            DatabaseUtil.getInstance().executeUpdate(COMPLETE_RUN_SQL, runId);
+            RunReport report = new RunReport(runId, accounts, chunks.size(), totalInterest,
+                    (System.nanoTime() - started) / 1000000);
+            LOGGER.info("Interest run completed: " + report);
+            return report;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during interest run " + runId, e);
+        } finally {
+            workers.shutdownNow();
+            BalanceCache.getInstance().invalidateAllSavings();
+        }
+    }
+
+    /**
+     * Registers the run, or checks that a resumed run uses the same rate.
+     *
+     * @return false if the run has already completed
+     */
+    private boolean startRun(String runId) throws SQLException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        Object[] existing = dbUtil.executeQuery(FIND_RUN_SQL,
+                resultSet -> resultSet.next()
+                        ? new Object[] { resultSet.getBigDecimal(1), resultSet.getTimestamp(2) }
+                        : null, runId);
+
+        if (existing == null) {
+            dbUtil.executeUpdate(INSERT_RUN_SQL, runId, interestRate);
+            return true;
+        }
+        if (((BigDecimal) existing[0]).compareTo(interestRate) != 0) {
+            throw new IllegalStateException("Interest run " + runId + " was started with rate " + existing[0]);
+        }
+        if (existing[1] == null) {
+            LOGGER.info("Resuming interest run " + runId);
+        }
+        return existing[1] == null;
+    }
+
+    private Future<ChunkResult> submitChunk(ExecutorService workers, String runId, String low, String high) {
+        return workers.submit(() -> processChunk(runId, low, high));
+    }
+
+    /**
+     * Credits interest to the pending accounts in one key range, in one transaction.
+     */
+    private ChunkResult processChunk(String runId, String lowExclusive, String highInclusive) throws SQLException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        Connection connection = null;
+        PreparedStatement credit = null;
+        PreparedStatement ledger = null;
+
+        try {
+            connection = dbUtil.getConnection();
+            connection.setAutoCommit(false);
+
+            List<Object[]> accounts = dbUtil.executeQuery(connection, LOCK_CHUNK_SQL, resultSet -> {
+                List<Object[]> rows = new ArrayList<>(chunkSize);
+                while (resultSet.next()) {
+                    rows.add(new Object[] { resultSet.getString(1), resultSet.getBigDecimal(2), resultSet.getString(3) });
+                }
+                return rows;
+            }, lowExclusive, highInclusive, runId);
+
+            credit = connection.prepareStatement(CREDIT_INTEREST_SQL);
+            ledger = connection.prepareStatement(JdbcLedgerRepository.INSERT_SQL);
+            BigDecimal chunkInterest = BigDecimal.ZERO;
+
+            for (Object[] account : accounts) {
+                String accountNumber = (String) account[0];
+                BigDecimal interest = ((BigDecimal) account[1]).multiply(interestRate)
+                        .setScale(2, RoundingMode.HALF_EVEN);
+
+                // Stamp accounts whose interest rounds to zero too, so a resumed run skips them
+                dbUtil.bindParameters(credit, interest, runId, accountNumber);
+                credit.addBatch();
+
+                if (interest.signum() > 0) {
+                    Transaction transaction = new Transaction(accountNumber, null, (String) account[2],
+                            interest.toPlainString(), "Interest");
+                    transaction.prepareForRecording();
+                    dbUtil.bindParameters(ledger, JdbcLedgerRepository.getInsertParameters(transaction));
+                    ledger.addBatch();
+                    chunkInterest = chunkInterest.add(interest);
+                }
+            }
+
+            if (!accounts.isEmpty()) {
+                credit.executeBatch();
+                ledger.executeBatch();
+            }
+            connection.commit();
+            return new ChunkResult(accounts.size(), chunkInterest);
+
+        } catch (SQLException e) {
+            rollbackQuietly(connection);
+            LOGGER.log(Level.SEVERE, "Interest chunk (" + lowExclusive + ", " + highInclusive + "] failed", e);
+            throw e;
+        } finally {
+            dbUtil.closeResources(null, ledger, null);
+            dbUtil.closeResources(connection, credit, null);
+        }
+    }
+
+    private void rollbackQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error rolling back interest chunk", e);
+        }
+    }
+
+    /**
+     * The accounts credited by one chunk.
+     */
+    private static class ChunkResult {
+        private final int accounts;
+        private final BigDecimal interest;
+
+        ChunkResult(int accounts, BigDecimal interest) {
+            this.accounts = accounts;
+            this.interest = interest;
+        }
+    }
+
+    /**
+     * Summary of one interest run.
+     */
+    public static class RunReport {
+        private final String runId;
+        private final int accountsCredited;
+        private final int chunks;
+        private final BigDecimal totalInterest;
+        private final long elapsedMillis;
+
+        public RunReport(String runId, int accountsCredited, int chunks, BigDecimal totalInterest,
+                         long elapsedMillis) {
+            this.runId = runId;
+            this.accountsCredited = accountsCredited;
+            this.chunks = chunks;
+            this.totalInterest = totalInterest;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        public int getAccountsCredited() {
+            return accountsCredited;
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+
+        public BigDecimal getTotalInterest() {
+            return totalInterest;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getAccountsPerSecond() {
+            return elapsedMillis > 0 ? accountsCredited * 1000.0 / elapsedMillis : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "run " + runId + ": " + accountsCredited + " accounts in " + chunks + " chunks, interest "
+                    + totalInterest.toPlainString() + ", " + elapsedMillis + "ms ("
+                    + String.format("%.0f", getAccountsPerSecond()) + " accounts/s)";
+        }
+    }
+
+    /**
+     * Runs or resumes an interest run from the command line.
+     *
+     * @param args the run ID, optionally followed by the interest rate
+     * @throws SQLException if the run fails
+     */
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 1) {
+            System.err.println("Usage: InterestAccrualJob <runId> [rate]");
+            return;
+        }
+        BigDecimal rate = args.length > 1 ? new BigDecimal(args[1]) : SavingsAccount.getDefaultInterestRate();
+        System.out.println(new InterestAccrualJob(rate, DEFAULT_CHUNK_SIZE, defaultParallelism()).run(args[0]));
+    }
+}
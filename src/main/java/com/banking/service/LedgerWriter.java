@@ -0,0 +1,451 @@
+package com.banking.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.banking.model.Transaction;
+import com.banking.repository.JdbcLedgerRepository;
+import com.banking.repository.Repositories;
+import com.banking.util.DatabaseUtil;
+
+/**
+ * Write-behind writer for the transaction ledger.
+ * Callers enqueue transactions into a bounded buffer. A single writer thread
+ * inserts them with JDBC batches, flushing when a batch is full or when the
+ * oldest queued entry has waited for the flush interval. The future returned
+ * by {@link #submit(Transaction)} completes only after the row is committed.
+ * <p>
+ * The writer is opt-in: set the {@code banking.ledger.async} system property
+ * to {@code true} to route deposit, withdrawal and opening-deposit ledger
+ * entries through it. Those callers still wait for the row to commit, for up
+ * to {@code banking.ledger.ackTimeoutMillis} (default 5000); an entry that
+ * fails or is not picked up in time is written synchronously instead.
+ * <p>
+ * By the time an entry is recorded here its balance change has committed, so
+ * an entry that cannot be written is never reported as a failed operation.
+ * It is queued for repair instead and retried every
+ * {@code banking.ledger.repairIntervalMillis} (default 10000) until it is
+ * written. Entries still queued at shutdown are logged in full.
+ */
+public class LedgerWriter implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(LedgerWriter.class.getName());
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 20;
+    private static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000;
+    private static final long ACK_TIMEOUT_MILLIS = Long.getLong("banking.ledger.ackTimeoutMillis", 5000L);
+    private static final long REPAIR_INTERVAL_MILLIS = Long.getLong("banking.ledger.repairIntervalMillis", 10000L);
+    private static final int SQL_SERVER_DUPLICATE_KEY_ERROR = 2627;
+
+    private final ArrayBlockingQueue<PendingEntry> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final Thread writerThread;
+
+    private volatile boolean accepting = true;
+
+    /**
+     * Creates a ledger writer with default settings and starts its writer thread.
+     */
+    public LedgerWriter() {
+        this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_OFFER_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a ledger writer and starts its writer thread.
+     *
+     * @param capacity the maximum number of queued entries
+     * @param batchSize the maximum number of rows per batch
+     * @param flushIntervalMillis the longest an entry waits for its batch to fill
+     * @param offerTimeoutMillis how long {@link #submit(Transaction)} blocks when the buffer is full
+     */
+    public LedgerWriter(int capacity, int batchSize, long flushIntervalMillis, long offerTimeoutMillis) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("capacity and batchSize must be at least 1");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.writerThread = new Thread(this::run, "ledger-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Gets the shared ledger writer if asynchronous ledger writes are enabled.
+     * The writer batches straight into the {@code Transactions} table, so it
+     * is only used while the ledger is kept in the database.
+     *
+     * @return the shared writer, or null if {@code banking.ledger.async} is not set
+     *         or the repositories do not use the database
+     */
+    public static LedgerWriter getSharedInstance() {
+        return Boolean.getBoolean("banking.ledger.async") && Repositories.isDatabaseBacked()
+                ? SharedInstanceHolder.INSTANCE : null;
+    }
+
+    /**
+     * Records the ledger entry of a balance change that has already
+     * committed, and waits until its row is committed. The entry goes through
+     * the shared writer when asynchronous ledger writes are enabled, and is
+     * written synchronously otherwise, when the writer pushes back, when its
+     * batch fails, or when the writer has not picked it up within the
+     * acknowledgement timeout. An entry that still cannot be written is
+     * queued for repair.
+     *
+     * @param transaction the transaction to record
+     */
+    static void record(Transaction transaction) {
+        LedgerWriter writer = getSharedInstance();
+        boolean written = false;
+        if (writer != null) {
+            try {
+                written = writer.await(writer.enqueue(transaction), ACK_TIMEOUT_MILLIS);
+            } catch (RejectedExecutionException e) {
+                LOGGER.info("Ledger writer rejected entry, recording synchronously: " + e.getMessage());
+                written = recordSynchronously(transaction);
+            }
+        } else {
+            written = recordSynchronously(transaction);
+        }
+        if (!written) {
+            RepairQueue.INSTANCE.add(transaction);
+        }
+    }
+
+    /**
+     * Queues a transaction for insertion. The transaction number is assigned
+     * immediately. When the buffer is full the caller is held back for up to
+     * the offer timeout before the entry is rejected.
+     *
+     * @param transaction the transaction to record
+     * @return a future completed with the transaction number once the row is committed
+     * @throws RejectedExecutionException if the writer is closed or the buffer stays full
+     */
+    public CompletableFuture<String> submit(Transaction transaction) {
+        return enqueue(transaction).future;
+    }
+
+    private PendingEntry enqueue(Transaction transaction) {
+        if (!accepting) {
+            throw new RejectedExecutionException("Ledger writer is closed");
+        }
+
+        transaction.prepareForRecording();
+        PendingEntry entry = new PendingEntry(transaction);
+
+        try {
+            if (!queue.offer(entry, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Ledger write buffer is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while queuing ledger entry", e);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Waits for a queued entry's row to commit. If the writer has not taken
+     * the entry by the timeout, the entry is withdrawn from the queue and
+     * written on this thread; an entry already in a batch is waited for to
+     * the end, since writing it here too could record it twice. An entry
+     * whose batch and single-row retry both failed is tried once more here.
+     */
+    private boolean await(PendingEntry entry, long timeoutMillis) {
+        try {
+            entry.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (entry.claim()) {
+                LOGGER.warning("Ledger writer did not take transaction "
+                        + entry.transaction.getTransactionNumber() + " in time; recording synchronously");
+                return recordSynchronously(entry.transaction);
+            }
+            try {
+                entry.future.join();
+                return true;
+            } catch (CompletionException | CancellationException failure) {
+                return recordSynchronously(entry.transaction);
+            }
+        } catch (ExecutionException e) {
+            return recordSynchronously(entry.transaction);
+        }
+    }
+
+    private static boolean recordSynchronously(Transaction transaction) {
+        try {
+            transaction.recordTransaction(null);
+            return true;
+        } catch (SQLException e) {
+            if (isDuplicateKey(e)) {
+                // An earlier attempt committed although it reported an error
+                return true;
+            }
+            LOGGER.log(Level.SEVERE, "Error recording transaction " + transaction.getTransactionNumber(), e);
+            return false;
+        }
+    }
+
+    private static boolean isDuplicateKey(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (current.getErrorCode() == SQL_SERVER_DUPLICATE_KEY_ERROR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of entries waiting to be written.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting entries, writes everything already queued and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        accepting = false;
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            LOGGER.warning("Ledger writer did not drain within " + SHUTDOWN_TIMEOUT_MILLIS + "ms; "
+                    + queue.size() + " entries left unwritten");
+            return;
+        }
+
+        // Entries that raced with close() after the writer thread exited
+        List<PendingEntry> stranded = new ArrayList<>();
+        queue.drainTo(stranded);
+        stranded.removeIf(entry -> !entry.claim());
+        failAll(stranded, new RejectedExecutionException("Ledger writer is closed"));
+    }
+
+    private void run() {
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+
+        while (accepting || !queue.isEmpty()) {
+            try {
+                PendingEntry first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Fill the batch until it is full or the first entry has waited long enough
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !accepting) {
+                        break;
+                    }
+                    PendingEntry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Keep draining; close() stops the loop by clearing the accepting flag
+                LOGGER.info("Ledger writer interrupted; continuing until drained");
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Unexpected error in ledger writer", e);
+                failAll(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts a batch in one transaction. If the batch fails, each row is
+     * retried on its own so that one bad row does not fail its neighbours.
+     */
+    private void flush(List<PendingEntry> batch) {
+        // Entries whose callers stopped waiting have been written by them
+        batch.removeIf(entry -> !entry.claim());
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        Connection connection = null;
+        PreparedStatement statement = null;
+
+        try {
+            connection = dbUtil.getConnection();
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(JdbcLedgerRepository.INSERT_SQL);
+
+            for (PendingEntry entry : batch) {
+                dbUtil.bindParameters(statement, JdbcLedgerRepository.getInsertParameters(entry.transaction));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+
+            for (PendingEntry entry : batch) {
+                entry.future.complete(entry.transaction.getTransactionNumber());
+            }
+            return;
+
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Ledger batch of " + batch.size() + " failed; retrying rows individually", e);
+            rollbackQuietly(connection);
+        } finally {
+            dbUtil.closeResources(connection, statement, null);
+        }
+
+        for (PendingEntry entry : batch) {
+            try {
+                dbUtil.executeUpdate(JdbcLedgerRepository.INSERT_SQL,
+                        JdbcLedgerRepository.getInsertParameters(entry.transaction));
+                entry.future.complete(entry.transaction.getTransactionNumber());
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Error recording transaction "
+                        + entry.transaction.getTransactionNumber(), e);
+                entry.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void failAll(List<PendingEntry> batch, Throwable cause) {
+        for (PendingEntry entry : batch) {
+            entry.future.completeExceptionally(cause);
+        }
+    }
+
+    private void rollbackQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error rolling back ledger batch", e);
+        }
+    }
+
+    /**
+     * A queued transaction and the future acknowledging its commit. Either
+     * the writer thread or a caller that gave up waiting claims the entry,
+     * and only the claimant writes it.
+     */
+    private static class PendingEntry {
+        private final Transaction transaction;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        PendingEntry(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Ledger entries whose balance change committed but whose row could not
+     * be written. A daemon thread retries them in order; a failure stops the
+     * round, since the next entry would most likely fail the same way.
+     * Until an entry is written only a full reconciliation run reports its
+     * account, because incremental runs follow the ledger rows.
+     */
+    private static class RepairQueue {
+        private static final RepairQueue INSTANCE = new RepairQueue();
+
+        private final ConcurrentLinkedQueue<Transaction> pending = new ConcurrentLinkedQueue<>();
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-repair");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        RepairQueue() {
+            scheduler.scheduleWithFixedDelay(this::retry, REPAIR_INTERVAL_MILLIS, REPAIR_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::reportUnwritten, "ledger-repair-shutdown"));
+        }
+
+        void add(Transaction transaction) {
+            pending.add(transaction);
+            LOGGER.severe("Ledger entry " + describe(transaction) + " queued for repair; until it is written "
+                    + "only a full reconciliation run reports the difference");
+        }
+
+        private void retry() {
+            Transaction transaction;
+            while ((transaction = pending.peek()) != null) {
+                if (!recordSynchronously(transaction)) {
+                    return;
+                }
+                pending.poll();
+                LOGGER.info("Repaired ledger entry " + transaction.getTransactionNumber());
+            }
+        }
+
+        private void reportUnwritten() {
+            for (Transaction transaction : pending) {
+                LOGGER.severe("Ledger entry never written: " + describe(transaction));
+            }
+        }
+
+        private static String describe(Transaction transaction) {
+            return transaction.getTransactionNumber() + " (" + transaction.getTransactionType() + " of "
+                    + transaction.getAmount().toPlainString() + ", from " + transaction.getFromAccount() + " to "
+                    + transaction.getToAccount() + ", customer " + transaction.getCustomerId() + ", "
+                    + transaction.getTransactionDate() + " " + transaction.getTransactionTime() + ")";
+        }
+    }
+
+    /**
+     * Lazily creates the shared writer and drains it when the JVM shuts down.
+     */
+    private static class SharedInstanceHolder {
+        private static final LedgerWriter INSTANCE = createSharedInstance();
+
+        private static LedgerWriter createSharedInstance() {
+            LedgerWriter writer = new LedgerWriter();
+            Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "ledger-writer-shutdown"));
+            return writer;
+        }
+    }
+}
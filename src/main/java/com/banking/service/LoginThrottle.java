@@ -0,0 +1,110 @@
+package com.banking.service;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.banking.util.RateLimiter;
+
+/**
+ * Throttles login attempts per username and per client address before they
+ * reach the database. Each dimension has its own {@link RateLimiter}, so a
+ * credential-stuffing burst against many usernames from one address and a
+ * distributed attack on one username are both cut off.
+ * <p>
+ * Configured with the {@code banking.loginThrottle.slots} (default 262144
+ * per limiter), {@code banking.loginThrottle.userBurst} (default 5),
+ * {@code banking.loginThrottle.userPerMinute} (default 5),
+ * {@code banking.loginThrottle.addressBurst} (default 30) and
+ * {@code banking.loginThrottle.addressPerMinute} (default 30) system
+ * properties.
+ */
+public class LoginThrottle {
+    private final RateLimiter byUsername;
+    private final RateLimiter byAddress;
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder throttledByUsername = new LongAdder();
+    private final LongAdder throttledByAddress = new LongAdder();
+
+    /**
+     * Creates a login throttle.
+     *
+     * @param byUsername the limiter keyed by username
+     * @param byAddress the limiter keyed by client address
+     */
+    public LoginThrottle(RateLimiter byUsername, RateLimiter byAddress) {
+        this.byUsername = byUsername;
+        this.byAddress = byAddress;
+    }
+
+    /**
+     * Gets the shared login throttle.
+     *
+     * @return the shared instance
+     */
+    public static LoginThrottle getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Records a login attempt and decides whether it may proceed.
+     *
+     * @param username the username being tried
+     * @param clientAddress the client address, or null if unknown
+     * @return true if the attempt may proceed, false if it should be rejected
+     */
+    public boolean tryAcquire(String username, String clientAddress) {
+        if (clientAddress != null && !byAddress.tryAcquire(clientAddress)) {
+            throttledByAddress.increment();
+            return false;
+        }
+        if (username != null && !byUsername.tryAcquire(username.toLowerCase(Locale.ROOT))) {
+            throttledByUsername.increment();
+            return false;
+        }
+        allowed.increment();
+        return true;
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getThrottledByUsernameCount() {
+        return throttledByUsername.sum();
+    }
+
+    public long getThrottledByAddressCount() {
+        return throttledByAddress.sum();
+    }
+
+    /**
+     * Gets the memory used by both limiters' bucket tables.
+     *
+     * @return the footprint in bytes
+     */
+    public long getFootprintBytes() {
+        return byUsername.getFootprintBytes() + byAddress.getFootprintBytes();
+    }
+
+    @Override
+    public String toString() {
+        return "allowed=" + getAllowedCount() + ", throttledByUsername=" + getThrottledByUsernameCount()
+                + ", throttledByAddress=" + getThrottledByAddressCount();
+    }
+
+    /**
+     * Lazily creates the shared throttle from system properties.
+     */
+    private static class InstanceHolder {
+        private static final LoginThrottle INSTANCE = createSharedInstance();
+
+        private static LoginThrottle createSharedInstance() {
+            int slots = Integer.getInteger("banking.loginThrottle.slots", 1 << 18);
+            return new LoginThrottle(
+                    new RateLimiter(slots, Integer.getInteger("banking.loginThrottle.userBurst", 5),
+                            Integer.getInteger("banking.loginThrottle.userPerMinute", 5)),
+                    new RateLimiter(slots, Integer.getInteger("banking.loginThrottle.addressBurst", 30),
+                            Integer.getInteger("banking.loginThrottle.addressPerMinute", 30)));
+        }
+    }
+}
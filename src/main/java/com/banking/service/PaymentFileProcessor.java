@@ -0,0 +1,771 @@
+package com.banking.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.banking.model.AccountType;
+import com.banking.model.Transaction;
+import com.banking.repository.JdbcLedgerRepository;
+import com.banking.util.DatabaseUtil;
+import com.banking.util.MemoryLedger;
+import com.banking.util.PoolConfig;
+
+/**
+ * Applies a payment file of deposits, withdrawals and transfers.
+ * Each line is
+ * {@code key,operation,accountType,accountNumber,customerId,amount[,toAccountType,toAccountNumber]}
+ * where the operation is {@code deposit}, {@code withdrawal} or
+ * {@code transfer} and the key is unique per payment.
+ * <p>
+ * The file is read sequentially through a direct buffer on the calling
+ * thread and each payment is queued for the worker that owns its customer,
+ * so all payments touching an account are applied in file order by one
+ * worker. A worker takes up to {@code batchSize} queued payments and applies
+ * them in one transaction: it locks the accounts involved, applies the
+ * payments to the balances in memory, declining withdrawals and transfers
+ * the funds do not cover, then writes one net balance update per account and
+ * the ledger rows and idempotency keys in JDBC batches.
+ * <p>
+ * The key of every applied or declined payment commits with its balance
+ * change, so re-running a file after a crash skips what was already done.
+ * The queues are bounded, so heap use does not grow with the file.
+ * Lines naming accounts held by the {@link MemoryLedger} are rejected.
+ */
+public class PaymentFileProcessor {
+    private static final Logger LOGGER = Logger.getLogger(PaymentFileProcessor.class.getName());
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    // A batch locks up to two accounts per payment and SQL Server allows 2100 parameters per statement
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+    private static final int MAX_LINE_BYTES = 1024;
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 10;
+    private static final int SQL_SERVER_DEADLOCK_ERROR = 1205;
+
+    private static final String INSERT_KEY_SQL =
+            "INSERT INTO PaymentKey(IdempotencyKey, Outcome, ProcessedAt) VALUES (?, ?, CURRENT_TIMESTAMP)";
+    private static final Payment END_OF_FILE = new Payment(0, null, null, null, null, null, null, null, null);
+
+    /**
+     * The kinds of payment line.
+     */
+    private enum Operation {
+        DEPOSIT, WITHDRAWAL, TRANSFER
+    }
+
+    private final int batchSize;
+    private final int parallelism;
+    private final String findKeysSql;
+    private final Map<AccountType, String> lockAccountsSql = new EnumMap<>(AccountType.class);
+    private final Map<AccountType, String> applyNetSql = new EnumMap<>(AccountType.class);
+
+    /**
+     * Creates a processor with the default batch size, using up to half of
+     * the connection pool.
+     */
+    public PaymentFileProcessor() {
+        this(DEFAULT_BATCH_SIZE, defaultParallelism());
+    }
+
+    /**
+     * Creates a processor.
+     *
+     * @param batchSize the number of payments per transaction, at most 1000
+     * @param parallelism the number of workers; each holds a pooled connection
+     */
+    public PaymentFileProcessor(int batchSize, int parallelism) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE || parallelism < 1) {
+            throw new IllegalArgumentException("batchSize must be 1 to " + MAX_BATCH_SIZE
+                    + " and parallelism at least 1");
+        }
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+
+        // Lists are padded with nulls to a fixed length, so each statement has one text
+        this.findKeysSql = "SELECT IdempotencyKey FROM PaymentKey WITH (UPDLOCK, HOLDLOCK) WHERE IdempotencyKey IN ("
+                + placeholders(batchSize) + ")";
+        for (AccountType type : AccountType.values()) {
+            String column = type.getNumberColumn();
+            lockAccountsSql.put(type, "SELECT " + column + ", Balance, CustomerID FROM " + type.getTable()
+                    + " WITH (UPDLOCK, ROWLOCK) WHERE " + column + " IN (" + placeholders(batchSize * 2) + ")");
+            applyNetSql.put(type, "UPDATE " + type.getTable() + " SET Balance = Balance + ? WHERE " + column + " = ?");
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static int defaultParallelism() {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                PoolConfig.fromSystemProperties().getMaxSize() / 2));
+    }
+
+    /**
+     * Applies every payment in a file.
+     *
+     * @param file the payment file
+     * @param failures receives each line that was not applied; calls are made
+     *                 from several threads but never concurrently
+     * @return the run report
+     * @throws IOException if the file cannot be read
+     * @throws SQLException if processing is interrupted
+     */
+    public RunReport process(Path file, Consumer<PaymentFailure> failures) throws IOException, SQLException {
+        long started = System.nanoTime();
+        Counters counters = new Counters(failures);
+        List<BlockingQueue<Payment>> queues = new ArrayList<>(parallelism);
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "payment-file-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < parallelism; i++) {
+            BlockingQueue<Payment> queue = new ArrayBlockingQueue<>(batchSize * 2);
+            queues.add(queue);
+            workers.execute(() -> drain(queue, counters));
+        }
+
+        long lines = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+            byte[] line = new byte[MAX_LINE_BYTES];
+            int length = 0;
+            boolean overlong = false;
+
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte next = buffer.get();
+                    if (next == '\n') {
+                        dispatch(++lines, line, length, overlong, queues, counters);
+                        length = 0;
+                        overlong = false;
+                    } else if (length < MAX_LINE_BYTES) {
+                        line[length++] = next;
+                    } else {
+                        overlong = true;
+                    }
+                }
+                buffer.clear();
+            }
+            if (length > 0 || overlong) {
+                dispatch(++lines, line, length, overlong, queues, counters);
+            }
+
+            for (BlockingQueue<Payment> queue : queues) {
+                queue.put(END_OF_FILE);
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+            RunReport report = new RunReport(lines, counters.applied.sum(), counters.declined.sum(),
+                    counters.skipped.sum(), counters.failed.sum(), (System.nanoTime() - started) / 1000000);
+            LOGGER.info("Payment file " + file + " processed: " + report);
+            return report;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while processing payment file " + file + " at line " + lines, e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses one line and queues it for the worker that owns its customer.
+     */
+    private void dispatch(long lineNumber, byte[] line, int length, boolean overlong,
+                          List<BlockingQueue<Payment>> queues, Counters counters) throws InterruptedException {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        if (length == 0 && !overlong) {
+            return;
+        }
+        if (overlong) {
+            counters.fail(lineNumber, null, "line is longer than " + MAX_LINE_BYTES + " bytes");
+            return;
+        }
+
+        String[] fields = new String(line, 0, length, StandardCharsets.UTF_8).split(",", -1);
+        Payment payment;
+        try {
+            payment = parse(lineNumber, fields);
+        } catch (IllegalArgumentException e) {
+            counters.fail(lineNumber, fields[0].trim(), e.getMessage());
+            return;
+        }
+        queues.get(Math.floorMod(payment.customerId.hashCode(), queues.size())).put(payment);
+    }
+
+    private static Payment parse(long lineNumber, String[] fields) {
+        if (fields.length != 6 && fields.length != 8) {
+            throw new IllegalArgumentException("line must have 6 fields, or 8 for a transfer");
+        }
+        String key = fields[0].trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Operation operation;
+        try {
+            operation = Operation.valueOf(fields[1].trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("operation must be deposit, withdrawal or transfer");
+        }
+        if ((operation == Operation.TRANSFER) != (fields.length == 8)) {
+            throw new IllegalArgumentException("a transfer, and only a transfer, names a destination account");
+        }
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(fields[5].trim());
+        } catch (NumberFormatException e) {
+            amount = null;
+        }
+        if (amount == null || amount.signum() <= 0 || amount.scale() > 4) {
+            throw new IllegalArgumentException("amount must be a positive number with at most four decimal places");
+        }
+        String customerId = fields[4].trim();
+        if (customerId.isEmpty()) {
+            throw new IllegalArgumentException("customer ID is required");
+        }
+
+        AccountType type = accountType(fields[2]);
+        String accountNumber = accountNumber(fields[3]);
+        AccountType toType = operation == Operation.TRANSFER ? accountType(fields[6]) : null;
+        String toAccountNumber = operation == Operation.TRANSFER ? accountNumber(fields[7]) : null;
+        if (type == toType && accountNumber.equals(toAccountNumber)) {
+            throw new IllegalArgumentException("cannot transfer an account to itself");
+        }
+        return new Payment(lineNumber, key, operation, type, accountNumber, customerId, amount, toType,
+                toAccountNumber);
+    }
+
+    private static AccountType accountType(String field) {
+        AccountType type = AccountType.fromName(field.trim());
+        if (type == null) {
+            throw new IllegalArgumentException("account type must be checking or savings");
+        }
+        return type;
+    }
+
+    private static String accountNumber(String field) {
+        String accountNumber = field.trim();
+        if (accountNumber.isEmpty()) {
+            throw new IllegalArgumentException("account number is required");
+        }
+        if (MemoryLedger.handles(accountNumber)) {
+            throw new IllegalArgumentException("account " + accountNumber + " is held by the memory ledger");
+        }
+        return accountNumber;
+    }
+
+    /**
+     * Worker loop: applies queued payments in batches until the end of the file.
+     */
+    private void drain(BlockingQueue<Payment> queue, Counters counters) {
+        List<Payment> batch = new ArrayList<>(batchSize);
+        boolean done = false;
+        try {
+            while (!done) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                int last = batch.size() - 1;
+                if (batch.get(last) == END_OF_FILE) {
+                    batch.remove(last);
+                    done = true;
+                }
+                if (!batch.isEmpty()) {
+                    applyBatch(batch, counters);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Applies one batch, retrying on deadlock. A batch that cannot be applied
+     * is reported as failed and left unrecorded, so a re-run retries it.
+     */
+    private void applyBatch(List<Payment> batch, Counters counters) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                BatchResult result = attemptBatch(batch);
+                BalanceCache cache = BalanceCache.getInstance();
+                for (Map.Entry<AccountType, Map<String, AccountState>> accounts : result.accounts.entrySet()) {
+                    for (Map.Entry<String, AccountState> account : accounts.getValue().entrySet()) {
+                        if (account.getValue().net.signum() != 0) {
+                            cache.invalidate(accounts.getKey(), account.getKey());
+                        }
+                    }
+                }
+                counters.applied.add(result.applied);
+                counters.skipped.add(result.skipped);
+                for (Map.Entry<Payment, String> declined : result.declined.entrySet()) {
+                    counters.declined.increment();
+                    counters.report(declined.getKey().lineNumber, declined.getKey().key, declined.getValue());
+                }
+                return;
+
+            } catch (SQLException e) {
+                if (!isDeadlock(e) || attempt == MAX_ATTEMPTS) {
+                    LOGGER.log(Level.SEVERE, "Payment batch of " + batch.size() + " lines failed", e);
+                    for (Payment payment : batch) {
+                        counters.fail(payment.lineNumber, payment.key, "batch failed, re-run the file to retry: "
+                                + e.getMessage());
+                    }
+                    return;
+                }
+                long ceiling = BASE_BACKOFF_MILLIS << (attempt - 1);
+                Thread.sleep(ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Payment batch of " + batch.size() + " lines failed", e);
+                for (Payment payment : batch) {
+                    counters.fail(payment.lineNumber, payment.key, "batch failed, re-run the file to retry: " + e);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies one batch in one transaction.
+     *
+     * @return what the batch did; nothing is reported until it has committed
+     */
+    private BatchResult attemptBatch(List<Payment> batch) throws SQLException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        Connection connection = null;
+        List<PreparedStatement> statements = new ArrayList<>();
+        BatchResult result = new BatchResult();
+
+        try {
+            connection = dbUtil.getConnection();
+            connection.setAutoCommit(false);
+
+            // Skip payments whose key an earlier run, or an earlier line, already used
+            Object[] keys = new Object[batchSize];
+            for (int i = 0; i < batch.size(); i++) {
+                keys[i] = batch.get(i).key;
+            }
+            Set<String> seen = dbUtil.executeQuery(connection, findKeysSql, resultSet -> {
+                Set<String> found = new HashSet<>();
+                while (resultSet.next()) {
+                    found.add(resultSet.getString(1));
+                }
+                return found;
+            }, keys);
+
+            List<Payment> pending = new ArrayList<>(batch.size());
+            for (Payment payment : batch) {
+                if (seen.add(payment.key)) {
+                    pending.add(payment);
+                } else {
+                    result.skipped++;
+                }
+            }
+            lockAccounts(dbUtil, connection, pending, result.accounts);
+
+            PreparedStatement ledger = prepare(connection, statements, JdbcLedgerRepository.INSERT_SQL);
+            PreparedStatement keyRows = prepare(connection, statements, INSERT_KEY_SQL);
+            for (Payment payment : pending) {
+                String declined = applyInMemory(payment, result.accounts);
+                if (declined == null) {
+                    dbUtil.bindParameters(ledger, JdbcLedgerRepository.getInsertParameters(ledgerEntry(payment)));
+                    ledger.addBatch();
+                    result.applied++;
+                } else {
+                    result.declined.put(payment, declined);
+                }
+                dbUtil.bindParameters(keyRows, payment.key, declined == null ? "applied" : "declined");
+                keyRows.addBatch();
+            }
+
+            // One update per account, whatever the number of payments that touched it
+            for (Map.Entry<AccountType, Map<String, AccountState>> accounts : result.accounts.entrySet()) {
+                PreparedStatement update = null;
+                for (Map.Entry<String, AccountState> account : accounts.getValue().entrySet()) {
+                    if (account.getValue().net.signum() != 0) {
+                        if (update == null) {
+                            update = prepare(connection, statements, applyNetSql.get(accounts.getKey()));
+                        }
+                        dbUtil.bindParameters(update, account.getValue().net, account.getKey());
+                        update.addBatch();
+                    }
+                }
+                if (update != null) {
+                    update.executeBatch();
+                }
+            }
+            if (result.applied > 0) {
+                ledger.executeBatch();
+            }
+            if (!pending.isEmpty()) {
+                keyRows.executeBatch();
+            }
+            connection.commit();
+            return result;
+
+        } catch (SQLException e) {
+            rollbackQuietly(connection);
+            throw e;
+        } finally {
+            for (PreparedStatement statement : statements) {
+                dbUtil.closeResources(null, statement, null);
+            }
+            dbUtil.closeConnection(connection);
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, List<PreparedStatement> statements, String sql)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statements.add(statement);
+        return statement;
+    }
+
+    /**
+     * Locks every account the payments touch and reads its balance and owner.
+     * Accounts that do not exist are left out of the map.
+     */
+    private void lockAccounts(DatabaseUtil dbUtil, Connection connection, List<Payment> payments,
+                              Map<AccountType, Map<String, AccountState>> accounts) throws SQLException {
+        Map<AccountType, Set<String>> numbers = new EnumMap<>(AccountType.class);
+        for (Payment payment : payments) {
+            numbers.computeIfAbsent(payment.type, type -> new HashSet<>()).add(payment.accountNumber);
+            if (payment.toType != null) {
+                numbers.computeIfAbsent(payment.toType, type -> new HashSet<>()).add(payment.toAccountNumber);
+            }
+        }
+
+        for (Map.Entry<AccountType, Set<String>> entry : numbers.entrySet()) {
+            // At most two accounts per payment, so the numbers always fit and the rest stay null
+            Object[] parameters = entry.getValue().toArray(new Object[batchSize * 2]);
+            Map<String, AccountState> locked = dbUtil.executeQuery(connection, lockAccountsSql.get(entry.getKey()),
+                    resultSet -> {
+                        Map<String, AccountState> rows = new HashMap<>();
+                        while (resultSet.next()) {
+                            rows.put(resultSet.getString(1),
+                                    new AccountState(resultSet.getBigDecimal(2), resultSet.getString(3)));
+                        }
+                        return rows;
+                    }, parameters);
+            accounts.put(entry.getKey(), locked);
+        }
+    }
+
+    /**
+     * Applies a payment to the locked balances.
+     *
+     * @return the reason the payment is declined, or null if it was applied
+     */
+    private static String applyInMemory(Payment payment, Map<AccountType, Map<String, AccountState>> accounts) {
+        AccountState account = find(accounts, payment.type, payment.accountNumber);
+        if (account == null || !account.customerId.equals(payment.customerId)) {
+            return "unknown " + payment.type.getName() + " account " + payment.accountNumber + " for customer";
+        }
+
+        switch (payment.operation) {
+            case DEPOSIT:
+                account.net = account.net.add(payment.amount);
+                return null;
+            case WITHDRAWAL:
+                if (!account.covers(payment.amount)) {
+                    return "insufficient funds";
+                }
+                account.net = account.net.subtract(payment.amount);
+                return null;
+            default:
+                AccountState destination = find(accounts, payment.toType, payment.toAccountNumber);
+                if (destination == null || !destination.customerId.equals(payment.customerId)) {
+                    return "unknown destination " + payment.toType.getName() + " account "
+                            + payment.toAccountNumber + " for customer";
+                }
+                if (!account.covers(payment.amount)) {
+                    return "insufficient funds";
+                }
+                account.net = account.net.subtract(payment.amount);
+                destination.net = destination.net.add(payment.amount);
+                return null;
+        }
+    }
+
+    private static AccountState find(Map<AccountType, Map<String, AccountState>> accounts, AccountType type,
+                                     String accountNumber) {
+        Map<String, AccountState> ofType = accounts.get(type);
+        return ofType != null ? ofType.get(accountNumber) : null;
+    }
+
+    private static Transaction ledgerEntry(Payment payment) {
+        String amount = payment.amount.toPlainString();
+        Transaction transaction;
+        switch (payment.operation) {
+            case DEPOSIT:
+                transaction = new Transaction(payment.accountNumber, null, payment.customerId, amount, "Deposit");
+                break;
+            case WITHDRAWAL:
+                transaction = new Transaction(null, payment.accountNumber, payment.customerId, amount, "Withdrawal");
+                break;
+            default:
+                transaction = new Transaction(payment.toAccountNumber, payment.accountNumber, payment.customerId,
+                        amount, "Transfer");
+                break;
+        }
+        transaction.prepareForRecording();
+        return transaction;
+    }
+
+    private boolean isDeadlock(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (current.getErrorCode() == SQL_SERVER_DEADLOCK_ERROR || "40001".equals(current.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rollbackQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error rolling back payment batch", e);
+        }
+    }
+
+    /**
+     * One parsed payment line.
+     */
+    private static class Payment {
+        private final long lineNumber;
+        private final String key;
+        private final Operation operation;
+        private final AccountType type;
+        private final String accountNumber;
+        private final String customerId;
+        private final BigDecimal amount;
+        private final AccountType toType;
+        private final String toAccountNumber;
+
+        Payment(long lineNumber, String key, Operation operation, AccountType type, String accountNumber,
+                String customerId, BigDecimal amount, AccountType toType, String toAccountNumber) {
+            this.lineNumber = lineNumber;
+            this.key = key;
+            this.operation = operation;
+            this.type = type;
+            this.accountNumber = accountNumber;
+            this.customerId = customerId;
+            this.amount = amount;
+            this.toType = toType;
+            this.toAccountNumber = toAccountNumber;
+        }
+    }
+
+    /**
+     * A locked account: its balance when locked and the net change applied so far.
+     */
+    private static class AccountState {
+        private final BigDecimal balance;
+        private final String customerId;
+        private BigDecimal net = BigDecimal.ZERO;
+
+        AccountState(BigDecimal balance, String customerId) {
+            this.balance = balance;
+            this.customerId = customerId;
+        }
+
+        boolean covers(BigDecimal amount) {
+            return balance.add(net).compareTo(amount) >= 0;
+        }
+    }
+
+    /**
+     * What one batch did.
+     */
+    private static class BatchResult {
+        private final Map<AccountType, Map<String, AccountState>> accounts = new EnumMap<>(AccountType.class);
+        private final Map<Payment, String> declined = new LinkedHashMap<>();
+        private int applied;
+        private int skipped;
+    }
+
+    /**
+     * Run totals, shared by the reader and the workers. Failure reports are
+     * serialized so the caller's consumer need not be thread-safe.
+     */
+    private static class Counters {
+        private final Consumer<PaymentFailure> consumer;
+        private final LongAdder applied = new LongAdder();
+        private final LongAdder declined = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        Counters(Consumer<PaymentFailure> consumer) {
+            this.consumer = consumer;
+        }
+
+        void fail(long lineNumber, String key, String reason) {
+            failed.increment();
+            report(lineNumber, key, reason);
+        }
+
+        synchronized void report(long lineNumber, String key, String reason) {
+            consumer.accept(new PaymentFailure(lineNumber, key, reason));
+        }
+    }
+
+    /**
+     * A line that was not applied, and why.
+     */
+    public static class PaymentFailure {
+        private final long lineNumber;
+        private final String idempotencyKey;
+        private final String reason;
+
+        public PaymentFailure(long lineNumber, String idempotencyKey, String reason) {
+            this.lineNumber = lineNumber;
+            this.idempotencyKey = idempotencyKey;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + " (" + idempotencyKey + "): " + reason;
+        }
+    }
+
+    /**
+     * Summary of one file run.
+     */
+    public static class RunReport {
+        private final long lines;
+        private final long applied;
+        private final long declined;
+        private final long skipped;
+        private final long failed;
+        private final long elapsedMillis;
+
+        public RunReport(long lines, long applied, long declined, long skipped, long failed, long elapsedMillis) {
+            this.lines = lines;
+            this.applied = applied;
+            this.declined = declined;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getApplied() {
+            return applied;
+        }
+
+        public long getDeclined() {
+            return declined;
+        }
+
+        /**
+         * Gets the number of payments skipped because an earlier run, or an
+         * earlier line, already processed their key.
+         *
+         * @return the skipped payment count
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Gets the number of lines that could not be parsed or whose batch
+         * failed. Re-running the file retries failed batches.
+         *
+         * @return the failed line count
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getLinesPerSecond() {
+            return elapsedMillis > 0 ? lines * 1000.0 / elapsedMillis : 0;
+        }
+
+        @Override
+        public String toString() {
+            return lines + " lines: " + applied + " applied, " + declined + " declined, " + skipped + " skipped, "
+                    + failed + " failed, " + elapsedMillis + "ms (" + String.format("%.0f", getLinesPerSecond())
+                    + " lines/s)";
+        }
+    }
+
+    /**
+     * Processes a payment file from the command line. Lines that were not
+     * applied are written to standard output as CSV.
+     *
+     * @param args the payment file
+     * @throws IOException if the file cannot be read
+     * @throws SQLException if processing is interrupted
+     */
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length < 1) {
+            System.err.println("Usage: PaymentFileProcessor <file>");
+            return;
+        }
+        RunReport report = new PaymentFileProcessor().process(Paths.get(args[0]), failure -> System.out.println(
+                failure.getLineNumber() + "," + failure.getIdempotencyKey() + ",\""
+                        + String.valueOf(failure.getReason()).replace("\"", "\"\"") + "\""));
+        System.err.println(report);
+    }
+}
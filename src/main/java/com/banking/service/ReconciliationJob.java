@@ -0,0 +1,451 @@
+package com.banking.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.banking.model.AccountType;
+import com.banking.util.DatabaseUtil;
+import com.banking.util.PoolConfig;
+
+/**
+ * Checks that every account balance equals the net of its ledger entries:
+ * the sum of {@code Transactions} rows paying into the account minus the sum
+ * of rows paying out of it.
+ * <p>
+ * A full run streams the account keys of each table once, cuts them into
+ * ranges and checks each range on a worker thread with one set-based
+ * aggregate that returns only the mismatched accounts. An incremental run
+ * checks only the accounts named in ledger rows written since the last
+ * completed run, so its cost follows the day's activity rather than the
+ * number of accounts. Each run records the highest transaction number it
+ * covered as the next run's checkpoint.
+ * <p>
+ * Balances and ledger rows written while a range is being read can disagree
+ * for a moment, so each mismatch is read again after
+ * {@code banking.reconciliation.confirmDelayMillis} (default 1000) and only
+ * reported if it persists. Confirmed mismatches are written to the report as
+ * they are found.
+ */
+public class ReconciliationJob {
+    private static final Logger LOGGER = Logger.getLogger(ReconciliationJob.class.getName());
+    private static final int DEFAULT_CHUNK_SIZE = 5000;
+    private static final int KEY_SCAN_FETCH_SIZE = 5000;
+    private static final long DEFAULT_CONFIRM_DELAY_MILLIS = 1000;
+
+    private static final String HIGH_WATER_MARK_SQL =
+            "SELECT ISNULL(MAX(TransactionNumber), 0) FROM Transactions";
+    private static final String LAST_CHECKPOINT_SQL =
+            "SELECT TOP (1) ToTransactionNumber FROM ReconciliationRun "
+            + "WHERE CompletedAt IS NOT NULL ORDER BY RunId DESC";
+    private static final String INSERT_RUN_SQL =
+            "INSERT INTO ReconciliationRun(Incremental, FromTransactionNumber, ToTransactionNumber, StartedAt) "
+            + "OUTPUT INSERTED.RunId VALUES (?, ?, ?, CURRENT_TIMESTAMP)";
+    private static final String COMPLETE_RUN_SQL =
+            "UPDATE ReconciliationRun SET CompletedAt = CURRENT_TIMESTAMP, AccountsChecked = ?, Mismatches = ? "
+            + "WHERE RunId = ?";
+    private static final String TOUCHED_ACCOUNTS =
+            "SELECT ToAccount AS Account FROM Transactions "
+            + "WHERE TransactionNumber > ? AND TransactionNumber <= ? AND ToAccount IS NOT NULL "
+            + "UNION SELECT FromAccount FROM Transactions "
+            + "WHERE TransactionNumber > ? AND TransactionNumber <= ? AND FromAccount IS NOT NULL";
+    private static final String TOUCHED_KEYS_SQL =
+            "SELECT Account FROM (" + TOUCHED_ACCOUNTS + ") touched ORDER BY Account";
+
+    /**
+     * The account tables and the SQL precomputed for each.
+     */
+    private enum AccountTable {
+        CHECKING(AccountType.CHECKING),
+        SAVINGS(AccountType.SAVINGS);
+
+        private final AccountType type;
+        private final String keysSql;
+        private final String rangeMismatchSql;
+        private final String touchedMismatchSql;
+        private final String accountSql;
+
+        AccountTable(AccountType type) {
+            String table = type.getTable();
+            String column = type.getNumberColumn();
+            this.type = type;
+            String net = "ISNULL((SELECT SUM(TransactionAmount) FROM Transactions WHERE ToAccount = a." + column
+                    + "), 0) - ISNULL((SELECT SUM(TransactionAmount) FROM Transactions WHERE FromAccount = a."
+                    + column + "), 0)";
+            this.keysSql = "SELECT " + column + " FROM " + table + " ORDER BY " + column;
+            // One pass over each side of the ledger for the whole range, grouped per account
+            this.rangeMismatchSql = "SELECT a." + column + ", a.Balance, ISNULL(l.Net, 0) FROM " + table + " a "
+                    + "LEFT JOIN (SELECT Account, SUM(Amount) AS Net FROM ("
+                    + "SELECT ToAccount AS Account, TransactionAmount AS Amount FROM Transactions "
+                    + "WHERE ToAccount > ? AND ToAccount <= ? "
+                    + "UNION ALL SELECT FromAccount, -TransactionAmount FROM Transactions "
+                    + "WHERE FromAccount > ? AND FromAccount <= ?) m GROUP BY Account) l "
+                    + "ON l.Account = a." + column + " "
+                    + "WHERE a." + column + " > ? AND a." + column + " <= ? AND a.Balance <> ISNULL(l.Net, 0)";
+            // Index seeks per touched account, so the cost follows activity rather than the range
+            this.touchedMismatchSql = "SELECT a." + column + ", a.Balance, l.Net FROM " + table + " a "
+                    + "CROSS APPLY (SELECT " + net + " AS Net) l "
+                    + "WHERE a." + column + " IN (SELECT Account FROM (" + TOUCHED_ACCOUNTS + ") touched "
+                    + "WHERE Account > ? AND Account <= ?) AND a.Balance <> l.Net";
+            this.accountSql = "SELECT a.Balance, " + net + " FROM " + table + " a WHERE a." + column + " = ?";
+        }
+    }
+
+    private final int chunkSize;
+    private final int parallelism;
+    private final long confirmDelayMillis;
+
+    /**
+     * Creates a job with the default chunk size, using up to half of the
+     * connection pool.
+     */
+    public ReconciliationJob() {
+        this(DEFAULT_CHUNK_SIZE, defaultParallelism(),
+                Long.getLong("banking.reconciliation.confirmDelayMillis", DEFAULT_CONFIRM_DELAY_MILLIS));
+    }
+
+    /**
+     * Creates a job.
+     *
+     * @param chunkSize the number of accounts per range
+     * @param parallelism the number of ranges checked at once; each holds a pooled connection
+     * @param confirmDelayMillis how long to wait before reading a mismatch again
+     */
+    public ReconciliationJob(int chunkSize, int parallelism, long confirmDelayMillis) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be at least 1");
+        }
+        if (confirmDelayMillis < 0) {
+            throw new IllegalArgumentException("confirmDelayMillis must not be negative");
+        }
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.confirmDelayMillis = confirmDelayMillis;
+    }
+
+    private static int defaultParallelism() {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                PoolConfig.fromSystemProperties().getMaxSize() / 2));
+    }
+
+    /**
+     * Runs a reconciliation and writes the confirmed mismatches as CSV.
+     *
+     * @param incremental true to check only accounts touched since the last
+     *                    completed run; the first run is always full
+     * @param report the destination for mismatches; it is flushed but not closed
+     * @return the run report
+     * @throws SQLException if the run cannot be recorded or a range fails
+     * @throws IOException if the report cannot be written
+     */
+    public RunReport run(boolean incremental, Writer report) throws SQLException, IOException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        long highWaterMark = dbUtil.executeQuery(HIGH_WATER_MARK_SQL, resultSet -> {
+            resultSet.next();
+            return resultSet.getLong(1);
+        });
+        Long checkpoint = incremental
+                ? dbUtil.executeQuery(LAST_CHECKPOINT_SQL, resultSet -> resultSet.next() ? resultSet.getLong(1) : null)
+                : null;
+        if (incremental && checkpoint == null) {
+            LOGGER.info("No completed reconciliation run to continue from; running a full reconciliation");
+        }
+        boolean touchedOnly = checkpoint != null;
+        long fromTransactionNumber = touchedOnly ? checkpoint : 0;
+
+        long runId = dbUtil.executeQuery(INSERT_RUN_SQL, resultSet -> {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }, touchedOnly, fromTransactionNumber, highWaterMark);
+
+        long started = System.nanoTime();
+        MismatchWriter mismatches = new MismatchWriter(report);
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "reconciliation-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Integer>> chunks = new ArrayList<>();
+
+        try {
+            long accounts;
+            if (touchedOnly) {
+                accounts = scanKeys(TOUCHED_KEYS_SQL, (low, high) -> {
+                    for (AccountTable table : AccountTable.values()) {
+                        chunks.add(workers.submit(() -> checkRange(table, true, low, high,
+                                fromTransactionNumber, highWaterMark, mismatches)));
+                    }
+                }, fromTransactionNumber, highWaterMark, fromTransactionNumber, highWaterMark);
+            } else {
+                accounts = 0;
+                for (AccountTable table : AccountTable.values()) {
+                    accounts += scanKeys(table.keysSql, (low, high) -> chunks.add(workers.submit(() ->
+                            checkRange(table, false, low, high, 0, 0, mismatches))));
+                }
+            }
+
+            int found = 0;
+            for (Future<Integer> chunk : chunks) {
+                found += chunk.get();
+            }
+            mismatches.flush();
+
+            dbUtil.executeUpdate(COMPLETE_RUN_SQL, accounts, found, runId);
+            RunReport result = new RunReport(runId, touchedOnly, accounts, found, chunks.size(),
+                    (System.nanoTime() - started) / 1000000);
+            LOGGER.info("Reconciliation completed: " + result);
+            return result;
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new SQLException("Reconciliation run " + runId + " did not complete", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during reconciliation run " + runId, e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Streams an ordered key scan and hands each range of {@code chunkSize}
+     * keys to the consumer as soon as it is known.
+     *
+     * @return the number of keys scanned
+     */
+    private long scanKeys(String sql, RangeConsumer consumer, Object... parameters) throws SQLException {
+        return DatabaseUtil.getInstance().executeStreamingQuery(sql, KEY_SCAN_FETCH_SIZE, resultSet -> {
+            long keys = 0;
+            String low = "";
+            String high = null;
+            int inChunk = 0;
+            while (resultSet.next()) {
+                high = resultSet.getString(1);
+                keys++;
+                if (++inChunk == chunkSize) {
+                    consumer.accept(low, high);
+                    low = high;
+                    inChunk = 0;
+                }
+            }
+            if (inChunk > 0) {
+                consumer.accept(low, high);
+            }
+            return keys;
+        }, parameters);
+    }
+
+    /**
+     * Finds the mismatched accounts in one key range, confirms them and
+     * reports the ones that persist.
+     *
+     * @return the number of confirmed mismatches
+     */
+    private int checkRange(AccountTable table, boolean touchedOnly, String lowExclusive, String highInclusive,
+                           long fromTransactionNumber, long toTransactionNumber, MismatchWriter report)
+            throws SQLException, InterruptedException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        DatabaseUtil.ResultSetProcessor<List<Mismatch>> collect = resultSet -> {
+            List<Mismatch> rows = new ArrayList<>();
+            while (resultSet.next()) {
+                rows.add(new Mismatch(table, resultSet.getString(1), resultSet.getBigDecimal(2),
+                        resultSet.getBigDecimal(3)));
+            }
+            return rows;
+        };
+
+        List<Mismatch> candidates;
+        try {
+            candidates = touchedOnly
+                    ? dbUtil.executeQuery(table.touchedMismatchSql, collect,
+                            fromTransactionNumber, toTransactionNumber, fromTransactionNumber, toTransactionNumber,
+                            lowExclusive, highInclusive)
+                    : dbUtil.executeQuery(table.rangeMismatchSql, collect,
+                            lowExclusive, highInclusive, lowExclusive, highInclusive, lowExclusive, highInclusive);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Reconciliation of " + table + " (" + lowExclusive + ", " + highInclusive
+                    + "] failed", e);
+            throw e;
+        }
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        // Give in-flight transfers and queued ledger writes time to land before reading again
+        Thread.sleep(confirmDelayMillis);
+        int confirmed = 0;
+        for (Mismatch candidate : candidates) {
+            Mismatch current = dbUtil.executeQuery(table.accountSql, resultSet -> resultSet.next()
+                    ? new Mismatch(table, candidate.accountNumber, resultSet.getBigDecimal(1),
+                            resultSet.getBigDecimal(2))
+                    : null, candidate.accountNumber);
+            if (current != null && current.balance.compareTo(current.ledgerNet) != 0) {
+                report.write(current);
+                confirmed++;
+            }
+        }
+        return confirmed;
+    }
+
+    /**
+     * Receives one key range from a key scan.
+     */
+    @FunctionalInterface
+    private interface RangeConsumer {
+        void accept(String lowExclusive, String highInclusive);
+    }
+
+    /**
+     * An account whose balance differs from its ledger net.
+     */
+    private static class Mismatch {
+        private final AccountTable table;
+        private final String accountNumber;
+        private final BigDecimal balance;
+        private final BigDecimal ledgerNet;
+
+        Mismatch(AccountTable table, String accountNumber, BigDecimal balance, BigDecimal ledgerNet) {
+            this.table = table;
+            this.accountNumber = accountNumber;
+            this.balance = balance;
+            this.ledgerNet = ledgerNet;
+        }
+    }
+
+    /**
+     * Writes confirmed mismatches as CSV lines as they are found. Workers
+     * share one instance, so writes are serialized.
+     */
+    private static class MismatchWriter {
+        private final Writer out;
+        private boolean headerWritten;
+
+        MismatchWriter(Writer out) {
+            this.out = out;
+        }
+
+        synchronized void write(Mismatch mismatch) {
+            try {
+                writeHeader();
+                out.write(mismatch.table.type.getName());
+                out.write(',');
+                out.write(mismatch.accountNumber);
+                out.write(',');
+                out.write(mismatch.balance.toPlainString());
+                out.write(',');
+                out.write(mismatch.ledgerNet.toPlainString());
+                out.write(',');
+                out.write(mismatch.balance.subtract(mismatch.ledgerNet).toPlainString());
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized void flush() throws IOException {
+            writeHeader();
+            out.flush();
+        }
+
+        private void writeHeader() throws IOException {
+            if (!headerWritten) {
+                out.write("AccountType,AccountNumber,Balance,LedgerNet,Difference\n");
+                headerWritten = true;
+            }
+        }
+    }
+
+    /**
+     * Summary of one reconciliation run.
+     */
+    public static class RunReport {
+        private final long runId;
+        private final boolean incremental;
+        private final long accountsChecked;
+        private final int mismatches;
+        private final int chunks;
+        private final long elapsedMillis;
+
+        public RunReport(long runId, boolean incremental, long accountsChecked, int mismatches, int chunks,
+                         long elapsedMillis) {
+            this.runId = runId;
+            this.incremental = incremental;
+            this.accountsChecked = accountsChecked;
+            this.mismatches = mismatches;
+            this.chunks = chunks;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getRunId() {
+            return runId;
+        }
+
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        /**
+         * Gets the number of accounts checked. For an incremental run this is
+         * the number of distinct account numbers in the new ledger rows.
+         *
+         * @return the account count
+         */
+        public long getAccountsChecked() {
+            return accountsChecked;
+        }
+
+        public int getMismatches() {
+            return mismatches;
+        }
+
+        public int getChunks() {
+            return chunks;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "run " + runId + (incremental ? " (incremental)" : " (full)") + ": " + accountsChecked
+                    + " accounts in " + chunks + " chunks, " + mismatches + " mismatches, " + elapsedMillis + "ms";
+        }
+    }
+
+    /**
+     * Runs a reconciliation from the command line, writing mismatches to
+     * standard output.
+     *
+     * @param args {@code full} or {@code incremental}
+     * @throws SQLException if the run fails
+     * @throws IOException if the report cannot be written
+     */
+    public static void main(String[] args) throws SQLException, IOException {
+        if (args.length < 1 || !("full".equals(args[0]) || "incremental".equals(args[0]))) {
+            System.err.println("Usage: ReconciliationJob full|incremental");
+            return;
+        }
+        Writer report = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        RunReport result = new ReconciliationJob().run("incremental".equals(args[0]), report);
+        System.err.println(result);
+    }
+}
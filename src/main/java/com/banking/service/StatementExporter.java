@@ -0,0 +1,527 @@
+package com.banking.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import com.banking.util.DatabaseUtil;
+import com.banking.util.PoolConfig;
+
+/**
+ * Exports transaction statements as CSV or OFX.
+ * Rows are written to the destination as they come off the result set,
+ * which is read with a large fetch size, so the heap stays flat however many
+ * transactions are exported. Each export uses one formatter that writes
+ * column values straight to a buffered writer; no per-row strings are built.
+ * <p>
+ * Rows are ordered by customer and then newest first, which is the order of
+ * the customer/date index, so the database never has to sort. An export of
+ * every customer can be split into key ranges written to separate files in
+ * parallel.
+ * <p>
+ * Configured with the {@code banking.export.fetchSize} system property
+ * (default 10000).
+ */
+public class StatementExporter {
+    private static final Logger LOGGER = Logger.getLogger(StatementExporter.class.getName());
+    private static final int DEFAULT_FETCH_SIZE = 10000;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private static final String STATEMENT_COLUMNS =
+            "CustomerID, TransactionNumber, TransactionType, TransactionAmount, TransactionDate, TransactionTime, "
+            + "FromAccount, ToAccount";
+    private static final String STATEMENT_ORDER =
+            " ORDER BY CustomerID, TransactionDate DESC, TransactionTime DESC, TransactionNumber DESC";
+    private static final String CUSTOMER_STATEMENT_SQL =
+            "SELECT " + STATEMENT_COLUMNS + " FROM Transactions "
+            + "WHERE CustomerID = ? AND TransactionDate BETWEEN ? AND ?" + STATEMENT_ORDER;
+    private static final String ALL_STATEMENTS_SQL =
+            "SELECT " + STATEMENT_COLUMNS + " FROM Transactions "
+            + "WHERE TransactionDate BETWEEN ? AND ?" + STATEMENT_ORDER;
+    private static final String RANGE_STATEMENTS_SQL =
+            "SELECT " + STATEMENT_COLUMNS + " FROM Transactions "
+            + "WHERE CustomerID > ? AND CustomerID <= ? AND TransactionDate BETWEEN ? AND ?" + STATEMENT_ORDER;
+    private static final String COUNT_CUSTOMERS_SQL = "SELECT COUNT(*) FROM Account";
+    private static final String CUSTOMER_KEYS_SQL = "SELECT Username FROM Account ORDER BY Username";
+
+    /**
+     * Statement file formats.
+     */
+    public enum Format {
+        CSV("csv", "text/csv"),
+        OFX("ofx", "application/x-ofx");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    private final int fetchSize;
+
+    /**
+     * Creates an exporter with the configured fetch size.
+     */
+    public StatementExporter() {
+        this(Integer.getInteger("banking.export.fetchSize", DEFAULT_FETCH_SIZE));
+    }
+
+    /**
+     * Creates an exporter.
+     *
+     * @param fetchSize the number of rows fetched per round trip
+     */
+    public StatementExporter(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("fetchSize must be at least 1");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Exports one customer's transactions within a date range.
+     *
+     * @param customerId the customer ID
+     * @param startDate the start date (yyyy-MM-dd)
+     * @param endDate the end date (yyyy-MM-dd)
+     * @param format the output format
+     * @param out the destination; it is flushed but not closed
+     * @return the number of transactions exported
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the destination cannot be written
+     */
+    public long exportCustomer(String customerId, String startDate, String endDate, Format format, Writer out)
+            throws SQLException, IOException {
+        return export(CUSTOMER_STATEMENT_SQL, startDate, endDate, format, out,
+                customerId, toDate(startDate), toDate(endDate));
+    }
+
+    /**
+     * Exports every customer's transactions within a date range to one destination.
+     *
+     * @param startDate the start date (yyyy-MM-dd)
+     * @param endDate the end date (yyyy-MM-dd)
+     * @param format the output format
+     * @param out the destination; it is flushed but not closed
+     * @return the number of transactions exported
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the destination cannot be written
+     */
+    public long exportAll(String startDate, String endDate, Format format, Writer out)
+            throws SQLException, IOException {
+        return export(ALL_STATEMENTS_SQL, startDate, endDate, format, out, toDate(startDate), toDate(endDate));
+    }
+
+    /**
+     * Exports every customer's transactions within a date range to one file
+     * per customer key range, writing the files in parallel. Files are named
+     * {@code statements-<start>-<end>-<part>.<extension>}.
+     *
+     * @param startDate the start date (yyyy-MM-dd)
+     * @param endDate the end date (yyyy-MM-dd)
+     * @param format the output format
+     * @param directory the directory to write to
+     * @param partitions the number of files; up to half the connection pool's connections write them at once
+     * @return the files written, in customer order
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if a file cannot be written
+     */
+    public List<Path> exportAllToFiles(String startDate, String endDate, Format format, Path directory,
+                                       int partitions) throws SQLException, IOException {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be at least 1");
+        }
+        Date start = toDate(startDate);
+        Date end = toDate(endDate);
+        Files.createDirectories(directory);
+
+        List<String> bounds = partitionBounds(partitions);
+        int threads = Math.max(1, Math.min(bounds.size() - 1, PoolConfig.fromSystemProperties().getMaxSize() / 2));
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "statement-export-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<Long>> parts = new ArrayList<>();
+            List<Path> files = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.size(); i++) {
+                String low = bounds.get(i);
+                String high = bounds.get(i + 1);
+                Path file = directory.resolve("statements-" + startDate + "-" + endDate + "-" + (i + 1)
+                        + "." + format.getExtension());
+                files.add(file);
+                parts.add(workers.submit(() -> {
+                    try (Writer out = new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8)) {
+                        return export(RANGE_STATEMENTS_SQL, startDate, endDate, format, out, low, high, start, end);
+                    }
+                }));
+            }
+
+            long rows = 0;
+            for (Future<Long> part : parts) {
+                rows += part.get();
+            }
+            LOGGER.info("Exported " + rows + " transactions to " + files.size() + " files in " + directory);
+            return files;
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new SQLException("Statement export failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during statement export", e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Cuts the customer key space into ranges with roughly equal customer
+     * counts. Range {@code i} covers keys above bound {@code i} and up to
+     * bound {@code i + 1}; the first bound is the empty string, below every key.
+     */
+    private List<String> partitionBounds(int partitions) throws SQLException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        long customers = dbUtil.executeQuery(COUNT_CUSTOMERS_SQL,
+                resultSet -> resultSet.next() ? resultSet.getLong(1) : 0L);
+        long perPartition = Math.max(1, (customers + partitions - 1) / partitions);
+
+        List<String> bounds = new ArrayList<>();
+        bounds.add("");
+        dbUtil.executeStreamingQuery(CUSTOMER_KEYS_SQL, fetchSize, resultSet -> {
+            long seen = 0;
+            String last = null;
+            while (resultSet.next()) {
+                last = resultSet.getString(1);
+                if (++seen % perPartition == 0) {
+                    bounds.add(last);
+                }
+            }
+            if (last != null && !last.equals(bounds.get(bounds.size() - 1))) {
+                bounds.add(last);
+            }
+            return null;
+        });
+        return bounds;
+    }
+
+    private long export(String sql, String startDate, String endDate, Format format, Writer destination,
+                        Object... parameters) throws SQLException, IOException {
+        Writer out = new BufferedWriter(destination, WRITE_BUFFER_SIZE);
+        StatementFormatter formatter = format == Format.OFX ? new OfxFormatter(out) : new CsvFormatter(out);
+        formatter.begin(startDate, endDate);
+
+        long rows;
+        try {
+            rows = DatabaseUtil.getInstance().executeStreamingQuery(sql, fetchSize, resultSet -> {
+                long count = 0;
+                try {
+                    while (resultSet.next()) {
+                        formatter.row(resultSet);
+                        count++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            }, parameters);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        formatter.end();
+        out.flush();
+        return rows;
+    }
+
+    private static Date toDate(String date) {
+        try {
+            return Date.valueOf(LocalDate.parse(date));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid date: " + date, e);
+        }
+    }
+
+    /**
+     * Exports every customer's statements to files.
+     * Usage: {@code StatementExporter <start> <end> <csv|ofx> <directory> [partitions]}
+     *
+     * @param args the command-line arguments
+     * @throws SQLException if the export fails
+     * @throws IOException if a file cannot be written
+     */
+    public static void main(String[] args) throws SQLException, IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: StatementExporter <start> <end> <csv|ofx> <directory> [partitions]");
+            System.exit(2);
+        }
+        Format format = Format.valueOf(args[2].toUpperCase(Locale.ROOT));
+        int partitions = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long started = System.nanoTime();
+        List<Path> files = new StatementExporter().exportAllToFiles(args[0], args[1], format,
+                Paths.get(args[3]), partitions);
+        System.out.println("Wrote " + files.size() + " files in " + (System.nanoTime() - started) / 1000000 + "ms");
+    }
+
+    /**
+     * Writes one statement format. One instance serves a whole export and
+     * keeps only the current customer between rows.
+     */
+    private abstract static class StatementFormatter {
+        final Writer out;
+        String currentCustomer;
+
+        StatementFormatter(Writer out) {
+            this.out = out;
+        }
+
+        abstract void begin(String startDate, String endDate) throws IOException;
+
+        /**
+         * Writes the row at the current result set position. Columns are in
+         * {@link #STATEMENT_COLUMNS} order.
+         */
+        void row(ResultSet resultSet) throws SQLException, IOException {
+            String customerId = resultSet.getString(1);
+            if (!customerId.equals(currentCustomer)) {
+                if (currentCustomer != null) {
+                    endCustomer();
+                }
+                currentCustomer = customerId;
+                beginCustomer(customerId);
+            }
+            writeRow(resultSet, customerId);
+        }
+
+        void beginCustomer(String customerId) throws IOException {
+        }
+
+        void endCustomer() throws IOException {
+        }
+
+        abstract void writeRow(ResultSet resultSet, String customerId) throws SQLException, IOException;
+
+        abstract void end() throws IOException;
+    }
+
+    /**
+     * RFC 4180 CSV with a header row.
+     */
+    private static class CsvFormatter extends StatementFormatter {
+        CsvFormatter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(String startDate, String endDate) throws IOException {
+            out.write("CustomerID,TransactionNumber,Date,Time,Type,Amount,FromAccount,ToAccount\r\n");
+        }
+
+        @Override
+        void writeRow(ResultSet resultSet, String customerId) throws SQLException, IOException {
+            writeField(customerId);
+            out.write(',');
+            out.write(resultSet.getString(2));
+            out.write(',');
+            out.write(resultSet.getString(5));
+            out.write(',');
+            writeTime(resultSet.getString(6));
+            out.write(',');
+            writeField(resultSet.getString(3));
+            out.write(',');
+            out.write(resultSet.getBigDecimal(4).toPlainString());
+            out.write(',');
+            writeField(resultSet.getString(7));
+            out.write(',');
+            writeField(resultSet.getString(8));
+            out.write("\r\n");
+        }
+
+        @Override
+        void end() {
+        }
+
+        private void writeTime(String time) throws IOException {
+            // time(0) may come back with a fractional part on some drivers
+            out.write(time, 0, Math.min(8, time.length()));
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.write('"');
+                }
+                out.write(c);
+            }
+            out.write('"');
+        }
+    }
+
+    /**
+     * OFX 2.2 bank statement download. Each customer becomes one statement
+     * response whose account ID is the customer ID, since ledger rows are
+     * recorded per customer.
+     */
+    private static class OfxFormatter extends StatementFormatter {
+        private String start;
+        private String end;
+
+        OfxFormatter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(String startDate, String endDate) throws IOException {
+            start = startDate.replace("-", "");
+            end = endDate.replace("-", "");
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<?OFX OFXHEADER=\"200\" VERSION=\"220\" SECURITY=\"NONE\" OLDFILEUID=\"NONE\" "
+                    + "NEWFILEUID=\"NONE\"?>\n");
+            out.write("<OFX><SIGNONMSGSRSV1><SONRS><STATUS><CODE>0</CODE><SEVERITY>INFO</SEVERITY></STATUS>");
+            out.write("<DTSERVER>");
+            out.write(LocalDate.now().toString().replace("-", ""));
+            out.write("</DTSERVER><LANGUAGE>ENG</LANGUAGE></SONRS></SIGNONMSGSRSV1>\n<BANKMSGSRSV1>\n");
+        }
+
+        @Override
+        void beginCustomer(String customerId) throws IOException {
+            out.write("<STMTTRNRS><TRNUID>0</TRNUID><STATUS><CODE>0</CODE><SEVERITY>INFO</SEVERITY></STATUS>");
+            out.write("<STMTRS><CURDEF>USD</CURDEF><BANKACCTFROM><BANKID>0</BANKID><ACCTID>");
+            writeText(customerId);
+            out.write("</ACCTID><ACCTTYPE>CHECKING</ACCTTYPE></BANKACCTFROM>\n<BANKTRANLIST><DTSTART>");
+            out.write(start);
+            out.write("</DTSTART><DTEND>");
+            out.write(end);
+            out.write("</DTEND>\n");
+        }
+
+        @Override
+        void endCustomer() throws IOException {
+            if (currentCustomer != null) {
+                out.write("</BANKTRANLIST></STMTRS></STMTTRNRS>\n");
+                currentCustomer = null;
+            }
+        }
+
+        @Override
+        void writeRow(ResultSet resultSet, String customerId) throws SQLException, IOException {
+            String type = resultSet.getString(3);
+            BigDecimal amount = resultSet.getBigDecimal(4);
+            boolean debit = "Withdrawal".equals(type);
+
+            out.write("<STMTTRN><TRNTYPE>");
+            out.write(ofxType(type));
+            out.write("</TRNTYPE><DTPOSTED>");
+            String date = resultSet.getString(5);
+            String time = resultSet.getString(6);
+            // yyyy-MM-dd and HH:mm:ss to yyyyMMddHHmmss
+            out.write(date, 0, 4);
+            out.write(date, 5, 2);
+            out.write(date, 8, 2);
+            out.write(time, 0, 2);
+            out.write(time, 3, 2);
+            out.write(time, 6, 2);
+            out.write("</DTPOSTED><TRNAMT>");
+            if (debit) {
+                out.write('-');
+            }
+            out.write(amount.toPlainString());
+            out.write("</TRNAMT><FITID>");
+            out.write(resultSet.getString(2));
+            out.write("</FITID><NAME>");
+            writeText(type);
+            out.write("</NAME></STMTTRN>\n");
+        }
+
+        @Override
+        void end() throws IOException {
+            endCustomer();
+            out.write("</BANKMSGSRSV1></OFX>\n");
+        }
+
+        private static String ofxType(String type) {
+            switch (type) {
+                case "Deposit":
+                case "Opening Deposit":
+                    return "DEP";
+                case "Withdrawal":
+                    return "DEBIT";
+                case "Transfer":
+                    return "XFER";
+                case "Interest":
+                    return "INT";
+                default:
+                    return "OTHER";
+            }
+        }
+
+        private void writeText(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '&') {
+                    out.write("&amp;");
+                } else if (c == '<') {
+                    out.write("&lt;");
+                } else if (c == '>') {
+                    out.write("&gt;");
+                } else {
+                    out.write(c);
+                }
+            }
+        }
+    }
+}
@@ -1,64 +1,148 @@
 package com.banking.service;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.banking.model.CheckingAccount;
-import com.banking.model.SavingsAccount;
+import com.banking.model.AccountType;
+import com.banking.model.BankAccount;
 import com.banking.model.Transaction;
 import com.banking.model.Transaction.TransactionDetails;
+import com.banking.model.Transaction.TransactionPage;
+import com.banking.repository.Repositories;
+import com.banking.repository.RepositoryTransaction;
+import com.banking.util.MemoryLedger;
+import com.banking.util.ServiceExecutor;
 
 /**
  * Service class for transaction operations.
+ * Operations have {@code ...Async} counterparts that run on the shared
+ * {@link ServiceExecutor}; cancelling or timing out their futures cancels the
+ * underlying statements. A cancelled deposit or withdrawal rolls back its
+ * balance change together with its ledger entry.
  */
 public class TransactionService {
     private static final Logger LOGGER = Logger.getLogger(TransactionService.class.getName());
     
+    private final TransferEngine transferEngine = new TransferEngine();
+    
     /**
-     * Deposits funds into a checking account.
+     * Deposits funds into an account.
      * 
+     * @param type the account type
      * @param accountNumber the account number
      * @param customerId the customer ID
      * @param amount the amount to deposit
      * @return true if the deposit was successful, false otherwise
      */
-    public boolean depositToChecking(String accountNumber, String customerId, String amount) {
-        CheckingAccount account = new CheckingAccount(accountNumber);
-        boolean success = account.deposit(new BigDecimal(amount), customerId);
+    public boolean deposit(AccountType type, String accountNumber, String customerId, String amount) {
+        BankAccount account = type.newAccount(accountNumber);
+        BigDecimal value = new BigDecimal(amount);
+        Transaction transaction = new Transaction(accountNumber, customerId, amount);
+        boolean success = applyAndRecord(account, transaction,
+                connection -> account.deposit(connection, value, customerId));
         
         if (success) {
-            // Record the transaction
-            Transaction transaction = new Transaction(accountNumber, customerId, amount);
-            transaction.setTransactionType("Deposit");
-            transaction.recordTransaction();
+            BalanceCache.getInstance().invalidate(type, accountNumber);
         }
         
         return success;
     }
     
     /**
-     * Deposits funds into a savings account.
+     * Withdraws funds from an account.
      * 
+     * @param type the account type
      * @param accountNumber the account number
      * @param customerId the customer ID
-     * @param amount the amount to deposit
-     * @return true if the deposit was successful, false otherwise
+     * @param amount the amount to withdraw
+     * @return true if the withdrawal was successful, false otherwise
      */
-    public boolean depositToSavings(String accountNumber, String customerId, String amount) {
-        SavingsAccount account = new SavingsAccount(accountNumber);
-        boolean success = account.deposit(new BigDecimal(amount), customerId);
+    public boolean withdraw(AccountType type, String accountNumber, String customerId, String amount) {
+        BankAccount account = type.newAccount(accountNumber);
+        BigDecimal value = new BigDecimal(amount);
+        Transaction transaction = new Transaction(null, accountNumber, customerId, amount, "Withdrawal");
+        boolean success = applyAndRecord(account, transaction,
+                connection -> account.withdraw(connection, value, customerId));
         
         if (success) {
-            // Record the transaction
-            Transaction transaction = new Transaction(accountNumber, customerId, amount);
-            transaction.setTransactionType("Deposit");
-            transaction.recordTransaction();
+            BalanceCache.getInstance().invalidate(type, accountNumber);
         }
         
         return success;
     }
     
+    /**
+     * Applies a balance change and records its ledger entry. When accounts
+     * and ledger are both in the database the two commit in one transaction,
+     * so a failure or cancellation between them also undoes the balance
+     * change. Accounts held by the memory ledger, and entries sent to the
+     * asynchronous ledger writer, cannot join the transaction; for those the
+     * change is applied first and the entry recorded after it.
+     */
+    private boolean applyAndRecord(BankAccount account, Transaction transaction, BalanceChange change) {
+        boolean joinable = !MemoryLedger.handles(account.getAccountNumber())
+                && LedgerWriter.getSharedInstance() == null;
+        
+        try (RepositoryTransaction unit = joinable ? Repositories.beginTransaction() : null) {
+            Connection connection = unit != null ? unit.getConnection() : null;
+            if (!change.apply(connection)) {
+                return false;
+            }
+            
+            if (connection == null) {
+                // The change has committed; an entry that cannot be written now is repaired later
+                LedgerWriter.record(transaction);
+                return true;
+            }
+            
+            transaction.recordTransaction(connection);
+            unit.commit();
+            return true;
+            
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error applying " + transaction.getTransactionType().toLowerCase()
+                    + " to account " + account.getAccountNumber(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * One balance change, applied on the given connection.
+     */
+    private interface BalanceChange {
+        boolean apply(Connection connection) throws SQLException;
+    }
+    
+    /**
+     * Deposits funds into a checking account.
+     * 
+     * @param accountNumber the account number
+     * @param customerId the customer ID
+     * @param amount the amount to deposit
+     * @return true if the deposit was successful, false otherwise
+     */
+    public boolean depositToChecking(String accountNumber, String customerId, String amount) {
+        return deposit(AccountType.CHECKING, accountNumber, customerId, amount);
+    }
+    
+    /**
+     * Deposits funds into a savings account.
+     * 
+     * @param accountNumber the account number
+     * @param customerId the customer ID
+     * @param amount the amount to deposit
+     * @return true if the deposit was successful, false otherwise
+     */
+    public boolean depositToSavings(String accountNumber, String customerId, String amount) {
+        return deposit(AccountType.SAVINGS, accountNumber, customerId, amount);
+    }
+    
     /**
      * Withdraws funds from a checking account.
      * 
@@ -68,16 +152,7 @@ public class TransactionService {
      * @return true if the withdrawal was successful, false otherwise
      */
     public boolean withdrawFromChecking(String accountNumber, String customerId, String amount) {
-        CheckingAccount account = new CheckingAccount(accountNumber);
-        boolean success = account.withdraw(new BigDecimal(amount), customerId);
-        
-        if (success) {
-            // Record the transaction
-            Transaction transaction = new Transaction(null, accountNumber, customerId, amount, "Withdrawal");
-            transaction.recordTransaction();
-        }
-        
-        return success;
+        return withdraw(AccountType.CHECKING, accountNumber, customerId, amount);
     }
     
     /**
@@ -89,20 +164,12 @@ public class TransactionService {
      * @return true if the withdrawal was successful, false otherwise
      */
     public boolean withdrawFromSavings(String accountNumber, String customerId, String amount) {
-        SavingsAccount account = new SavingsAccount(accountNumber);
-        boolean success = account.withdraw(new BigDecimal(amount), customerId);
-        
-        if (success) {
-            // Record the transaction
-            Transaction transaction = new Transaction(null, accountNumber, customerId, amount, "Withdrawal");
-            transaction.recordTransaction();
-        }
-        
-        return success;
+        return withdraw(AccountType.SAVINGS, accountNumber, customerId, amount);
     }
     
     /**
      * Transfers funds between accounts.
+     * The debit, credit and ledger entry are applied in one database transaction.
      * 
      * @param fromAccountNumber the source account number
      * @param toAccountNumber the destination account number
@@ -114,70 +181,45 @@ public class TransactionService {
      */
     public boolean transfer(String fromAccountNumber, String toAccountNumber, String customerId, 
                           String amount, String fromAccountType, String toAccountType) {
-        
-        boolean withdrawSuccess = false;
-        
-        // Withdraw from the source account
-        if ("checking".equalsIgnoreCase(fromAccountType)) {
-            CheckingAccount fromAccount = new CheckingAccount(fromAccountNumber);
-            withdrawSuccess = fromAccount.withdraw(new BigDecimal(amount), customerId);
-        } else if ("savings".equalsIgnoreCase(fromAccountType)) {
-            SavingsAccount fromAccount = new SavingsAccount(fromAccountNumber);
-            withdrawSuccess = fromAccount.withdraw(new BigDecimal(amount), customerId);
-        } else {
+        AccountType fromType = AccountType.fromName(fromAccountType);
+        if (fromType == null) {
             LOGGER.warning("Invalid source account type: " + fromAccountType);
             return false;
         }
         
-        if (!withdrawSuccess) {
-            LOGGER.warning("Transfer failed during withdrawal from " + fromAccountType + " account: " + fromAccountNumber);
-            return false;
-        }
-        
-        // Deposit to the destination account
-        boolean depositSuccess = false;
-        
-        if ("checking".equalsIgnoreCase(toAccountType)) {
-            CheckingAccount toAccount = new CheckingAccount(toAccountNumber);
-            depositSuccess = toAccount.deposit(new BigDecimal(amount), customerId);
-        } else if ("savings".equalsIgnoreCase(toAccountType)) {
-            SavingsAccount toAccount = new SavingsAccount(toAccountNumber);
-            depositSuccess = toAccount.deposit(new BigDecimal(amount), customerId);
-        } else {
+        AccountType toType = AccountType.fromName(toAccountType);
+        if (toType == null) {
             LOGGER.warning("Invalid destination account type: " + toAccountType);
-            
-            // If deposit fails, revert the withdrawal
-            if ("checking".equalsIgnoreCase(fromAccountType)) {
-                CheckingAccount fromAccount = new CheckingAccount(fromAccountNumber);
-                fromAccount.deposit(new BigDecimal(amount), customerId);
-            } else if ("savings".equalsIgnoreCase(fromAccountType)) {
-                SavingsAccount fromAccount = new SavingsAccount(fromAccountNumber);
-                fromAccount.deposit(new BigDecimal(amount), customerId);
-            }
-            
             return false;
         }
         
-        if (!depositSuccess) {
-            LOGGER.warning("Transfer failed during deposit to " + toAccountType + " account: " + toAccountNumber);
-            
-            // If deposit fails, revert the withdrawal
-            if ("checking".equalsIgnoreCase(fromAccountType)) {
-                CheckingAccount fromAccount = new CheckingAccount(fromAccountNumber);
-                fromAccount.deposit(new BigDecimal(amount), customerId);
-            } else if ("savings".equalsIgnoreCase(fromAccountType)) {
-                SavingsAccount fromAccount = new SavingsAccount(fromAccountNumber);
-                fromAccount.deposit(new BigDecimal(amount), customerId);
-            }
-            
-            return false;
-        }
+        return transfer(fromAccountNumber, toAccountNumber, customerId, amount, fromType, toType);
+    }
+    
+    /**
+     * Transfers funds between accounts.
+     * The debit, credit and ledger entry are applied in one database transaction.
+     * 
+     * @param fromAccountNumber the source account number
+     * @param toAccountNumber the destination account number
+     * @param customerId the customer ID
+     * @param amount the amount to transfer
+     * @param fromType the source account type
+     * @param toType the destination account type
+     * @return true if the transfer was successful, false otherwise
+     */
+    public boolean transfer(String fromAccountNumber, String toAccountNumber, String customerId, 
+                          String amount, AccountType fromType, AccountType toType) {
+        BankAccount fromAccount = fromType.newAccount(fromAccountNumber);
+        BankAccount toAccount = toType.newAccount(toAccountNumber);
+        boolean success = transferEngine.transfer(fromAccount, toAccount, customerId, new BigDecimal(amount));
         
-        // Record the transaction
-        Transaction transaction = new Transaction(toAccountNumber, fromAccountNumber, customerId, amount, "Transfer");
-        transaction.recordTransaction();
+        if (success) {
+            BalanceCache.getInstance().invalidate(fromType, fromAccountNumber);
+            BalanceCache.getInstance().invalidate(toType, toAccountNumber);
+        }
         
-        return true;
+        return success;
     }
     
     /**
@@ -192,4 +234,146 @@ public class TransactionService {
         Transaction transaction = new Transaction(startDate, endDate);
         return transaction.searchTransactions(customerId);
     }
+    
+    /**
+     * Searches for one page of transactions within a date range, newest first.
+     * 
+     * @param customerId the customer ID
+     * @param startDate the start date (yyyy-MM-dd)
+     * @param endDate the end date (yyyy-MM-dd)
+     * @param pageSize the maximum number of transactions to return
+     * @param continuationToken the token from the previous page, or null for the first page
+     * @return the page of transactions and the token for the next page
+     */
+    public TransactionPage searchTransactions(String customerId, String startDate, String endDate,
+                                              int pageSize, String continuationToken) {
+        Transaction transaction = new Transaction(startDate, endDate);
+        return transaction.searchTransactions(customerId, pageSize, continuationToken);
+    }
+    
+    /**
+     * Streams every transaction within a date range to a consumer, newest first,
+     * without loading the whole history into memory.
+     * 
+     * @param customerId the customer ID
+     * @param startDate the start date (yyyy-MM-dd)
+     * @param endDate the end date (yyyy-MM-dd)
+     * @param consumer receives each transaction in order
+     * @return the number of transactions streamed
+     * @throws SQLException if a database access error occurs
+     */
+    public int streamTransactions(String customerId, String startDate, String endDate,
+                                  Consumer<TransactionDetails> consumer) throws SQLException {
+        Transaction transaction = new Transaction(startDate, endDate);
+        return transaction.forEachTransaction(customerId, consumer);
+    }
+    
+    /**
+     * Gets a version string that changes whenever the transactions within a
+     * date range change, for use as an HTTP entity tag.
+     * 
+     * @param customerId the customer ID
+     * @param startDate the start date (yyyy-MM-dd)
+     * @param endDate the end date (yyyy-MM-dd)
+     * @return the version, or null if the date range is invalid
+     * @throws SQLException if a database access error occurs
+     */
+    public String getHistoryVersion(String customerId, String startDate, String endDate) throws SQLException {
+        Transaction transaction = new Transaction(startDate, endDate);
+        return transaction.findHistoryVersion(customerId);
+    }
+    
+    /**
+     * Deposits funds into a checking account asynchronously.
+     * 
+     * @param accountNumber the account number
+     * @param customerId the customer ID
+     * @param amount the amount to deposit
+     * @return a future completed with true if the deposit was successful
+     */
+    public CompletableFuture<Boolean> depositToCheckingAsync(String accountNumber, String customerId, String amount) {
+        return ServiceExecutor.getInstance().submit(() -> depositToChecking(accountNumber, customerId, amount));
+    }
+    
+    /**
+     * Deposits funds into a savings account asynchronously.
+     * 
+     * @param accountNumber the account number
+     * @param customerId the customer ID
+     * @param amount the amount to deposit
+     * @return a future completed with true if the deposit was successful
+     */
+    public CompletableFuture<Boolean> depositToSavingsAsync(String accountNumber, String customerId, String amount) {
+        return ServiceExecutor.getInstance().submit(() -> depositToSavings(accountNumber, customerId, amount));
+    }
+    
+    /**
+     * Withdraws funds from a checking account asynchronously.
+     * 
+     * @param accountNumber the account number
+     * @param customerId the customer ID
+     * @param amount the amount to withdraw
+     * @return a future completed with true if the withdrawal was successful
+     */
+    public CompletableFuture<Boolean> withdrawFromCheckingAsync(String accountNumber, String customerId, String amount) {
+        return ServiceExecutor.getInstance().submit(() -> withdrawFromChecking(accountNumber, customerId, amount));
+    }
+    
+    /**
+     * Withdraws funds from a savings account asynchronously.
+     * 
+     * @param accountNumber the account number
+     * @param customerId the customer ID
+     * @param amount the amount to withdraw
+     * @return a future completed with true if the withdrawal was successful
+     */
+    public CompletableFuture<Boolean> withdrawFromSavingsAsync(String accountNumber, String customerId, String amount) {
+        return ServiceExecutor.getInstance().submit(() -> withdrawFromSavings(accountNumber, customerId, amount));
+    }
+    
+    /**
+     * Transfers funds between accounts asynchronously.
+     * 
+     * @param fromAccountNumber the source account number
+     * @param toAccountNumber the destination account number
+     * @param customerId the customer ID
+     * @param amount the amount to transfer
+     * @param fromAccountType the source account type (checking or savings)
+     * @param toAccountType the destination account type (checking or savings)
+     * @return a future completed with true if the transfer was successful
+     */
+    public CompletableFuture<Boolean> transferAsync(String fromAccountNumber, String toAccountNumber, String customerId,
+                                                    String amount, String fromAccountType, String toAccountType) {
+        return ServiceExecutor.getInstance().submit(() ->
+                transfer(fromAccountNumber, toAccountNumber, customerId, amount, fromAccountType, toAccountType));
+    }
+    
+    /**
+     * Searches for transactions within a date range asynchronously.
+     * 
+     * @param customerId the customer ID
+     * @param startDate the start date (yyyy-MM-dd)
+     * @param endDate the end date (yyyy-MM-dd)
+     * @return a future completed with the matching transactions
+     */
+    public CompletableFuture<List<TransactionDetails>> searchTransactionsAsync(String customerId, String startDate,
+                                                                               String endDate) {
+        return ServiceExecutor.getInstance().submit(() -> searchTransactions(customerId, startDate, endDate));
+    }
+    
+    /**
+     * Searches for one page of transactions within a date range asynchronously.
+     * 
+     * @param customerId the customer ID
+     * @param startDate the start date (yyyy-MM-dd)
+     * @param endDate the end date (yyyy-MM-dd)
+     * @param pageSize the maximum number of transactions to return
+     * @param continuationToken the token from the previous page, or null for the first page
+     * @return a future completed with the page of transactions
+     */
+    public CompletableFuture<TransactionPage> searchTransactionsAsync(String customerId, String startDate, String endDate,
+                                                                      int pageSize, String continuationToken) {
+        return ServiceExecutor.getInstance().submit(() ->
+                searchTransactions(customerId, startDate, endDate, pageSize, continuationToken));
+    }
 }
@@ -0,0 +1,192 @@
+package com.banking.service;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.banking.model.BankAccount;
+import com.banking.model.Transaction;
+import com.banking.repository.Repositories;
+import com.banking.repository.RepositoryTransaction;
+import com.banking.util.MemoryLedger;
+
+/**
+ * Moves funds between two accounts in a single JDBC transaction.
+ * The debit, the credit and the ledger entry commit or roll back together
+ * on one connection. Rows are always updated in account-number order, so
+ * two transfers running in opposite directions lock the same rows in the
+ * same order and cannot deadlock each other. Deadlocks with other work are
+ * retried with exponential backoff.
+ * <p>
+ * When the repositories do not keep data in the database there is no
+ * transaction to join: the debit is applied first, and if the credit is
+ * then rejected the debit is undone by crediting the source account back.
+ * <p>
+ * Accounts held by the {@link MemoryLedger} cannot join a database
+ * transaction, so transfers to or from them are rejected up front.
+ */
+public class TransferEngine {
+    private static final Logger LOGGER = Logger.getLogger(TransferEngine.class.getName());
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final long DEFAULT_BASE_BACKOFF_MILLIS = 10;
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+    private static final int SQL_SERVER_DEADLOCK_ERROR = 1205;
+
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+
+    /**
+     * Creates a transfer engine with the default retry policy.
+     */
+    public TransferEngine() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Creates a transfer engine.
+     *
+     * @param maxAttempts the maximum number of attempts when a deadlock is detected
+     * @param baseBackoffMillis the backoff before the first retry; doubled on each further retry
+     */
+    public TransferEngine(int maxAttempts, long baseBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+    }
+
+    /**
+     * Transfers funds between two accounts.
+     *
+     * @param fromAccount the source account
+     * @param toAccount the destination account
+     * @param customerId the customer ID that must own both accounts
+     * @param amount the amount to transfer
+     * @return true if the transfer was committed, false otherwise
+     */
+    public boolean transfer(BankAccount fromAccount, BankAccount toAccount, String customerId, BigDecimal amount) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            LOGGER.warning("Invalid transfer amount: " + amount);
+            return false;
+        }
+
+        if (compareLockOrder(fromAccount, toAccount) == 0) {
+            LOGGER.warning("Cannot transfer an account to itself: " + fromAccount.getAccountNumber());
+            return false;
+        }
+
+        if (MemoryLedger.handles(fromAccount.getAccountNumber())
+                || MemoryLedger.handles(toAccount.getAccountNumber())) {
+            LOGGER.warning("Transfers are not supported for memory ledger accounts: from "
+                    + fromAccount.getAccountNumber() + " to " + toAccount.getAccountNumber());
+            return false;
+        }
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                return attemptTransfer(fromAccount, toAccount, customerId, amount);
+            } catch (SQLException e) {
+                if (!isDeadlock(e) || attempt == maxAttempts) {
+                    LOGGER.log(Level.SEVERE, "Transfer failed from account " + fromAccount.getAccountNumber()
+                            + " to " + toAccount.getAccountNumber(), e);
+                    return false;
+                }
+
+                LOGGER.info("Deadlock on transfer attempt " + attempt + ", retrying");
+                if (!backOff(attempt)) {
+                    return false;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Runs one transfer attempt in its own transaction.
+     *
+     * @return true if committed, false if rolled back because a leg was rejected
+     * @throws SQLException if a database error occurs; the transaction has been rolled back
+     */
+    private boolean attemptTransfer(BankAccount fromAccount, BankAccount toAccount, String customerId,
+                                    BigDecimal amount) throws SQLException {
+        try (RepositoryTransaction unit = Repositories.beginTransaction()) {
+            Connection connection = unit.getConnection();
+            boolean debitFirst = connection == null || compareLockOrder(fromAccount, toAccount) < 0;
+
+            if (debitFirst && fromAccount.debit(connection, amount, customerId) == null) {
+                unit.rollback();
+                LOGGER.warning("Transfer rejected: insufficient funds or unknown source account "
+                        + fromAccount.getAccountNumber());
+                return false;
+            }
+
+            if (toAccount.credit(connection, amount, customerId) == null) {
+                unit.rollback();
+                if (connection == null) {
+                    fromAccount.credit(null, amount, customerId);
+                }
+                LOGGER.warning("Transfer rejected: unknown destination account " + toAccount.getAccountNumber());
+                return false;
+            }
+
+            if (!debitFirst && fromAccount.debit(connection, amount, customerId) == null) {
+                unit.rollback();
+                LOGGER.warning("Transfer rejected: insufficient funds or unknown source account "
+                        + fromAccount.getAccountNumber());
+                return false;
+            }
+
+            Transaction transaction = new Transaction(toAccount.getAccountNumber(), fromAccount.getAccountNumber(),
+                    customerId, amount.toPlainString(), "Transfer");
+            transaction.recordTransaction(connection);
+
+            unit.commit();
+            LOGGER.info("Transfer committed from account " + fromAccount.getAccountNumber()
+                    + " to " + toAccount.getAccountNumber());
+            return true;
+        }
+    }
+
+    /**
+     * Orders accounts by account number, then by account type for accounts
+     * of different types that share a number.
+     */
+    private int compareLockOrder(BankAccount first, BankAccount second) {
+        int byNumber = first.getAccountNumber().compareTo(second.getAccountNumber());
+        if (byNumber != 0) {
+            return byNumber;
+        }
+        return first.getAccountType().compareTo(second.getAccountType());
+    }
+
+    private boolean isDeadlock(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (current.getErrorCode() == SQL_SERVER_DEADLOCK_ERROR || "40001".equals(current.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sleeps for a jittered, exponentially growing interval.
+     *
+     * @return false if the thread was interrupted
+     */
+    private boolean backOff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, baseBackoffMillis << Math.min(attempt - 1, 20));
+        long sleepMillis = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        try {
+            Thread.sleep(sleepMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
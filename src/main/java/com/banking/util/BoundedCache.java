@@ -0,0 +1,263 @@
+package com.banking.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Size- and time-bounded LRU cache with hit, miss and eviction counters.
+ * Loads run outside the lock, so a slow load never blocks other readers.
+ * A load only populates the cache if its key was not invalidated while it
+ * was running; a value read before a write therefore can never overwrite the
+ * invalidation that write performed. Invalidating one key does not discard
+ * loads of other keys.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Map<K, Load> loads = new HashMap<>();
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxSize the maximum number of entries
+     * @param ttlMillis how long an entry stays valid, or 0 for no expiry
+     */
+    public BoundedCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis > 0 ? ttlMillis * 1000000L : Long.MAX_VALUE;
+        this.entries = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true);
+    }
+
+    /**
+     * Gets a value, loading it on a miss.
+     *
+     * @param key the key
+     * @param loader computes the value on a miss; a null result is not cached
+     * @return the cached or loaded value
+     */
+    public V get(K key, Function<K, V> loader) {
+        Load load;
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.loadedAt < ttlNanos) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.increment();
+            }
+            load = loads.get(key);
+            if (load == null) {
+                load = new Load();
+                loads.put(key, load);
+            }
+            load.readers++;
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        V value = null;
+        try {
+            value = loader.apply(key);
+        } finally {
+            finishLoad(key, load, value);
+        }
+        return value;
+    }
+
+    /**
+     * Gets a value without loading it.
+     *
+     * @param key the key
+     * @return the cached value, or null if absent or expired
+     */
+    public V getIfPresent(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.loadedAt < ttlNanos) {
+                hits.increment();
+                return entry.value;
+            }
+            misses.increment();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a value unconditionally.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            entries.put(key, new Entry<>(value));
+            evictOverflow();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces a cached value with an updated copy. If no live value is cached,
+     * any load in flight is cancelled instead, so the next read reloads.
+     *
+     * @param key the key
+     * @param updater computes the new value from the cached one
+     */
+    public void update(K key, Function<V, V> updater) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.loadedAt < ttlNanos) {
+                entries.put(key, new Entry<>(updater.apply(entry.value)));
+            } else {
+                cancelLoad(key);
+                entries.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a loaded value unless its key was invalidated during the load.
+     */
+    private void finishLoad(K key, Load load, V value) {
+        lock.lock();
+        try {
+            if (value != null && !load.cancelled) {
+                entries.put(key, new Entry<>(value));
+                evictOverflow();
+            }
+            if (--load.readers == 0 && loads.get(key) == load) {
+                loads.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cancelLoad(K key) {
+        Load load = loads.remove(key);
+        if (load != null) {
+            load.cancelled = true;
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Removes a key and cancels any load for it that is still in flight.
+     *
+     * @param key the key
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            cancelLoad(key);
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry and cancels all loads in flight.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            for (Load load : loads.values()) {
+                load.cancelled = true;
+            }
+            loads.clear();
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + "/" + maxSize + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount();
+    }
+
+    /**
+     * The loads of one key in flight. Loads started after the key is
+     * invalidated share a new instance, so they are not cancelled.
+     */
+    private static class Load {
+        private int readers;
+        private boolean cancelled;
+    }
+
+    /**
+     * A cached value and the time it was loaded.
+     */
+    private static class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        Entry(V value) {
+            this.value = value;
+            this.loadedAt = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.banking.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool.
+ * Connections are handed out as proxies; closing the proxy returns the
+ * physical connection to the pool instead of closing it. Idle connections
+ * are reused most-recently-returned first so that the least used ones age
+ * out through idle eviction.
+ */
+public class ConnectionPool {
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final PoolConfig config;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    private final ScheduledExecutorService housekeeper;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a connection pool.
+     *
+     * @param url the JDBC URL
+     * @param username the database user, or null to rely on the URL
+     * @param password the database password, or null to rely on the URL
+     * @param config the pool configuration
+     */
+    public ConnectionPool(String url, String username, String password, PoolConfig config) {
+        config.validate();
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getHousekeepingIntervalMillis();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the configured acquire timeout.
+     *
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLException if the pool is closed, the timeout expires or a connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMillis());
+
+        waiters.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                acquireTimeouts.increment();
+                throw new SQLTimeoutException("Timed out after " + config.getAcquireTimeoutMillis()
+                        + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+
+        try {
+            PooledConnection connection = takeConnection(deadline);
+            active.add(connection);
+            acquireLatency.record(System.nanoTime() - start);
+            return connection.borrow(config.getLeakDetectionThresholdMillis() > 0);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes a valid idle connection or opens a new one. The caller holds a permit.
+     */
+    private PooledConnection takeConnection(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection connection = idle.pollFirst();
+
+            if (connection == null && reserveSlot()) {
+                try {
+                    return openConnection();
+                } catch (SQLException | RuntimeException e) {
+                    totalConnections.decrementAndGet();
+                    throw e;
+                }
+            }
+
+            if (connection == null) {
+                // Another thread is opening a connection for the idle set; wait for it
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    acquireTimeouts.increment();
+                    throw new SQLTimeoutException("Timed out waiting for a database connection");
+                }
+                try {
+                    connection = idle.pollFirst(remaining, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection", e);
+                }
+                if (connection == null) {
+                    continue;
+                }
+            }
+
+            if (connection.validate(config.getValidationTimeoutSeconds(), config.getValidationBypassMillis())) {
+                return connection;
+            }
+
+            LOGGER.info("Discarding invalid pooled connection");
+            discard(connection);
+        }
+    }
+
+    /**
+     * Returns a connection to the pool. Called when a borrower closes its handle.
+     *
+     * @param connection the connection being returned
+     */
+    void release(PooledConnection connection) {
+        try {
+            active.remove(connection);
+            if (closed || !connection.reset()) {
+                discard(connection);
+            } else {
+                idle.offerFirst(connection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = totalConnections.get();
+            if (current >= config.getMaxSize()) {
+                return false;
+            }
+            if (totalConnections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection physical = username == null
+                ? DriverManager.getConnection(url)
+                : DriverManager.getConnection(url, username, password);
+        return new PooledConnection(this, physical, config.getStatementCacheSize());
+    }
+
+    private void discard(PooledConnection connection) {
+        totalConnections.decrementAndGet();
+        connection.closePhysical();
+    }
+
+    /**
+     * Evicts idle connections, reports leaks and tops the pool up to the minimum idle size.
+     */
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Evict from the tail, where the longest-idle connections sit
+            long idleTimeout = config.getIdleTimeoutMillis();
+            if (idleTimeout > 0) {
+                Iterator<PooledConnection> iterator = idle.descendingIterator();
+                while (iterator.hasNext() && idle.size() > config.getMinIdle()) {
+                    PooledConnection connection = iterator.next();
+                    if (now - connection.getLastReturnedAt() > idleTimeout && idle.remove(connection)) {
+                        discard(connection);
+                    }
+                }
+            }
+
+            long leakThreshold = config.getLeakDetectionThresholdMillis();
+            if (leakThreshold > 0) {
+                for (PooledConnection connection : active) {
+                    if (!connection.isLeakReported() && now - connection.getBorrowedAt() > leakThreshold) {
+                        connection.setLeakReported(true);
+                        leaksDetected.increment();
+                        LOGGER.log(Level.WARNING, "Possible connection leak: connection held for more than "
+                                + leakThreshold + "ms", connection.getBorrowSite());
+                    }
+                }
+            }
+
+            while (!closed && idle.size() < config.getMinIdle() && reserveSlot()) {
+                try {
+                    idle.offerLast(openConnection());
+                } catch (SQLException e) {
+                    totalConnections.decrementAndGet();
+                    LOGGER.log(Level.WARNING, "Error opening idle connection", e);
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error during connection pool housekeeping", e);
+        }
+    }
+
+    /**
+     * Gets a snapshot of the pool statistics.
+     *
+     * @return the pool statistics
+     */
+    public PoolStatistics getStatistics() {
+        return new PoolStatistics(active.size(), idle.size(), totalConnections.get(), waiters.get(),
+                acquireTimeouts.sum(), leaksDetected.sum(), acquireLatency.snapshot());
+    }
+
+    /**
+     * Gets the pool configuration.
+     *
+     * @return the pool configuration
+     */
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Closes the pool. Idle connections are closed immediately and borrowed
+     * connections are closed as they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+    }
+}
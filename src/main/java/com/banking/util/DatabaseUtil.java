@@ -1,5 +1,6 @@
 package com.banking.util;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.Properties;
 import java.io.FileInputStream;
@@ -10,14 +11,16 @@ import java.util.logging.Logger;
 /**
  * Database utility class for managing database connections.
  * This class implements the Singleton pattern for centralized database access.
+ * Connections are served from a bounded {@link ConnectionPool}.
  */
 public class DatabaseUtil {
     private static final Logger LOGGER = Logger.getLogger(DatabaseUtil.class.getName());
-    private static DatabaseUtil instance;
+    private static volatile DatabaseUtil instance;
     private String url;
     private String username;
     private String password;
     private String driverClass;
+    private ConnectionPool connectionPool;
     
     /**
      * Private constructor to prevent direct instantiation.
@@ -30,6 +33,8 @@ public class DatabaseUtil {
             
             // Load the JDBC driver
             Class.forName(driverClass);
+            
+            connectionPool = new ConnectionPool(url, username, password, PoolConfig.fromSystemProperties());
         } catch (ClassNotFoundException e) {
             LOGGER.log(Level.SEVERE, "Failed to load database driver", e);
             throw new RuntimeException("Failed to load database driver", e);
@@ -38,30 +43,49 @@ public class DatabaseUtil {
     
     /**
      * Gets the singleton instance of the DatabaseUtil.
+     * The instance is created lazily on first use; once created it is read
+     * without taking a monitor. If creation fails, for example because the
+     * driver is missing, the next call tries again.
      * 
      * @return the singleton instance
      */
-    public static synchronized DatabaseUtil getInstance() {
-        if (instance == null) {
-            instance = new DatabaseUtil();
+    public static DatabaseUtil getInstance() {
+        DatabaseUtil current = instance;
+        if (current == null) {
+            synchronized (DatabaseUtil.class) {
+                current = instance;
+                if (current == null) {
+                    current = new DatabaseUtil();
+                    instance = current;
+                }
+            }
         }
-        return instance;
+        return current;
     }
     
     /**
-     * Opens a database connection.
+     * Borrows a database connection from the connection pool.
      * 
      * @return a Connection object representing the connection to the database
-     * @throws SQLException if a database access error occurs
+     * @throws SQLException if a database access error occurs or no connection becomes available in time
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url);
+        return connectionPool.getConnection();
     }
     
     /**
-     * Closes a database connection.
+     * Gets a snapshot of the connection pool statistics.
      * 
-     * @param connection the Connection object to close
+     * @return the pool statistics
+     */
+    public PoolStatistics getPoolStatistics() {
+        return connectionPool.getStatistics();
+    }
+    
+    /**
+     * Returns a database connection to the connection pool.
+     * 
+     * @param connection the Connection object to return
      */
     public void closeConnection(Connection connection) {
         if (connection != null) {
@@ -144,6 +168,152 @@ public class DatabaseUtil {
         }
     }
     
+    /**
+     * Executes a parameterized query with proper resource handling.
+     * The statement is served from the connection's prepared statement cache.
+     * 
+     * @param sql the SQL query to execute, with {@code ?} placeholders
+     * @param processor a functional interface to process the ResultSet
+     * @param parameters the values to bind to the placeholders, in order
+     * @param <T> the return type
+     * @return the result of processing the query
+     * @throws SQLException if a database access error occurs
+     */
+    public <T> T executeQuery(String sql, ResultSetProcessor<T> processor, Object... parameters) throws SQLException {
+        Connection connection = null;
+        
+        try {
+            connection = getConnection();
+            return executeQuery(connection, sql, processor, parameters);
+        } finally {
+            closeConnection(connection);
+        }
+    }
+    
+    /**
+     * Executes a parameterized query on a connection the caller already holds.
+     * The connection is left open.
+     * 
+     * @param connection the connection to use
+     * @param sql the SQL query to execute, with {@code ?} placeholders
+     * @param processor a functional interface to process the ResultSet
+     * @param parameters the values to bind to the placeholders, in order
+     * @param <T> the return type
+     * @return the result of processing the query
+     * @throws SQLException if a database access error occurs
+     */
+    public <T> T executeQuery(Connection connection, String sql, ResultSetProcessor<T> processor,
+                              Object... parameters) throws SQLException {
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        
+        try {
+            statement = connection.prepareStatement(sql);
+            bindParameters(statement, parameters);
+            resultSet = statement.executeQuery();
+            return processor.process(resultSet);
+        } finally {
+            closeResources(null, statement, resultSet);
+        }
+    }
+    
+    /**
+     * Executes a parameterized query whose rows are consumed as they arrive.
+     * The fetch size lets the driver pull rows from the server in blocks
+     * rather than buffering the whole result, so large results can be
+     * streamed in constant memory.
+     * 
+     * @param sql the SQL query to execute, with {@code ?} placeholders
+     * @param fetchSize the number of rows to fetch per round trip
+     * @param processor a functional interface to process the ResultSet
+     * @param parameters the values to bind to the placeholders, in order
+     * @param <T> the return type
+     * @return the result of processing the query
+     * @throws SQLException if a database access error occurs
+     */
+    public <T> T executeStreamingQuery(String sql, int fetchSize, ResultSetProcessor<T> processor,
+                                       Object... parameters) throws SQLException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        
+        try {
+            connection = getConnection();
+            statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            bindParameters(statement, parameters);
+            resultSet = statement.executeQuery();
+            return processor.process(resultSet);
+        } finally {
+            closeResources(connection, statement, resultSet);
+        }
+    }
+    
+    /**
+     * Executes a parameterized update with proper resource handling.
+     * The statement is served from the connection's prepared statement cache.
+     * 
+     * @param sql the SQL update statement to execute, with {@code ?} placeholders
+     * @param parameters the values to bind to the placeholders, in order
+     * @return the row count for SQL Data Manipulation Language statements
+     * @throws SQLException if a database access error occurs
+     */
+    public int executeUpdate(String sql, Object... parameters) throws SQLException {
+        Connection connection = null;
+        
+        try {
+            connection = getConnection();
+            return executeUpdate(connection, sql, parameters);
+        } finally {
+            closeConnection(connection);
+        }
+    }
+    
+    /**
+     * Executes a parameterized update on a connection the caller already holds.
+     * The connection is left open.
+     * 
+     * @param connection the connection to use
+     * @param sql the SQL update statement to execute, with {@code ?} placeholders
+     * @param parameters the values to bind to the placeholders, in order
+     * @return the row count for SQL Data Manipulation Language statements
+     * @throws SQLException if a database access error occurs
+     */
+    public int executeUpdate(Connection connection, String sql, Object... parameters) throws SQLException {
+        PreparedStatement statement = null;
+        
+        try {
+            statement = connection.prepareStatement(sql);
+            bindParameters(statement, parameters);
+            return statement.executeUpdate();
+        } finally {
+            closeResources(null, statement, null);
+        }
+    }
+    
+    /**
+     * Binds values to the placeholders of a prepared statement.
+     * Null values are bound as SQL NULL.
+     * 
+     * @param statement the prepared statement
+     * @param parameters the values to bind, in placeholder order
+     * @throws SQLException if a value cannot be bound
+     */
+    public void bindParameters(PreparedStatement statement, Object... parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            Object parameter = parameters[i];
+            if (parameter == null) {
+                statement.setNull(i + 1, Types.VARCHAR);
+            } else if (parameter instanceof String) {
+                statement.setString(i + 1, (String) parameter);
+            } else if (parameter instanceof BigDecimal) {
+                statement.setBigDecimal(i + 1, (BigDecimal) parameter);
+            } else {
+                statement.setObject(i + 1, parameter);
+            }
+        }
+    }
+    
     /**
      * Functional interface for processing a ResultSet.
      * 
@@ -0,0 +1,100 @@
+package com.banking.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets.
+ * Bucket {@code i} counts samples below {@code 2^i} microseconds; the last
+ * bucket collects everything slower.
+ */
+public class LatencyHistogram {
+    private static final int BUCKET_COUNT = 28;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Records a latency sample.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        buckets.incrementAndGet(Math.min(bucket, BUCKET_COUNT - 1));
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * Takes a point-in-time copy of the histogram.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, totalNanos.sum());
+    }
+
+    /**
+     * Immutable copy of the histogram counts.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long totalNanos;
+        private final long sampleCount;
+
+        Snapshot(long[] counts, long totalNanos) {
+            this.counts = counts;
+            this.totalNanos = totalNanos;
+            long sum = 0;
+            for (long count : counts) {
+                sum += count;
+            }
+            this.sampleCount = sum;
+        }
+
+        /**
+         * Gets the upper bound in microseconds of the bucket containing the
+         * requested percentile.
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the latency upper bound in microseconds, or 0 if empty
+         */
+        public long getPercentileMicros(double percentile) {
+            if (sampleCount == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(sampleCount * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return 1L << i;
+                }
+            }
+            return 1L << (counts.length - 1);
+        }
+
+        public long getMeanMicros() {
+            return sampleCount == 0 ? 0 : totalNanos / sampleCount / 1000;
+        }
+
+        public long getSampleCount() {
+            return sampleCount;
+        }
+
+        public long[] getBucketCounts() {
+            return counts.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "samples=" + sampleCount + ", meanUs=" + getMeanMicros()
+                    + ", p50Us<=" + getPercentileMicros(50) + ", p99Us<=" + getPercentileMicros(99);
+        }
+    }
+}
@@ -0,0 +1,735 @@
+package com.banking.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory balance store for high-volume accounts, used by the account
+ * models in place of the database for account numbers that start with the
+ * {@code banking.memoryLedger.accountPrefix} system property. Without that
+ * property the engine is never started.
+ * <p>
+ * Accounts are spread over shards by account number. Each shard has one
+ * writer thread that owns its balances, so updates need no locks: the thread
+ * takes a batch of queued operations, applies them, appends one record per
+ * change to the shard's {@link WriteAheadLog} and syncs the log once for the
+ * whole batch. Only then are the new balances published to readers and the
+ * callers' futures completed, so a balance that can be read is always
+ * durable. Reads never wait for the writer.
+ * <p>
+ * After {@code banking.memoryLedger.snapshotEvery} records a shard writes
+ * every balance to a new snapshot file and starts a new log; the previous
+ * generation is then deleted. On start-up each shard loads its newest
+ * complete snapshot and replays the logs written after it, and refuses to
+ * start if one of those logs is missing. {@link MemoryLedgerRecoveryCheck}
+ * runs the crash cases recovery must handle. If a log sync fails the
+ * shard rejects all further operations until restarted, because its
+ * in-memory state may be ahead of the disk.
+ * <p>
+ * Balances are held as whole units of 0.0001, the scale of the balance
+ * columns. Transfers are not supported for these accounts: a transfer runs
+ * in a database transaction and cannot include a shard.
+ */
+public class MemoryLedger implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(MemoryLedger.class.getName());
+
+    /** Account kind for checking accounts. */
+    public static final char CHECKING = 'C';
+    /** Account kind for savings accounts. */
+    public static final char SAVINGS = 'S';
+
+    private static final int SCALE = 4;
+    private static final int DEFAULT_QUEUE_SIZE = 8192;
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final long DEFAULT_SNAPSHOT_EVERY = 1000000L;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final long POLL_MILLIS = 50;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000;
+    private static final int LOG_BUFFER_BYTES = 256 * 1024;
+    private static final int MAX_RECORD_BYTES = 1024;
+    /** Keeps any two identifiers, UTF-8 encoded, within one record. */
+    private static final int MAX_ID_LENGTH = 128;
+
+    private static final byte OP_END = 0;
+    private static final byte OP_OPEN = 1;
+    private static final byte OP_CREDIT = 2;
+    private static final byte OP_DEBIT = 3;
+
+    private static final String ACCOUNT_PREFIX = System.getProperty("banking.memoryLedger.accountPrefix", "");
+
+    private final Shard[] shards;
+    /** Durable balances by account key, readable from any thread. */
+    private final Map<String, AccountState> published = new ConcurrentHashMap<>();
+    /** Account numbers by account kind and customer ID. */
+    private final Map<String, String> customerIndex = new ConcurrentHashMap<>();
+    private final int queueSize;
+    private final int batchSize;
+    private final long snapshotEvery;
+
+    private volatile boolean accepting = true;
+
+    /**
+     * Opens the engine, recovering each shard from its snapshot and log, and
+     * starts the writer threads.
+     *
+     * @param directory the directory holding the shards' files
+     * @param shardCount the number of shards; must stay the same between runs
+     * @param queueSize the maximum number of queued operations per shard
+     * @param batchSize the maximum number of operations per log sync
+     * @param snapshotEvery the number of log records after which a shard writes a snapshot
+     * @throws IOException if a shard's files cannot be read or created
+     */
+    public MemoryLedger(Path directory, int shardCount, int queueSize, int batchSize, long snapshotEvery)
+            throws IOException {
+        if (shardCount < 1 || queueSize < 1 || batchSize < 1 || snapshotEvery < 1) {
+            throw new IllegalArgumentException("shardCount, queueSize, batchSize and snapshotEvery must be at least 1");
+        }
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+        this.snapshotEvery = snapshotEvery;
+        this.shards = new Shard[shardCount];
+
+        Files.createDirectories(directory);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, directory.resolve("shard-" + i));
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        LOGGER.info("Memory ledger started with " + shardCount + " shards and " + published.size()
+                + " accounts in " + directory);
+    }
+
+    /**
+     * Gets the shared engine, recovering it from disk on first use.
+     *
+     * @return the shared engine
+     */
+    public static MemoryLedger getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Checks whether an account is held by the memory ledger rather than the database.
+     *
+     * @param accountNumber the account number
+     * @return true if the account number starts with the configured prefix
+     */
+    public static boolean handles(String accountNumber) {
+        return !ACCOUNT_PREFIX.isEmpty() && accountNumber != null && accountNumber.startsWith(ACCOUNT_PREFIX);
+    }
+
+    /**
+     * Checks whether the memory ledger is configured.
+     *
+     * @return true if {@code banking.memoryLedger.accountPrefix} is set
+     */
+    public static boolean isEnabled() {
+        return !ACCOUNT_PREFIX.isEmpty();
+    }
+
+    /**
+     * Opens an account with an initial balance.
+     *
+     * @param kind {@link #CHECKING} or {@link #SAVINGS}
+     * @param accountNumber the account number
+     * @param customerId the owning customer ID
+     * @param balance the initial balance
+     * @return true if the account was opened, false if it exists or the operation failed
+     */
+    public boolean openAccount(char kind, String accountNumber, String customerId, BigDecimal balance) {
+        return call(OP_OPEN, kind, accountNumber, customerId, balance) != null;
+    }
+
+    /**
+     * Adds funds to an account.
+     *
+     * @param kind {@link #CHECKING} or {@link #SAVINGS}
+     * @param accountNumber the account number
+     * @param customerId the customer ID that must own the account
+     * @param amount the amount to add
+     * @return the new balance, or null if the account was not found or the operation failed
+     */
+    public BigDecimal credit(char kind, String accountNumber, String customerId, BigDecimal amount) {
+        return call(OP_CREDIT, kind, accountNumber, customerId, amount);
+    }
+
+    /**
+     * Removes funds from an account if the balance covers them.
+     *
+     * @param kind {@link #CHECKING} or {@link #SAVINGS}
+     * @param accountNumber the account number
+     * @param customerId the customer ID that must own the account
+     * @param amount the amount to remove
+     * @return the new balance, or null if the account was not found, has insufficient
+     *         funds or the operation failed
+     */
+    public BigDecimal debit(char kind, String accountNumber, String customerId, BigDecimal amount) {
+        return call(OP_DEBIT, kind, accountNumber, customerId, amount);
+    }
+
+    /**
+     * Queues a credit without waiting for it, so one caller can keep many
+     * operations in flight.
+     *
+     * @return a future completed with the new balance once it is durable, or with
+     *         null if the account was not found
+     * @throws RejectedExecutionException if the engine is closed or the shard's queue stays full
+     */
+    public CompletableFuture<BigDecimal> submitCredit(char kind, String accountNumber, String customerId,
+            BigDecimal amount) {
+        return submit(OP_CREDIT, kind, accountNumber, customerId, amount);
+    }
+
+    /**
+     * Queues a debit without waiting for it.
+     *
+     * @return a future completed with the new balance once it is durable, or with
+     *         null if the account was not found or has insufficient funds
+     * @throws RejectedExecutionException if the engine is closed or the shard's queue stays full
+     */
+    public CompletableFuture<BigDecimal> submitDebit(char kind, String accountNumber, String customerId,
+            BigDecimal amount) {
+        return submit(OP_DEBIT, kind, accountNumber, customerId, amount);
+    }
+
+    /**
+     * Gets an account's balance without waiting for queued operations.
+     *
+     * @param kind {@link #CHECKING} or {@link #SAVINGS}
+     * @param accountNumber the account number
+     * @return the last durable balance, or null if the account does not exist
+     */
+    public BigDecimal getBalance(char kind, String accountNumber) {
+        AccountState state = published.get(kind + accountNumber);
+        return state != null ? BigDecimal.valueOf(state.durable, SCALE) : null;
+    }
+
+    /**
+     * Finds the account a customer holds in the memory ledger.
+     *
+     * @param kind {@link #CHECKING} or {@link #SAVINGS}
+     * @param customerId the customer ID
+     * @return the account number, or null if the customer has no such account here
+     */
+    public String findAccountNumber(char kind, String customerId) {
+        return customerIndex.get(kind + customerId);
+    }
+
+    /**
+     * Gets the number of accounts held.
+     *
+     * @return the account count
+     */
+    public int getAccountCount() {
+        return published.size();
+    }
+
+    /**
+     * Stops accepting operations, applies everything already queued and
+     * closes the shards' logs.
+     */
+    @Override
+    public void close() {
+        accepting = false;
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (shard.thread.isAlive()) {
+                LOGGER.warning("Memory ledger shard " + shard.index + " did not drain within "
+                        + SHUTDOWN_TIMEOUT_MILLIS + "ms");
+                continue;
+            }
+            // Operations that raced with close() after the writer thread exited
+            List<Pending> stranded = new ArrayList<>();
+            shard.queue.drainTo(stranded);
+            for (Pending pending : stranded) {
+                pending.future.completeExceptionally(new RejectedExecutionException("Memory ledger is closed"));
+            }
+        }
+    }
+
+    private CompletableFuture<BigDecimal> submit(byte op, char kind, String accountNumber, String customerId,
+            BigDecimal amount) {
+        if (!accepting) {
+            throw new RejectedExecutionException("Memory ledger is closed");
+        }
+        if (accountNumber == null || customerId == null || amount == null || amount.signum() < 0
+                || (op != OP_OPEN && amount.signum() == 0)) {
+            throw new IllegalArgumentException("Account number, customer ID and a positive amount are required");
+        }
+        if (accountNumber.length() > MAX_ID_LENGTH || customerId.length() > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("Account number and customer ID must be at most "
+                    + MAX_ID_LENGTH + " characters");
+        }
+
+        String key = kind + accountNumber;
+        Pending pending = new Pending(op, key, customerId, toUnits(amount));
+        Shard shard = shards[(key.hashCode() & Integer.MAX_VALUE) % shards.length];
+        if (shard.failure != null) {
+            throw new RejectedExecutionException("Memory ledger shard " + shard.index + " has failed",
+                    shard.failure);
+        }
+
+        try {
+            if (!shard.queue.offer(pending, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Memory ledger shard " + shard.index + " queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while queuing memory ledger operation", e);
+        }
+        return pending.future;
+    }
+
+    private static long toUnits(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount does not fit the balance scale: " + amount, e);
+        }
+    }
+
+    /**
+     * Runs an operation and waits for it to become durable. Failures are
+     * logged and reported as null, like the database-backed accounts do.
+     */
+    private BigDecimal call(byte op, char kind, String accountNumber, String customerId, BigDecimal amount) {
+        try {
+            return submit(op, kind, accountNumber, customerId, amount).get();
+        } catch (RejectedExecutionException | IllegalArgumentException e) {
+            LOGGER.warning("Memory ledger refused operation on " + accountNumber + ": " + e.getMessage());
+            return null;
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Memory ledger operation on " + accountNumber + " failed", e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Balance of one account. {@code working} is only touched by the owning
+     * writer thread; {@code durable} is copied from it after each log sync.
+     */
+    private static final class AccountState {
+        private final String customerId;
+        private long working;
+        private volatile long durable;
+
+        private AccountState(String customerId, long balance) {
+            this.customerId = customerId;
+            this.working = balance;
+            this.durable = balance;
+        }
+    }
+
+    private static final class Pending {
+        private final byte op;
+        private final String key;
+        private final String customerId;
+        private final long units;
+        private final CompletableFuture<BigDecimal> future = new CompletableFuture<>();
+        /** The account changed by this operation, or null if it was refused. */
+        private AccountState applied;
+
+        private Pending(byte op, String key, String customerId, long units) {
+            this.op = op;
+            this.key = key;
+            this.customerId = customerId;
+            this.units = units;
+        }
+    }
+
+    /**
+     * One partition of the accounts with its writer thread and files. A
+     * shard's files are generation-numbered: {@code snapshot-<n>.dat} holds
+     * every balance at the moment {@code wal-<n>.log} was started.
+     */
+    private final class Shard {
+        private final int index;
+        private final Path directory;
+        private final ArrayBlockingQueue<Pending> queue;
+        private final Thread thread;
+        /** Owned by the writer thread once it starts. */
+        private final Map<String, AccountState> accounts = new HashMap<>();
+        private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_BYTES);
+        private WriteAheadLog log;
+        private long generation;
+        /** The oldest generation that may still have files on disk. */
+        private long oldestGeneration;
+        private long recordsSinceSnapshot;
+        private volatile IOException failure;
+
+        private Shard(int index, Path directory) throws IOException {
+            this.index = index;
+            this.directory = directory;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            Files.createDirectories(directory);
+            recover();
+            this.thread = new Thread(this::run, "memory-ledger-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Loads the newest complete snapshot that every later log still
+         * follows, replays those logs and publishes the result. A snapshot
+         * whose own log or a later one is missing is skipped, since replaying
+         * around the gap would silently lose its records.
+         *
+         * @throws IOException if no snapshot, or the empty start, is followed by a complete chain of logs
+         */
+        private void recover() throws IOException {
+            TreeSet<Long> snapshots = new TreeSet<>();
+            TreeSet<Long> logs = new TreeSet<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    if (name.startsWith("snapshot-") && name.endsWith(".dat")) {
+                        snapshots.add(Long.valueOf(name.substring(9, name.length() - 4)));
+                    } else if (name.startsWith("wal-") && name.endsWith(".log")) {
+                        logs.add(Long.valueOf(name.substring(4, name.length() - 4)));
+                    } else if (name.endsWith(".tmp")) {
+                        Files.delete(file);
+                    }
+                }
+            }
+
+            generation = -1;
+            for (Long candidate : snapshots.descendingSet()) {
+                if (!logsFollow(candidate, logs)) {
+                    LOGGER.warning("Ignoring snapshot " + snapshotPath(candidate) + " because a later log is missing");
+                } else if (loadSnapshot(snapshotPath(candidate))) {
+                    generation = candidate;
+                    break;
+                } else {
+                    LOGGER.warning("Ignoring incomplete snapshot " + snapshotPath(candidate));
+                    accounts.clear();
+                }
+            }
+            if (generation < 0) {
+                if (!logsFollow(0, logs)) {
+                    throw new IOException("Memory ledger shard " + index + " cannot be recovered from " + directory
+                            + ": no complete snapshot is followed by all of its logs");
+                }
+                generation = 0;
+            }
+
+            // Generations before the loaded snapshot are left over from a crash during a snapshot
+            for (Long stale : snapshots.headSet(generation)) {
+                Files.deleteIfExists(snapshotPath(stale));
+            }
+            for (Long stale : logs.headSet(generation)) {
+                Files.deleteIfExists(logPath(stale));
+            }
+            oldestGeneration = generation;
+
+            long replayed = 0;
+            for (Long logGeneration : logs.tailSet(generation)) {
+                replayed += WriteAheadLog.replay(logPath(logGeneration), this::replayRecord);
+                generation = logGeneration;
+            }
+            recordsSinceSnapshot = replayed;
+
+            for (Map.Entry<String, AccountState> entry : accounts.entrySet()) {
+                AccountState state = entry.getValue();
+                state.durable = state.working;
+                publish(entry.getKey(), state);
+            }
+            log = new WriteAheadLog(logPath(generation), LOG_BUFFER_BYTES);
+            syncDirectory();
+            if (replayed > 0) {
+                LOGGER.info("Memory ledger shard " + index + " replayed " + replayed + " log records");
+            }
+        }
+
+        /**
+         * Checks that the log of every generation from a snapshot up to the
+         * newest log exists. A snapshot newer than every log is followed
+         * trivially: its log had not been created yet.
+         */
+        private boolean logsFollow(long snapshotGeneration, TreeSet<Long> logs) {
+            if (logs.isEmpty()) {
+                return true;
+            }
+            for (long logGeneration = snapshotGeneration; logGeneration <= logs.last(); logGeneration++) {
+                if (!logs.contains(logGeneration)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean loadSnapshot(Path path) throws IOException {
+            long[] expected = { -1 };
+            long loaded = WriteAheadLog.replay(path, buffer -> {
+                if (buffer.get(buffer.position()) == OP_END) {
+                    buffer.get();
+                    expected[0] = buffer.getLong();
+                } else {
+                    replayRecord(buffer);
+                }
+            });
+            // The end record carries the account count, so a snapshot cut short is never trusted
+            return expected[0] >= 0 && expected[0] == loaded - 1;
+        }
+
+        private void replayRecord(ByteBuffer buffer) {
+            byte op = buffer.get();
+            long units = buffer.getLong();
+            String key = readString(buffer);
+            String customerId = readString(buffer);
+            if (op == OP_OPEN) {
+                accounts.put(key, new AccountState(customerId, units));
+                return;
+            }
+            AccountState state = accounts.get(key);
+            if (state == null) {
+                throw new IllegalStateException("Log record for unknown account " + key + " in shard " + index);
+            }
+            state.working += op == OP_CREDIT ? units : -units;
+        }
+
+        private void run() {
+            List<Pending> batch = new ArrayList<>(batchSize);
+
+            while (accepting || !queue.isEmpty()) {
+                try {
+                    Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    process(batch);
+                } catch (InterruptedException e) {
+                    // Keep draining; close() stops the loop by clearing the accepting flag
+                    LOGGER.info("Memory ledger shard " + index + " interrupted; continuing until drained");
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Unexpected error in memory ledger shard " + index, e);
+                    for (Pending pending : batch) {
+                        pending.future.completeExceptionally(e);
+                    }
+                } finally {
+                    batch.clear();
+                }
+            }
+
+            try {
+                log.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error closing memory ledger log " + log.getPath(), e);
+            }
+        }
+
+        /**
+         * Applies a batch, makes its log records durable with one sync and
+         * then publishes the new balances and completes the callers.
+         */
+        private void process(List<Pending> batch) {
+            if (failure != null) {
+                for (Pending pending : batch) {
+                    pending.future.completeExceptionally(failure);
+                }
+                return;
+            }
+
+            try {
+                for (Pending pending : batch) {
+                    if (apply(pending)) {
+                        log.append(encode(pending.op, pending.units, pending.key, pending.customerId));
+                    }
+                }
+                recordsSinceSnapshot += log.sync();
+            } catch (IOException e) {
+                // Memory may now be ahead of the log; refuse everything until a restart replays it
+                failure = e;
+                LOGGER.log(Level.SEVERE, "Memory ledger shard " + index + " failed to write its log", e);
+                for (Pending pending : batch) {
+                    pending.future.completeExceptionally(e);
+                }
+                return;
+            }
+
+            for (Pending pending : batch) {
+                AccountState state = pending.applied;
+                if (state == null) {
+                    pending.future.complete(null);
+                    continue;
+                }
+                state.durable = state.working;
+                if (pending.op == OP_OPEN) {
+                    publish(pending.key, state);
+                }
+                pending.future.complete(BigDecimal.valueOf(state.durable, SCALE));
+            }
+
+            if (recordsSinceSnapshot >= snapshotEvery) {
+                try {
+                    snapshot();
+                } catch (IOException e) {
+                    // The current log is intact, so the shard carries on and retries after the next batch
+                    LOGGER.log(Level.WARNING, "Memory ledger shard " + index + " could not write a snapshot", e);
+                }
+            }
+        }
+
+        private boolean apply(Pending pending) {
+            AccountState state = accounts.get(pending.key);
+            if (pending.op == OP_OPEN) {
+                if (state != null) {
+                    return false;
+                }
+                state = new AccountState(pending.customerId, pending.units);
+                accounts.put(pending.key, state);
+                pending.applied = state;
+                return true;
+            }
+
+            if (state == null || !state.customerId.equals(pending.customerId)) {
+                return false;
+            }
+            if (pending.op == OP_CREDIT) {
+                if (state.working > Long.MAX_VALUE - pending.units) {
+                    return false;
+                }
+                state.working += pending.units;
+            } else {
+                if (state.working < pending.units) {
+                    return false;
+                }
+                state.working -= pending.units;
+            }
+            pending.applied = state;
+            return true;
+        }
+
+        private void publish(String key, AccountState state) {
+            published.put(key, state);
+            // Keys are the account kind followed by the account number
+            customerIndex.putIfAbsent(key.charAt(0) + state.customerId, key.substring(1));
+        }
+
+        /**
+         * Writes every balance to the next generation's snapshot, switches to
+         * that generation's log and deletes the older generations.
+         */
+        private void snapshot() throws IOException {
+            long next = generation + 1;
+            Path temporary = directory.resolve("snapshot-" + next + ".tmp");
+            try (WriteAheadLog out = new WriteAheadLog(temporary, LOG_BUFFER_BYTES)) {
+                for (Map.Entry<String, AccountState> entry : accounts.entrySet()) {
+                    AccountState state = entry.getValue();
+                    out.append(encode(OP_OPEN, state.working, entry.getKey(), state.customerId));
+                }
+                record.clear();
+                record.put(OP_END).putLong(accounts.size()).flip();
+                out.append(record);
+            }
+            Files.move(temporary, snapshotPath(next), StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+
+            WriteAheadLog nextLog = new WriteAheadLog(logPath(next), LOG_BUFFER_BYTES);
+            syncDirectory();
+            log.close();
+            log = nextLog;
+            // Recovery may have replayed several generations after an unreadable snapshot
+            for (long old = oldestGeneration; old <= generation; old++) {
+                Files.deleteIfExists(logPath(old));
+                Files.deleteIfExists(snapshotPath(old));
+            }
+            generation = next;
+            oldestGeneration = next;
+            recordsSinceSnapshot = 0;
+        }
+
+        private void syncDirectory() {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                // Not every platform can open a directory; the rename is still atomic there
+                LOGGER.fine("Could not sync directory " + directory + ": " + e.getMessage());
+            }
+        }
+
+        private ByteBuffer encode(byte op, long units, String key, String customerId) {
+            record.clear();
+            record.put(op).putLong(units);
+            writeString(record, key);
+            writeString(record, customerId);
+            record.flip();
+            return record;
+        }
+
+        private Path snapshotPath(long snapshotGeneration) {
+            return directory.resolve("snapshot-" + snapshotGeneration + ".dat");
+        }
+
+        private Path logPath(long logGeneration) {
+            return directory.resolve("wal-" + logGeneration + ".log");
+        }
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE || bytes.length + 2 > buffer.remaining()) {
+            throw new IllegalArgumentException("Value too long for a memory ledger record");
+        }
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lazily recovers the shared engine from system properties.
+     */
+    private static class InstanceHolder {
+        private static final MemoryLedger INSTANCE = create();
+
+        private static MemoryLedger create() {
+            try {
+                return new MemoryLedger(
+                        Paths.get(System.getProperty("banking.memoryLedger.dir", "memory-ledger")),
+                        Integer.getInteger("banking.memoryLedger.shards", Runtime.getRuntime().availableProcessors()),
+                        Integer.getInteger("banking.memoryLedger.queueSize", DEFAULT_QUEUE_SIZE),
+                        Integer.getInteger("banking.memoryLedger.batchSize", DEFAULT_BATCH_SIZE),
+                        Long.getLong("banking.memoryLedger.snapshotEvery", DEFAULT_SNAPSHOT_EVERY));
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error recovering memory ledger", e);
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
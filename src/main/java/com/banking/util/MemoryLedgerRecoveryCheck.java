@@ -0,0 +1,390 @@
+package com.banking.util;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Crash-recovery checks for {@link MemoryLedger} and {@link WriteAheadLog}.
+ * Each case drives a one-shard engine, copies its files while it is idle,
+ * which is what a crash right after the last acknowledged operation leaves
+ * on disk, damages the copy the way a crash at a given point can, and
+ * reopens it. The recovered balances must equal the balances the engine had
+ * made durable; where the files no longer hold them, the engine must refuse
+ * to start.
+ * <p>
+ * Run it after changing either class. It prints one line per case and exits
+ * with status 1 if any case fails. The workload uses a fixed seed, so a
+ * failure repeats.
+ */
+public class MemoryLedgerRecoveryCheck {
+    private static final int ACCOUNTS = 40;
+    private static final int OPERATIONS = 400;
+    private static final long NO_SNAPSHOTS = Long.MAX_VALUE;
+    private static final String SHARD = "shard-0";
+
+    private final Path root;
+    private final Random random = new Random(20240601L);
+    private int images;
+    private int failures;
+
+    /**
+     * Creates a check that keeps its engines' files under a directory.
+     *
+     * @param root an empty or missing directory
+     */
+    public MemoryLedgerRecoveryCheck(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Runs every case.
+     *
+     * @return the number of failed cases
+     */
+    public int run() {
+        check("replay after several snapshots", this::replayAfterSnapshots);
+        check("torn record at the end of the log", this::tornTail);
+        check("corrupt bytes at the end of the log", this::corruptTail);
+        check("crash while writing a snapshot", this::crashWritingSnapshot);
+        check("crash between snapshot rename and next log", this::crashBeforeNextLog);
+        check("incomplete snapshot falls back to older generation", this::fallbackToOlderGeneration);
+        check("incomplete snapshot whose older log was deleted", this::fallbackWithDeletedLog);
+        check("incomplete only snapshot", this::incompleteOnlySnapshot);
+        return failures;
+    }
+
+    private void replayAfterSnapshots() throws Exception {
+        Path engine = newDirectory();
+        Map<String, BigDecimal> expected;
+        Path image;
+        try (MemoryLedger ledger = open(engine, 50)) {
+            openAccounts(ledger);
+            churn(ledger, OPERATIONS);
+            expected = durableBalances(ledger);
+            image = crashImage(engine);
+        }
+        require(!Files.exists(logPath(image, 0)) && !Files.exists(logPath(image, 1)),
+                "workload did not reach a second snapshot");
+        verifyAndContinue(image, expected);
+    }
+
+    private void tornTail() throws Exception {
+        Path image = loadedImage();
+        Map<String, BigDecimal> expected = balancesOf(image);
+
+        // A header promising more bytes than were written before the crash
+        ByteBuffer torn = ByteBuffer.allocate(18);
+        torn.putInt(40).putInt(0x5eed).put(new byte[10]).flip();
+        appendTo(logPath(image, 0), torn);
+
+        verifyAndContinue(image, expected);
+    }
+
+    private void corruptTail() throws Exception {
+        Path image = loadedImage();
+        Map<String, BigDecimal> expected = balancesOf(image);
+
+        // A complete-looking record whose checksum does not match, then noise
+        byte[] noise = new byte[64];
+        random.nextBytes(noise);
+        ByteBuffer corrupt = ByteBuffer.allocate(8 + 24 + noise.length);
+        corrupt.putInt(24).putInt(0x0badf00d).put(new byte[24]).put(noise).flip();
+        appendTo(logPath(image, 0), corrupt);
+
+        verifyAndContinue(image, expected);
+    }
+
+    private void crashWritingSnapshot() throws Exception {
+        Path image = loadedImage();
+        Map<String, BigDecimal> expected = balancesOf(image);
+        Path temporary = shard(image).resolve("snapshot-1.tmp");
+        byte[] partial = new byte[100];
+        random.nextBytes(partial);
+        Files.write(temporary, partial);
+
+        verifyAndContinue(image, expected);
+        require(!Files.exists(temporary), "unfinished snapshot was not removed");
+    }
+
+    private void crashBeforeNextLog() throws Exception {
+        Path before = loadedImage();
+        Map<String, BigDecimal> expected = balancesOf(before);
+        Path after = crashImage(before);
+        snapshotNow(after);
+        require(Files.exists(snapshotPath(after, 1)) && !Files.exists(logPath(after, 0)),
+                "snapshot did not switch generations");
+
+        // The new snapshot is in place but the old generation is untouched and its log not yet created
+        Path crashed = crashImage(before);
+        Files.copy(snapshotPath(after, 1), snapshotPath(crashed, 1));
+
+        verifyAndContinue(crashed, expected);
+        require(!Files.exists(logPath(crashed, 0)), "log of the replaced generation was not removed");
+    }
+
+    private void fallbackToOlderGeneration() throws Exception {
+        Path[] generations = twoGenerations();
+        Path older = generations[0];
+        Path newer = generations[1];
+        Map<String, BigDecimal> expected = balancesOf(newer);
+
+        // The crash came before the older generation was deleted, and the newer snapshot did not survive it
+        Path crashed = crashImage(newer);
+        Files.copy(snapshotPath(older, 1), snapshotPath(crashed, 1));
+        Files.copy(logPath(older, 1), logPath(crashed, 1));
+        truncateHalf(snapshotPath(crashed, 2));
+
+        verifyAndContinue(crashed, expected);
+    }
+
+    private void fallbackWithDeletedLog() throws Exception {
+        Path[] generations = twoGenerations();
+        Path crashed = crashImage(generations[1]);
+        Files.copy(snapshotPath(generations[0], 1), snapshotPath(crashed, 1));
+        truncateHalf(snapshotPath(crashed, 2));
+
+        requireRefused(crashed);
+    }
+
+    private void incompleteOnlySnapshot() throws Exception {
+        Path crashed = crashImage(twoGenerations()[1]);
+        truncateHalf(snapshotPath(crashed, 2));
+
+        requireRefused(crashed);
+    }
+
+    /**
+     * Builds an engine image with accounts and some changes in generation 0.
+     */
+    private Path loadedImage() throws IOException {
+        Path engine = newDirectory();
+        try (MemoryLedger ledger = open(engine, NO_SNAPSHOTS)) {
+            openAccounts(ledger);
+            churn(ledger, OPERATIONS);
+            return crashImage(engine);
+        }
+    }
+
+    /**
+     * Builds two consecutive images: one at generation 1 with records in its
+     * log, and one taken after the engine moved on to generation 2 and
+     * applied more changes.
+     */
+    private Path[] twoGenerations() throws IOException {
+        Path first = loadedImage();
+        snapshotNow(first);
+        churnImage(first);
+        Path older = crashImage(first);
+
+        Path second = crashImage(older);
+        snapshotNow(second);
+        churnImage(second);
+        require(Files.exists(snapshotPath(second, 2)) && !Files.exists(logPath(second, 1)),
+                "second snapshot did not replace generation 1");
+        return new Path[] { older, crashImage(second) };
+    }
+
+    private void churnImage(Path image) throws IOException {
+        try (MemoryLedger ledger = open(image, NO_SNAPSHOTS)) {
+            churn(ledger, OPERATIONS / 2);
+        }
+    }
+
+    /**
+     * Makes the engine in a directory write a snapshot without adding log
+     * records: a refused operation still ends a batch, and the shard
+     * snapshots after any batch once enough records have been replayed.
+     */
+    private void snapshotNow(Path image) throws IOException {
+        try (MemoryLedger ledger = open(image, 1)) {
+            require(ledger.credit(MemoryLedger.CHECKING, "missing", "nobody", BigDecimal.ONE) == null,
+                    "credit to a missing account was applied");
+        }
+    }
+
+    /**
+     * Reopens an image, compares its balances, then applies more changes
+     * and checks that they survive another crash.
+     */
+    private void verifyAndContinue(Path image, Map<String, BigDecimal> expected) throws IOException {
+        Map<String, BigDecimal> next;
+        Path nextImage;
+        try (MemoryLedger ledger = open(image, NO_SNAPSHOTS)) {
+            compare(expected, ledger, image);
+            churn(ledger, OPERATIONS / 4);
+            next = durableBalances(ledger);
+            nextImage = crashImage(image);
+        }
+        try (MemoryLedger ledger = open(nextImage, NO_SNAPSHOTS)) {
+            compare(next, ledger, nextImage);
+        }
+    }
+
+    private void requireRefused(Path image) {
+        try (MemoryLedger ledger = open(image, NO_SNAPSHOTS)) {
+            throw new IllegalStateException("engine started with " + ledger.getAccountCount()
+                    + " accounts although a log it needs is missing");
+        } catch (IOException e) {
+            // Expected: the remaining files cannot reproduce the durable balances
+        }
+    }
+
+    private Map<String, BigDecimal> balancesOf(Path image) throws IOException {
+        try (MemoryLedger ledger = open(crashImage(image), NO_SNAPSHOTS)) {
+            return durableBalances(ledger);
+        }
+    }
+
+    private void compare(Map<String, BigDecimal> expected, MemoryLedger ledger, Path image) {
+        require(ledger.getAccountCount() == expected.size(), "recovered " + ledger.getAccountCount()
+                + " accounts from " + image + ", expected " + expected.size());
+        for (Map.Entry<String, BigDecimal> entry : expected.entrySet()) {
+            String key = entry.getKey();
+            BigDecimal balance = ledger.getBalance(key.charAt(0), key.substring(1));
+            require(balance != null && balance.compareTo(entry.getValue()) == 0, "account " + key + " in " + image
+                    + " recovered as " + balance + ", expected " + entry.getValue());
+        }
+        require(accountNumber(0).equals(ledger.findAccountNumber(kind(0), customerId(0))),
+                "customer index not rebuilt from " + image);
+    }
+
+    private void openAccounts(MemoryLedger ledger) {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            require(ledger.openAccount(kind(i), accountNumber(i), customerId(i), new BigDecimal("100.0000")),
+                    "could not open account " + accountNumber(i));
+        }
+    }
+
+    /**
+     * Applies random credits and debits; debits that the balance does not
+     * cover are refused and leave no record, as in production.
+     */
+    private void churn(MemoryLedger ledger, int operations) {
+        for (int n = 0; n < operations; n++) {
+            int i = random.nextInt(ACCOUNTS);
+            BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(500000), 4);
+            if (random.nextBoolean()) {
+                require(ledger.credit(kind(i), accountNumber(i), customerId(i), amount) != null,
+                        "credit to " + accountNumber(i) + " failed");
+            } else {
+                ledger.debit(kind(i), accountNumber(i), customerId(i), amount);
+            }
+        }
+    }
+
+    private Map<String, BigDecimal> durableBalances(MemoryLedger ledger) {
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            balances.put(kind(i) + accountNumber(i), ledger.getBalance(kind(i), accountNumber(i)));
+        }
+        return balances;
+    }
+
+    private static char kind(int i) {
+        return i % 2 == 0 ? MemoryLedger.CHECKING : MemoryLedger.SAVINGS;
+    }
+
+    private static String accountNumber(int i) {
+        return "ML" + (1000 + i);
+    }
+
+    private static String customerId(int i) {
+        return "CUST" + i;
+    }
+
+    private static MemoryLedger open(Path directory, long snapshotEvery) throws IOException {
+        return new MemoryLedger(directory, 1, 64, 16, snapshotEvery);
+    }
+
+    /**
+     * Copies an engine's files to a new directory. Every acknowledged
+     * operation is synced before it is acknowledged, so a copy of an idle
+     * engine is exactly what a crash at that moment would leave.
+     */
+    private Path crashImage(Path source) throws IOException {
+        Path target = root.resolve("image-" + (++images));
+        Files.createDirectories(shard(target));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(shard(source))) {
+            for (Path file : files) {
+                Files.copy(file, shard(target).resolve(file.getFileName()), StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+        return target;
+    }
+
+    private Path newDirectory() {
+        return root.resolve("engine-" + (++images));
+    }
+
+    private static Path shard(Path directory) {
+        return directory.resolve(SHARD);
+    }
+
+    private static Path snapshotPath(Path directory, long generation) {
+        return shard(directory).resolve("snapshot-" + generation + ".dat");
+    }
+
+    private static Path logPath(Path directory, long generation) {
+        return shard(directory).resolve("wal-" + generation + ".log");
+    }
+
+    private static void appendTo(Path file, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    private static void truncateHalf(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private void check(String name, Case body) {
+        try {
+            body.run();
+            System.out.println("PASS " + name);
+        } catch (Exception e) {
+            failures++;
+            System.out.println("FAIL " + name + ": " + e);
+        }
+    }
+
+    private interface Case {
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs the checks from the command line.
+     *
+     * @param args an optional empty directory for the engines' files; a temporary one otherwise
+     * @throws IOException if the directory cannot be created
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("memory-ledger-check");
+        int failed = new MemoryLedgerRecoveryCheck(root).run();
+        System.err.println((failed == 0 ? "All cases passed" : failed + " cases failed") + "; files in " + root);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.banking.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import com.banking.util.LatencyHistogram.Snapshot;
+
+/**
+ * Salted PBKDF2 password hashing.
+ * Hashes are stored as {@code pbkdf2-sha512$<iterations>$<salt>$<hash>}
+ * with Base64 salt and hash. Values without that prefix are treated as
+ * legacy plaintext passwords; they still verify, and
+ * {@link #needsRehash(String)} reports them so they can be upgraded on the
+ * next successful login.
+ * <p>
+ * Hashing is deliberately expensive, so it runs on a small dedicated pool
+ * with a bounded queue. A login storm queues there, or is rejected once the
+ * queue is full, instead of taking CPU from transaction processing.
+ * Configured with the {@code banking.password.iterations} (default 210000),
+ * {@code banking.password.threads} (default: the number of processors) and
+ * {@code banking.password.queueSize} (default 256) system properties.
+ */
+public class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA512";
+    private static final String PREFIX = "pbkdf2-sha512";
+    private static final String SEPARATOR = "$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 512;
+    private static final int DEFAULT_ITERATIONS = 210000;
+    private static final long WAIT_TIMEOUT_SECONDS = 30;
+
+    private final int iterations;
+    private final ThreadPoolExecutor pool;
+    private final SecureRandom random = new SecureRandom();
+    private final LatencyHistogram hashLatency = new LatencyHistogram();
+
+    /**
+     * Creates a hasher.
+     *
+     * @param iterations the PBKDF2 iteration count for new hashes
+     * @param threads the number of hashing threads
+     * @param queueSize the number of hashing requests that may wait for a thread
+     */
+    public PasswordHasher(int iterations, int threads, int queueSize) {
+        if (iterations < 1 || threads < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("iterations, threads and queueSize must be at least 1");
+        }
+        this.iterations = iterations;
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Gets the shared hasher.
+     *
+     * @return the shared instance
+     */
+    public static PasswordHasher getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Hashes a password with a fresh salt.
+     *
+     * @param password the password
+     * @return the encoded hash
+     * @throws RejectedExecutionException if the hashing queue is full
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = runOnPool(() -> derive(password, salt, iterations));
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + SEPARATOR + iterations + SEPARATOR + encoder.encodeToString(salt)
+                + SEPARATOR + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against a stored hash or legacy plaintext value.
+     * The comparison takes the same time wherever the values differ.
+     *
+     * @param password the password to check
+     * @param stored the stored value
+     * @return true if the password matches
+     * @throws RejectedExecutionException if the hashing queue is full
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = stored.split("\\" + SEPARATOR);
+        int storedIterations;
+        byte[] salt;
+        byte[] expected;
+        try {
+            storedIterations = Integer.parseInt(parts[1]);
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            return false;
+        }
+
+        byte[] actual = runOnPool(() -> derive(password, salt, storedIterations));
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * Spends the same time as verifying against a real hash, for logins
+     * with an unknown username, so response times do not reveal which
+     * usernames exist.
+     *
+     * @param password the password that was supplied
+     * @throws RejectedExecutionException if the hashing queue is full
+     */
+    public void verifyUnknownUser(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        runOnPool(() -> derive(password != null ? password : "", salt, iterations));
+    }
+
+    /**
+     * Reports whether a stored value should be replaced with a new hash,
+     * because it is plaintext or uses fewer iterations than configured.
+     *
+     * @param stored the stored value
+     * @return true if the value should be rehashed
+     */
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\" + SEPARATOR);
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private boolean isHashed(String stored) {
+        return stored.startsWith(PREFIX + SEPARATOR);
+    }
+
+    private byte[] derive(String password, byte[] salt, int rounds) throws GeneralSecurityException {
+        long started = System.nanoTime();
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, rounds, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+            hashLatency.record(System.nanoTime() - started);
+        }
+    }
+
+    private byte[] runOnPool(Callable<byte[]> task) {
+        Future<byte[]> future = pool.submit(task);
+        try {
+            return future.get(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RejectedExecutionException("Password hashing timed out", e);
+        }
+    }
+
+    /**
+     * Gets the number of hashing requests waiting for a thread.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Gets the distribution of time spent deriving hashes, excluding queueing.
+     *
+     * @return the latency snapshot
+     */
+    public Snapshot getHashLatency() {
+        return hashLatency.snapshot();
+    }
+
+    /**
+     * Lazily creates the shared hasher from system properties.
+     */
+    private static class InstanceHolder {
+        private static final PasswordHasher INSTANCE = new PasswordHasher(
+                Integer.getInteger("banking.password.iterations", DEFAULT_ITERATIONS),
+                Integer.getInteger("banking.password.threads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("banking.password.queueSize", 256));
+    }
+}
@@ -0,0 +1,135 @@
+package com.banking.util;
+
+/**
+ * Configuration settings for the {@link ConnectionPool}.
+ * Values default to sensible settings and can be overridden with
+ * {@code banking.pool.*} system properties.
+ */
+public class PoolConfig {
+    private int minIdle = 2;
+    private int maxSize = 20;
+    private long acquireTimeoutMillis = 10000;
+    private long idleTimeoutMillis = 600000;
+    private int validationTimeoutSeconds = 5;
+    private long validationBypassMillis = 500;
+    private long leakDetectionThresholdMillis = 0;
+    private long housekeepingIntervalMillis = 30000;
+    private int statementCacheSize = 64;
+
+    /**
+     * Creates a configuration from the {@code banking.pool.*} system properties,
+     * falling back to the defaults for any property that is not set.
+     *
+     * @return the pool configuration
+     */
+    public static PoolConfig fromSystemProperties() {
+        PoolConfig config = new PoolConfig();
+        config.setMinIdle(Integer.getInteger("banking.pool.minIdle", config.getMinIdle()));
+        config.setMaxSize(Integer.getInteger("banking.pool.maxSize", config.getMaxSize()));
+        config.setAcquireTimeoutMillis(Long.getLong("banking.pool.acquireTimeoutMillis",
+                config.getAcquireTimeoutMillis()));
+        config.setIdleTimeoutMillis(Long.getLong("banking.pool.idleTimeoutMillis", config.getIdleTimeoutMillis()));
+        config.setValidationTimeoutSeconds(Integer.getInteger("banking.pool.validationTimeoutSeconds",
+                config.getValidationTimeoutSeconds()));
+        config.setValidationBypassMillis(Long.getLong("banking.pool.validationBypassMillis",
+                config.getValidationBypassMillis()));
+        config.setLeakDetectionThresholdMillis(Long.getLong("banking.pool.leakDetectionThresholdMillis",
+                config.getLeakDetectionThresholdMillis()));
+        config.setHousekeepingIntervalMillis(Long.getLong("banking.pool.housekeepingIntervalMillis",
+                config.getHousekeepingIntervalMillis()));
+        config.setStatementCacheSize(Integer.getInteger("banking.pool.statementCacheSize",
+                config.getStatementCacheSize()));
+        return config;
+    }
+
+    /**
+     * Validates the configuration.
+     *
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public void validate() {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        if (minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("minIdle must be between 0 and maxSize");
+        }
+        if (acquireTimeoutMillis < 0 || idleTimeoutMillis < 0 || validationBypassMillis < 0
+                || leakDetectionThresholdMillis < 0 || housekeepingIntervalMillis <= 0 || statementCacheSize < 0) {
+            throw new IllegalArgumentException("Pool settings must not be negative");
+        }
+    }
+
+    // Getters and Setters
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public long getValidationBypassMillis() {
+        return validationBypassMillis;
+    }
+
+    public void setValidationBypassMillis(long validationBypassMillis) {
+        this.validationBypassMillis = validationBypassMillis;
+    }
+
+    public long getLeakDetectionThresholdMillis() {
+        return leakDetectionThresholdMillis;
+    }
+
+    public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+    }
+
+    public long getHousekeepingIntervalMillis() {
+        return housekeepingIntervalMillis;
+    }
+
+    public void setHousekeepingIntervalMillis(long housekeepingIntervalMillis) {
+        this.housekeepingIntervalMillis = housekeepingIntervalMillis;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+}
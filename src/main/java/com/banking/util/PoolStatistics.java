@@ -0,0 +1,60 @@
+package com.banking.util;
+
+/**
+ * Immutable snapshot of {@link ConnectionPool} statistics.
+ */
+public class PoolStatistics {
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int totalConnections;
+    private final int waiters;
+    private final long acquireTimeouts;
+    private final long leaksDetected;
+    private final LatencyHistogram.Snapshot acquireLatency;
+
+    public PoolStatistics(int activeConnections, int idleConnections, int totalConnections, int waiters,
+                          long acquireTimeouts, long leaksDetected, LatencyHistogram.Snapshot acquireLatency) {
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.totalConnections = totalConnections;
+        this.waiters = waiters;
+        this.acquireTimeouts = acquireTimeouts;
+        this.leaksDetected = leaksDetected;
+        this.acquireLatency = acquireLatency;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getWaiters() {
+        return waiters;
+    }
+
+    public long getAcquireTimeouts() {
+        return acquireTimeouts;
+    }
+
+    public long getLeaksDetected() {
+        return leaksDetected;
+    }
+
+    public LatencyHistogram.Snapshot getAcquireLatency() {
+        return acquireLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + activeConnections + ", idle=" + idleConnections + ", total=" + totalConnections
+                + ", waiters=" + waiters + ", timeouts=" + acquireTimeouts + ", leaks=" + leaksDetected
+                + ", acquire[" + acquireLatency + "]";
+    }
+}
@@ -0,0 +1,302 @@
+package com.banking.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}.
+ * Callers never see the physical connection; each borrow hands out a fresh
+ * proxy whose {@code close()} returns the connection to the pool.
+ * Statements prepared from plain SQL text are served from a per-connection
+ * {@link StatementCache}. A handle borrowed inside a {@link QueryCancellation}
+ * scope registers with it, so its open statements can be cancelled from
+ * another thread.
+ */
+class PooledConnection {
+    private static final Logger LOGGER = Logger.getLogger(PooledConnection.class.getName());
+
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final int defaultIsolation;
+    private final StatementCache statementCache;
+
+    private volatile long lastReturnedAt;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowSite;
+    private volatile boolean leakReported;
+    private volatile boolean broken;
+
+    private boolean autoCommitChanged;
+    private boolean isolationChanged;
+    private boolean readOnlyChanged;
+
+    PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize) throws SQLException {
+        this.pool = pool;
+        this.physical = physical;
+        this.defaultIsolation = physical.getTransactionIsolation();
+        this.statementCache = statementCacheSize > 0 ? new StatementCache(statementCacheSize) : null;
+        this.lastReturnedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Marks the connection as borrowed and creates a new logical handle for it.
+     *
+     * @param captureBorrowSite whether to record the caller stack for leak reports
+     * @return the proxy handed to the caller
+     */
+    Connection borrow(boolean captureBorrowSite) {
+        borrowedAt = System.currentTimeMillis();
+        borrowSite = captureBorrowSite ? new Exception("Connection borrowed here") : null;
+        leakReported = false;
+        Handle handle = new Handle(QueryCancellation.current());
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, handle);
+    }
+
+    /**
+     * Restores the session state changed by the last borrower.
+     *
+     * @return true if the connection can be reused, false if it should be discarded
+     */
+    boolean reset() {
+        if (broken) {
+            return false;
+        }
+        try {
+            if (autoCommitChanged) {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                autoCommitChanged = false;
+            }
+            if (isolationChanged) {
+                physical.setTransactionIsolation(defaultIsolation);
+                isolationChanged = false;
+            }
+            if (readOnlyChanged) {
+                physical.setReadOnly(false);
+                readOnlyChanged = false;
+            }
+            physical.clearWarnings();
+            lastReturnedAt = System.currentTimeMillis();
+            return true;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error resetting pooled connection", e);
+            return false;
+        }
+    }
+
+    /**
+     * Checks that the physical connection is still usable.
+     *
+     * @param timeoutSeconds the validation timeout
+     * @param bypassMillis skip the round trip if the connection was used this recently
+     * @return true if the connection is valid
+     */
+    boolean validate(int timeoutSeconds, long bypassMillis) {
+        if (System.currentTimeMillis() - lastReturnedAt < bypassMillis) {
+            return true;
+        }
+        try {
+            return physical.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes the physical connection.
+     */
+    void closePhysical() {
+        if (statementCache != null) {
+            statementCache.clear();
+        }
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error closing physical connection", e);
+        }
+    }
+
+    long getLastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowSite() {
+        return borrowSite;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported(boolean leakReported) {
+        this.leakReported = leakReported;
+    }
+
+    /**
+     * Logical connection handed to one borrower. Once closed, the handle is
+     * dead even though the physical connection lives on in the pool.
+     */
+    private class Handle implements InvocationHandler, QueryCancellation.Target {
+        private final QueryCancellation scope;
+        private final ReentrantLock cancelLock = new ReentrantLock();
+        private final List<Statement> statements = new ArrayList<>();
+        private volatile boolean closed;
+
+        Handle(QueryCancellation scope) {
+            this.scope = scope;
+            if (scope != null) {
+                scope.register(this);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+
+            boolean createsStatement = "createStatement".equals(name) || "prepareStatement".equals(name)
+                    || "prepareCall".equals(name);
+            if (createsStatement && scope != null) {
+                scope.checkNotCancelled();
+            }
+
+            Object result;
+            if ("prepareStatement".equals(name) && args.length == 1 && statementCache != null) {
+                result = prepareCached((String) args[0]);
+            } else {
+                result = invokePhysical(method, args);
+            }
+
+            if (createsStatement && scope != null) {
+                track((Statement) result);
+            }
+            return result;
+        }
+
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("setAutoCommit".equals(name)) {
+                autoCommitChanged = true;
+            } else if ("setTransactionIsolation".equals(name)) {
+                isolationChanged = true;
+            } else if ("setReadOnly".equals(name)) {
+                readOnlyChanged = true;
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String sqlState = ((SQLException) cause).getSQLState();
+                    if (sqlState != null && sqlState.startsWith("08")) {
+                        broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+
+        private void close() {
+            // Mark closed under the cancel lock so a concurrent cancel can never
+            // reach a statement after the connection has gone back to the pool,
+            // and so that only one of two racing close() calls releases it
+            cancelLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                statements.clear();
+            } finally {
+                cancelLock.unlock();
+            }
+            if (scope != null) {
+                scope.unregister(this);
+            }
+            pool.release(PooledConnection.this);
+        }
+
+        private void track(Statement statement) throws SQLException {
+            cancelLock.lock();
+            try {
+                statements.add(statement);
+            } finally {
+                cancelLock.unlock();
+            }
+            // A cancel that ran while the statement was being prepared missed it
+            if (scope.isCancelled()) {
+                statement.close();
+                scope.checkNotCancelled();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                for (Statement statement : statements) {
+                    try {
+                        statement.cancel();
+                    } catch (SQLException e) {
+                        // Closed statements cannot be cancelled; nothing is running on them
+                        LOGGER.log(Level.FINE, "Could not cancel statement", e);
+                    }
+                }
+            } finally {
+                cancelLock.unlock();
+            }
+        }
+
+        private PreparedStatement prepareCached(String sql) throws SQLException {
+            try {
+                return statementCache.prepare(physical, sql);
+            } catch (SQLException e) {
+                String sqlState = e.getSQLState();
+                if (sqlState != null && sqlState.startsWith("08")) {
+                    broken = true;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.banking.util;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lets one service call's database work be cancelled from another thread.
+ * While a call runs inside {@link #run(Callable)}, every pooled connection it
+ * borrows registers here. {@link #cancel()} then calls
+ * {@link java.sql.Statement#cancel()} on each statement still open on those
+ * connections, and any statement the call prepares afterwards fails
+ * immediately.
+ */
+public class QueryCancellation {
+    /** SQLSTATE for an operation cancelled at the caller's request. */
+    static final String CANCELLED_SQL_STATE = "HY008";
+
+    private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Target> targets = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     * Gets the cancellation scope of the call running on this thread.
+     *
+     * @return the current scope, or null if none is active
+     */
+    public static QueryCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs a call with this scope active on the current thread.
+     *
+     * @param call the call to run
+     * @param <T> the result type
+     * @return the call's result
+     * @throws Exception if the call fails
+     */
+    public <T> T run(Callable<T> call) throws Exception {
+        QueryCancellation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.call();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Cancels the statements currently running for this scope and fails any
+     * statement prepared later.
+     */
+    public void cancel() {
+        List<Target> snapshot;
+        lock.lock();
+        try {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            snapshot = new ArrayList<>(targets);
+        } finally {
+            lock.unlock();
+        }
+        // Cancel outside the lock; Statement.cancel() is a round trip to the server
+        for (Target target : snapshot) {
+            target.cancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throws if this scope has been cancelled.
+     *
+     * @throws SQLException if the scope has been cancelled
+     */
+    void checkNotCancelled() throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query cancelled", CANCELLED_SQL_STATE);
+        }
+    }
+
+    void register(Target target) {
+        lock.lock();
+        try {
+            targets.add(target);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void unregister(Target target) {
+        lock.lock();
+        try {
+            targets.remove(target);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Something whose running statements can be cancelled.
+     */
+    interface Target {
+        void cancel();
+    }
+}
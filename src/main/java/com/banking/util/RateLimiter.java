@@ -0,0 +1,177 @@
+package com.banking.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free token-bucket rate limiter over a fixed table of buckets.
+ * Each bucket is a single {@code long} updated with compare-and-set, packing
+ * a key fingerprint, the token count and the last refill time, so memory is
+ * 8 bytes per slot no matter how many distinct keys are seen.
+ * <p>
+ * Each key hashes to two candidate slots. When neither holds the key, the
+ * bucket with more tokens is evicted: keys that are currently being
+ * throttled keep their state, while idle keys are forgotten first. A key
+ * that loses its bucket simply starts again with a full bucket.
+ */
+public class RateLimiter {
+    private static final int FINGERPRINT_BITS = 20;
+    private static final int TOKEN_BITS = 12;
+    private static final int TIME_BITS = 32;
+    private static final long FINGERPRINT_MASK = (1L << FINGERPRINT_BITS) - 1;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    /** Tokens are stored in fixed point so that slow refill rates accumulate. */
+    private static final int UNITS_PER_TOKEN = 64;
+    private static final long MAX_CAPACITY = TOKEN_MASK / UNITS_PER_TOKEN;
+    private static final long NANOS_PER_TICK = 10000000L;
+
+    private final AtomicLongArray slots;
+    private final int indexMask;
+    private final long capacityUnits;
+    private final double unitsPerTick;
+    private final long seed = ThreadLocalRandom.current().nextLong();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Creates a rate limiter.
+     *
+     * @param slotCount the number of buckets, rounded up to a power of two
+     * @param capacity the burst size in tokens, at most 63
+     * @param refillPerMinute the number of tokens added per minute
+     */
+    public RateLimiter(int slotCount, int capacity, double refillPerMinute) {
+        if (slotCount < 2 || slotCount > (1 << 30)) {
+            throw new IllegalArgumentException("slotCount must be between 2 and 2^30");
+        }
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (refillPerMinute <= 0) {
+            throw new IllegalArgumentException("refillPerMinute must be positive");
+        }
+        int size = Integer.highestOneBit(slotCount - 1) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.indexMask = size - 1;
+        this.capacityUnits = (long) capacity * UNITS_PER_TOKEN;
+        this.unitsPerTick = refillPerMinute * UNITS_PER_TOKEN * NANOS_PER_TICK / 60e9;
+    }
+
+    /**
+     * Takes one token for a key if one is available.
+     *
+     * @param key the key, for example a username or client address
+     * @return true if the call is allowed, false if it should be throttled
+     */
+    public boolean tryAcquire(String key) {
+        long hash = mix(key.hashCode() ^ seed);
+        long fingerprint = (hash >>> (64 - FINGERPRINT_BITS)) & FINGERPRINT_MASK;
+        if (fingerprint == 0) {
+            // Zero marks an empty slot
+            fingerprint = 1;
+        }
+        int first = (int) hash & indexMask;
+        int second = (int) mix(hash) & indexMask;
+        long now = currentTick();
+
+        while (true) {
+            long firstValue = slots.get(first);
+            long secondValue = slots.get(second);
+
+            int index;
+            long current;
+            long tokens;
+            long time;
+            if (fingerprintOf(firstValue) == fingerprint) {
+                index = first;
+                current = firstValue;
+            } else if (fingerprintOf(secondValue) == fingerprint) {
+                index = second;
+                current = secondValue;
+            } else {
+                // Not tracked: take over the slot whose bucket is fuller, which loses the least state
+                index = refilled(firstValue, now) >= refilled(secondValue, now) ? first : second;
+                current = index == first ? firstValue : secondValue;
+                if (!slots.compareAndSet(index, current, pack(fingerprint, capacityUnits, now))) {
+                    continue;
+                }
+                current = pack(fingerprint, capacityUnits, now);
+            }
+
+            tokens = refilled(current, now);
+            if (tokens < UNITS_PER_TOKEN) {
+                return false;
+            }
+
+            // Advance the refill time only by the ticks that produced whole units
+            long elapsed = (now - timeOf(current)) & TIME_MASK;
+            long added = tokens - tokensOf(current);
+            time = tokens >= capacityUnits ? now
+                    : (timeOf(current) + Math.min(elapsed, (long) (added / unitsPerTick))) & TIME_MASK;
+
+            if (slots.compareAndSet(index, current, pack(fingerprint, tokens - UNITS_PER_TOKEN, time))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of buckets.
+     *
+     * @return the slot count
+     */
+    public int getSlotCount() {
+        return slots.length();
+    }
+
+    /**
+     * Gets the memory used by the bucket table.
+     *
+     * @return the table size in bytes
+     */
+    public long getFootprintBytes() {
+        return slots.length() * 8L;
+    }
+
+    private long refilled(long value, long now) {
+        if (value == 0) {
+            return capacityUnits;
+        }
+        long elapsed = (now - timeOf(value)) & TIME_MASK;
+        long tokens = tokensOf(value) + (long) (elapsed * unitsPerTick);
+        return Math.min(capacityUnits, tokens);
+    }
+
+    private long currentTick() {
+        return ((System.nanoTime() - startNanos) / NANOS_PER_TICK) & TIME_MASK;
+    }
+
+    private static long pack(long fingerprint, long tokens, long time) {
+        return (fingerprint << (TOKEN_BITS + TIME_BITS)) | (tokens << TIME_BITS) | time;
+    }
+
+    private static long fingerprintOf(long value) {
+        return value >>> (TOKEN_BITS + TIME_BITS);
+    }
+
+    private static long tokensOf(long value) {
+        return (value >>> TIME_BITS) & TOKEN_MASK;
+    }
+
+    private static long timeOf(long value) {
+        return value & TIME_MASK;
+    }
+
+    /**
+     * 64-bit finalizer from MurmurHash3.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,183 @@
+package com.banking.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Applies versioned schema migrations.
+ * Migrations are SQL scripts under {@code db/migration} on the classpath,
+ * named {@code V<version>__<description>.sql} and listed in {@link #MIGRATIONS}.
+ * Statements within a script are separated by lines containing only
+ * {@code GO}. Each script runs in its own transaction together with the
+ * {@code SchemaVersion} row that records it, so a failed script leaves no
+ * partial version behind.
+ */
+public class SchemaMigrator {
+    private static final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+    private static final String MIGRATION_PATH = "db/migration/";
+    private static final String[] MIGRATIONS = {
+        "V1__create_tables.sql",
+        "V2__hot_lookup_indexes.sql",
+        "V3__interest_runs.sql",
+        "V4__password_hashes.sql",
+        "V5__reconciliation.sql",
+        "V6__payment_keys.sql",
+        "V7__convert_legacy_columns.sql"
+    };
+
+    private static final String CREATE_VERSION_TABLE_SQL =
+            "CREATE TABLE SchemaVersion (Version int NOT NULL PRIMARY KEY, "
+            + "Description varchar(200) NOT NULL, AppliedAt datetime2 NOT NULL)";
+    private static final String CURRENT_VERSION_SQL = "SELECT MAX(Version) FROM SchemaVersion";
+    private static final String RECORD_VERSION_SQL =
+            "INSERT INTO SchemaVersion(Version, Description, AppliedAt) VALUES (?, ?, CURRENT_TIMESTAMP)";
+
+    /**
+     * Applies all pending migrations using the application's connection pool.
+     *
+     * @return the number of migrations applied
+     * @throws SQLException if a migration fails
+     */
+    public int migrate() throws SQLException {
+        Connection connection = null;
+
+        try {
+            connection = DatabaseUtil.getInstance().getConnection();
+            return migrate(connection);
+        } finally {
+            DatabaseUtil.getInstance().closeConnection(connection);
+        }
+    }
+
+    /**
+     * Applies all pending migrations on the given connection.
+     *
+     * @param connection the connection to use
+     * @return the number of migrations applied
+     * @throws SQLException if a migration fails
+     */
+    public int migrate(Connection connection) throws SQLException {
+        DatabaseUtil dbUtil = DatabaseUtil.getInstance();
+        ensureVersionTable(connection);
+
+        int currentVersion = dbUtil.executeQuery(connection, CURRENT_VERSION_SQL,
+                resultSet -> resultSet.next() ? resultSet.getInt(1) : 0);
+        int applied = 0;
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            for (String script : MIGRATIONS) {
+                int version = parseVersion(script);
+                if (version <= currentVersion) {
+                    continue;
+                }
+
+                LOGGER.info("Applying schema migration " + script);
+                try (Statement statement = connection.createStatement()) {
+                    for (String sql : readStatements(script)) {
+                        statement.execute(sql);
+                    }
+                    dbUtil.executeUpdate(connection, RECORD_VERSION_SQL, version, parseDescription(script));
+                    connection.commit();
+                    applied++;
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    LOGGER.log(Level.SEVERE, "Schema migration " + script + " failed", e);
+                    throw e;
+                }
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        LOGGER.info("Schema is up to date (" + applied + " migrations applied)");
+        return applied;
+    }
+
+    private void ensureVersionTable(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        boolean exists;
+        try (ResultSet tables = metaData.getTables(null, null, "SchemaVersion", new String[] { "TABLE" })) {
+            exists = tables.next();
+        }
+        if (!exists) {
+            try (ResultSet tables = metaData.getTables(null, null, "SCHEMAVERSION", new String[] { "TABLE" })) {
+                exists = tables.next();
+            }
+        }
+        if (!exists) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_VERSION_TABLE_SQL);
+            }
+        }
+    }
+
+    /**
+     * Reads a migration script and splits it into statements.
+     */
+    private List<String> readStatements(String script) {
+        InputStream input = SchemaMigrator.class.getClassLoader().getResourceAsStream(MIGRATION_PATH + script);
+        if (input == null) {
+            throw new IllegalStateException("Migration script not found: " + MIGRATION_PATH + script);
+        }
+
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.equalsIgnoreCase("GO")) {
+                    addStatement(statements, current);
+                } else if (!trimmed.startsWith("--")) {
+                    current.append(line).append('\n');
+                }
+            }
+            addStatement(statements, current);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reading migration script " + script, e);
+        }
+
+        return statements;
+    }
+
+    private void addStatement(List<String> statements, StringBuilder current) {
+        String sql = current.toString().trim();
+        if (!sql.isEmpty()) {
+            statements.add(sql);
+        }
+        current.setLength(0);
+    }
+
+    private static int parseVersion(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private static String parseDescription(String script) {
+        return script.substring(script.indexOf("__") + 2, script.lastIndexOf('.')).replace('_', ' ');
+    }
+
+    /**
+     * Applies pending migrations to the configured database.
+     *
+     * @param args not used
+     * @throws SQLException if a migration fails
+     */
+    public static void main(String[] args) throws SQLException {
+        new SchemaMigrator().migrate();
+    }
+}
@@ -0,0 +1,259 @@
+package com.banking.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs blocking service calls off the caller's thread.
+ * In virtual mode every call gets its own virtual thread, so tens of
+ * thousands of requests can wait on JDBC at once without tying up platform
+ * threads. Platform mode uses a fixed pool. In both modes a fair semaphore
+ * sized to the connection pool caps how many calls run at once, so excess
+ * calls queue here instead of timing out in the pool.
+ * <p>
+ * Each call runs in its own {@link QueryCancellation} scope. If the returned
+ * future is cancelled or times out, the statements the call is running are
+ * cancelled with {@link java.sql.Statement#cancel()}.
+ * <p>
+ * Configured with the {@code banking.execution.mode} system property
+ * ({@code platform}, the default, or {@code virtual}),
+ * {@code banking.execution.maxConcurrency} (default: the pool's maximum
+ * size), {@code banking.execution.platformThreads} (default 200) and
+ * {@code banking.execution.timeoutMillis} (default 30000, 0 for none).
+ * Virtual mode needs a Java 21 runtime and falls back to platform mode on
+ * older runtimes.
+ */
+public class ServiceExecutor implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ServiceExecutor.class.getName());
+    private static final int DEFAULT_PLATFORM_THREADS = 200;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long defaultTimeoutMillis;
+    private final ScheduledThreadPoolExecutor timer;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * Creates an executor.
+     *
+     * @param useVirtualThreads whether to run each call on its own virtual thread
+     * @param maxConcurrency the maximum number of calls running at once
+     * @param platformThreads the pool size in platform mode
+     * @param defaultTimeoutMillis the timeout applied by {@link #submit(Callable)}, or 0 for none
+     */
+    public ServiceExecutor(boolean useVirtualThreads, int maxConcurrency, int platformThreads,
+                           long defaultTimeoutMillis) {
+        if (maxConcurrency < 1 || platformThreads < 1) {
+            throw new IllegalArgumentException("maxConcurrency and platformThreads must be at least 1");
+        }
+        ExecutorService virtualExecutor = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        this.executor = virtual ? virtualExecutor : newPlatformExecutor(platformThreads);
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "service-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Gets the shared executor.
+     *
+     * @return the shared instance
+     */
+    public static ServiceExecutor getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()} reflectively
+     * so that the code still compiles and runs on Java 8.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warning("Virtual threads are not available on this runtime; using platform threads");
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "service-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs a service call with the default timeout.
+     *
+     * @param call the call to run
+     * @param <T> the result type
+     * @return a future completed with the call's result or failure
+     * @throws RejectedExecutionException if the executor has been closed
+     * @see #submit(Callable, long)
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        return submit(call, defaultTimeoutMillis);
+    }
+
+    /**
+     * Runs a service call. The call waits for a concurrency permit on its
+     * worker thread, never on the caller's. Cancelling the returned future,
+     * or letting it time out, cancels the call's running statements; a call
+     * still waiting for a permit is skipped.
+     *
+     * @param call the call to run
+     * @param timeoutMillis how long before the future fails with a {@link TimeoutException}, or 0 for no limit
+     * @param <T> the result type
+     * @return a future completed with the call's result or failure
+     * @throws RejectedExecutionException if the executor has been closed
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call, long timeoutMillis) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        QueryCancellation cancellation = new QueryCancellation();
+        future.whenComplete((result, failure) -> {
+            if (failure != null) {
+                cancellation.cancel();
+            }
+        });
+
+        queued.incrementAndGet();
+        try {
+            executor.execute(() -> run(call, future, cancellation));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+
+        if (timeoutMillis > 0 && !future.isDone()) {
+            ScheduledFuture<?> timeout = timer.schedule(() -> future.completeExceptionally(
+                    new TimeoutException("Service call timed out after " + timeoutMillis + "ms")),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, failure) -> timeout.cancel(false));
+        }
+
+        return future;
+    }
+
+    private <T> void run(Callable<T> call, CompletableFuture<T> future, QueryCancellation cancellation) {
+        boolean acquired = false;
+        try {
+            permits.acquire();
+            acquired = true;
+            queued.decrementAndGet();
+            if (!future.isDone()) {
+                future.complete(cancellation.run(call));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+        } finally {
+            if (acquired) {
+                permits.release();
+            } else {
+                queued.decrementAndGet();
+            }
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Gets the timeout applied by {@link #submit(Callable)}.
+     *
+     * @return the timeout in milliseconds, or 0 for none
+     */
+    public long getDefaultTimeoutMillis() {
+        return defaultTimeoutMillis;
+    }
+
+    /**
+     * Gets the number of calls currently running.
+     *
+     * @return the running call count
+     */
+    public int getRunningCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Gets the number of calls waiting for a concurrency permit.
+     *
+     * @return the queued call count
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * Stops accepting calls and waits briefly for running calls to finish.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOGGER.warning("Service executor did not finish within 30s");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (virtual ? "virtual" : "platform") + ", running=" + getRunningCount() + "/" + maxConcurrency
+                + ", queued=" + getQueuedCount();
+    }
+
+    /**
+     * Lazily creates the shared executor from system properties.
+     */
+    private static class InstanceHolder {
+        private static final ServiceExecutor INSTANCE = createSharedInstance();
+
+        private static ServiceExecutor createSharedInstance() {
+            boolean virtual = "virtual".equalsIgnoreCase(System.getProperty("banking.execution.mode", "platform"));
+            int maxConcurrency = Integer.getInteger("banking.execution.maxConcurrency",
+                    PoolConfig.fromSystemProperties().getMaxSize());
+            ServiceExecutor executor = new ServiceExecutor(virtual, maxConcurrency,
+                    Integer.getInteger("banking.execution.platformThreads", DEFAULT_PLATFORM_THREADS),
+                    Long.getLong("banking.execution.timeoutMillis", DEFAULT_TIMEOUT_MILLIS));
+            LOGGER.log(Level.INFO, "Service executor started: {0}", executor);
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.banking.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.logging.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Issues and validates signed session tokens.
+ * A token carries the username, the display name and an expiry time, and is
+ * signed with HMAC-SHA256. Validation is a single MAC computation in memory
+ * with no database access.
+ * <p>
+ * Configured with the {@code banking.session.secret} (Base64, at least 32
+ * bytes) and {@code banking.session.ttlSeconds} (default 1800) system
+ * properties. Without a configured secret a random one is generated, so
+ * tokens are only valid on the node that issued them and until it restarts.
+ */
+public class SessionTokens {
+    private static final Logger LOGGER = Logger.getLogger(SessionTokens.class.getName());
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final long DEFAULT_TTL_SECONDS = 1800;
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final LatencyHistogram validationLatency = new LatencyHistogram();
+
+    /**
+     * Creates a token signer.
+     *
+     * @param secret the signing secret, at least 32 bytes
+     * @param ttlSeconds how long an issued token stays valid
+     */
+    public SessionTokens(byte[] secret, long ttlSeconds) {
+        if (secret == null || secret.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("Session secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        if (ttlSeconds < 1) {
+            throw new IllegalArgumentException("ttlSeconds must be at least 1");
+        }
+        this.key = new SecretKeySpec(secret.clone(), MAC_ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * Gets the shared token signer.
+     *
+     * @return the shared instance
+     */
+    public static SessionTokens getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Issues a token for an authenticated user.
+     *
+     * @param username the username
+     * @param name the user's display name
+     * @return the signed token
+     */
+    public String issue(String username, String name) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String payload = encoder.encodeToString(username.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(name.getBytes(StandardCharsets.UTF_8)) + "." + expiresAt;
+        return payload + "." + encoder.encodeToString(sign(payload));
+    }
+
+    /**
+     * Validates a token.
+     *
+     * @param token the token presented by the client
+     * @return the session, or null if the token is malformed, forged or expired
+     */
+    public Session validate(String token) {
+        long started = System.nanoTime();
+        try {
+            if (token == null) {
+                return null;
+            }
+            int signatureStart = token.lastIndexOf('.');
+            if (signatureStart < 0) {
+                return null;
+            }
+            String payload = token.substring(0, signatureStart);
+            String[] parts = payload.split("\\.");
+            if (parts.length != 3) {
+                return null;
+            }
+
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] signature = decoder.decode(token.substring(signatureStart + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return null;
+            }
+
+            long expiresAt = Long.parseLong(parts[2]);
+            if (System.currentTimeMillis() / 1000 >= expiresAt) {
+                return null;
+            }
+            return new Session(new String(decoder.decode(parts[0]), StandardCharsets.UTF_8),
+                    new String(decoder.decode(parts[1]), StandardCharsets.UTF_8), expiresAt);
+
+        } catch (IllegalArgumentException e) {
+            // Bad Base64 or a non-numeric expiry
+            return null;
+        } finally {
+            validationLatency.record(System.nanoTime() - started);
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot compute session token signature", e);
+        }
+    }
+
+    /**
+     * Gets the distribution of token validation times.
+     *
+     * @return the latency snapshot
+     */
+    public LatencyHistogram.Snapshot getValidationLatency() {
+        return validationLatency.snapshot();
+    }
+
+    /**
+     * The user identified by a valid token.
+     */
+    public static class Session {
+        private final String username;
+        private final String name;
+        private final long expiresAt;
+
+        public Session(String username, String name, long expiresAt) {
+            this.username = username;
+            this.name = name;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the expiry time in seconds since the epoch.
+         *
+         * @return the expiry time
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
+    /**
+     * Lazily creates the shared signer from system properties.
+     */
+    private static class InstanceHolder {
+        private static final SessionTokens INSTANCE = new SessionTokens(loadSecret(),
+                Long.getLong("banking.session.ttlSeconds", DEFAULT_TTL_SECONDS));
+
+        private static byte[] loadSecret() {
+            String configured = System.getProperty("banking.session.secret");
+            if (configured != null) {
+                return Base64.getDecoder().decode(configured);
+            }
+            LOGGER.warning("banking.session.secret is not set; session tokens will not survive a restart "
+                    + "or be accepted by other nodes");
+            byte[] secret = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(secret);
+            return secret;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.banking.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free, time-ordered ID generator.
+ * An ID packs 41 bits of milliseconds since 2020-01-01 UTC, a 10-bit node ID
+ * and a 12-bit per-millisecond sequence. The timestamp and sequence live in
+ * one {@link AtomicLong} and advance by compare-and-set. When the sequence
+ * overflows, or the wall clock moves backwards, the generator runs ahead on
+ * a logical clock instead of blocking, so IDs from one node never repeat.
+ * Nodes sharing a database must be configured with distinct node IDs.
+ */
+public class SnowflakeIdGenerator implements TransactionIdGenerator {
+    private static final long EPOCH_MILLIS = 1577836800000L; // 2020-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    
+    private final long nodeBits;
+    private final AtomicLong state;
+    
+    /**
+     * Creates a generator for a node.
+     * 
+     * @param nodeId the node ID, between 0 and 1023
+     */
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("nodeId must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.state = new AtomicLong((System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS);
+    }
+    
+    /**
+     * Creates a generator for the node ID in the {@code banking.nodeId} system property (default 0).
+     * 
+     * @return the generator
+     */
+    public static SnowflakeIdGenerator fromSystemProperties() {
+        return new SnowflakeIdGenerator(Long.getLong("banking.nodeId", 0L));
+    }
+    
+    @Override
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            
+            // A sequence overflow carries into the timestamp bits
+            long next = now > (current >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : current + 1;
+            
+            if (state.compareAndSet(current, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+}
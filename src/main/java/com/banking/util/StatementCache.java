@@ -0,0 +1,175 @@
+package com.banking.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * LRU cache of prepared statements for one pooled connection.
+ * A pooled connection is only ever used by one borrower at a time, so the
+ * cache needs no locking. Statements are handed out as proxies whose
+ * {@code close()} clears the parameters and keeps the statement open for
+ * the next borrower that prepares the same SQL.
+ */
+class StatementCache {
+    private static final Logger LOGGER = Logger.getLogger(StatementCache.class.getName());
+
+    private final int maxSize;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets a cached statement for the SQL, preparing one if necessary.
+     *
+     * @param physical the physical connection owning the cache
+     * @param sql the SQL to prepare
+     * @return a statement proxy; closing it returns the statement to the cache
+     * @throws SQLException if the statement cannot be prepared
+     */
+    PreparedStatement prepare(Connection physical, String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+
+        if (cached != null && cached.inUse) {
+            // The same SQL is already open on this connection; hand out an uncached statement
+            return physical.prepareStatement(sql);
+        }
+
+        if (cached == null) {
+            cached = new CachedStatement(physical.prepareStatement(sql));
+            statements.put(sql, cached);
+            evictOverflow();
+        }
+
+        cached.inUse = true;
+        return cached.newHandle();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, CachedStatement>> iterator = statements.entrySet().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            CachedStatement eldest = iterator.next().getValue();
+            iterator.remove();
+            eldest.evicted = true;
+            if (!eldest.inUse) {
+                eldest.closePhysical();
+            }
+        }
+    }
+
+    /**
+     * Closes every cached statement. Called before the physical connection is closed.
+     */
+    void clear() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closePhysical();
+        }
+        statements.clear();
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * A physical prepared statement kept open across borrowers.
+     */
+    private static class CachedStatement {
+        private final PreparedStatement physical;
+        private boolean inUse;
+        private boolean evicted;
+        private boolean settingsChanged;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        PreparedStatement newHandle() {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, new Handle());
+        }
+
+        void giveBack() {
+            inUse = false;
+            if (evicted) {
+                closePhysical();
+                return;
+            }
+            try {
+                physical.clearParameters();
+                if (settingsChanged) {
+                    physical.setQueryTimeout(0);
+                    physical.setMaxRows(0);
+                    physical.setFetchSize(0);
+                    settingsChanged = false;
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error resetting cached statement", e);
+                evicted = true;
+                closePhysical();
+            }
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error closing cached statement", e);
+            }
+        }
+
+        /**
+         * Logical statement handed to one caller.
+         */
+        private class Handle implements InvocationHandler {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                switch (name) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            giveBack();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+
+                if (closed) {
+                    throw new SQLException("Statement is closed");
+                }
+
+                if ("setQueryTimeout".equals(name) || "setMaxRows".equals(name) || "setFetchSize".equals(name)) {
+                    settingsChanged = true;
+                }
+
+                try {
+                    return method.invoke(physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.banking.util;
+
+/**
+ * Source of unique transaction numbers.
+ * Implementations must be safe for concurrent use and must not need a
+ * database round trip per number.
+ */
+@FunctionalInterface
+public interface TransactionIdGenerator {
+    
+    /**
+     * Generates the next unique ID.
+     * 
+     * @return a positive ID, unique across threads and nodes
+     */
+    long nextId();
+}
@@ -0,0 +1,191 @@
+package com.banking.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of length-prefixed, checksummed records.
+ * Records are buffered by {@link #append(ByteBuffer)} and reach the disk in
+ * one write and one {@code fsync} when {@link #sync()} is called, so a
+ * caller that syncs once per batch of records gets group commit.
+ * <p>
+ * A crash can leave a partly written record at the end of the file.
+ * {@link #replay(Path, Consumer)} stops at the first record whose length or
+ * checksum is wrong and truncates the file there, so later appends follow
+ * the last complete record.
+ * <p>
+ * Instances are not thread-safe; each log has a single writer.
+ */
+public class WriteAheadLog implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(WriteAheadLog.class.getName());
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+    private long pendingRecords;
+
+    /**
+     * Opens a log for appending, creating it if needed. Call
+     * {@link #replay(Path, Consumer)} first if the file may hold records
+     * from an earlier run.
+     *
+     * @param path the log file
+     * @param bufferBytes the size of the append buffer; a full buffer is written but not synced
+     * @throws IOException if the file cannot be opened
+     */
+    public WriteAheadLog(Path path, int bufferBytes) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+    }
+
+    /**
+     * Reads every complete record in a log, in order, and truncates any
+     * incomplete record at the end.
+     *
+     * @param path the log file; a missing file has no records
+     * @param consumer receives each record's payload; the buffer is only valid during the call
+     * @return the number of records read
+     * @throws IOException if the file cannot be read
+     */
+    public static long replay(Path path, Consumer<ByteBuffer> consumer) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            ByteBuffer payload = ByteBuffer.allocate(256);
+            CRC32 crc = new CRC32();
+            long position = 0;
+            long records = 0;
+            long size = channel.size();
+
+            while (position + HEADER_BYTES <= size) {
+                header.clear();
+                readFully(channel, header, position);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length < 0 || length > MAX_RECORD_BYTES || position + HEADER_BYTES + length > size) {
+                    break;
+                }
+
+                if (payload.capacity() < length) {
+                    payload = ByteBuffer.allocate(Math.max(length, payload.capacity() * 2));
+                }
+                payload.clear().limit(length);
+                readFully(channel, payload, position + HEADER_BYTES);
+                crc.reset();
+                crc.update(payload.array(), 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                payload.flip();
+                consumer.accept(payload);
+                position += HEADER_BYTES + length;
+                records++;
+            }
+
+            if (position < size) {
+                LOGGER.warning("Truncating " + (size - position) + " bytes of incomplete records from " + path);
+                channel.truncate(position);
+                channel.force(true);
+            }
+            return records;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of log");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Buffers one record. It is not durable until {@link #sync()} returns.
+     *
+     * @param record the record payload, from its position to its limit
+     * @throws IOException if the buffer had to be written and the write failed
+     */
+    public void append(ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        if (length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Record of " + length + " bytes exceeds " + MAX_RECORD_BYTES);
+        }
+        if (buffer.remaining() < HEADER_BYTES + length) {
+            writeBuffer();
+        }
+
+        crc.reset();
+        crc.update(record.duplicate());
+        if (buffer.remaining() < HEADER_BYTES + length) {
+            // Larger than the whole buffer: write it on its own
+            ByteBuffer single = ByteBuffer.allocate(HEADER_BYTES + length);
+            single.putInt(length).putInt((int) crc.getValue()).put(record).flip();
+            while (single.hasRemaining()) {
+                channel.write(single);
+            }
+        } else {
+            buffer.putInt(length).putInt((int) crc.getValue()).put(record);
+        }
+        pendingRecords++;
+    }
+
+    /**
+     * Writes the buffered records and forces them to the storage device.
+     *
+     * @return the number of records made durable by this call
+     * @throws IOException if the write or the sync fails
+     */
+    public long sync() throws IOException {
+        if (pendingRecords == 0) {
+            return 0;
+        }
+        writeBuffer();
+        channel.force(false);
+        long synced = pendingRecords;
+        pendingRecords = 0;
+        return synced;
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Syncs any buffered records and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+-- Baseline schema. Amounts are exact decimals, dates and times use native
+-- types and transaction numbers are 64-bit time-ordered IDs.
+-- Each table is only created if it does not exist yet, so a database set up
+-- with the original script is baselined here and converted by V7.
+
+IF OBJECT_ID('Account', 'U') IS NULL
+CREATE TABLE Account (
+    Username varchar(50) NOT NULL,
+    Password varchar(50) NOT NULL,
+    Name varchar(100) NOT NULL,
+    CONSTRAINT PK_Account PRIMARY KEY (Username)
+)
+GO
+
+IF OBJECT_ID('CheckingAccount', 'U') IS NULL
+CREATE TABLE CheckingAccount (
+    CheckingAccountNumber varchar(50) NOT NULL,
+    CustomerName varchar(100) NOT NULL,
+    Balance decimal(19,4) NOT NULL,
+    CustomerID varchar(50) NOT NULL,
+    CONSTRAINT PK_CheckingAccount PRIMARY KEY (CheckingAccountNumber),
+    CONSTRAINT FK_CheckingAccount_Account FOREIGN KEY (CustomerID) REFERENCES Account(Username)
+)
+GO
+
+IF OBJECT_ID('SavingAccount', 'U') IS NULL
+CREATE TABLE SavingAccount (
+    SavingAccountNumber varchar(50) NOT NULL,
+    CustomerName varchar(100) NOT NULL,
+    Balance decimal(19,4) NOT NULL,
+    CustomerID varchar(50) NOT NULL,
+    CONSTRAINT PK_SavingAccount PRIMARY KEY (SavingAccountNumber),
+    CONSTRAINT FK_SavingAccount_Account FOREIGN KEY (CustomerID) REFERENCES Account(Username)
+)
+GO
+
+IF OBJECT_ID('Transactions', 'U') IS NULL
+CREATE TABLE Transactions (
+    TransactionNumber bigint NOT NULL,
+    TransactionAmount decimal(19,4) NOT NULL,
+    TransactionType varchar(50) NOT NULL,
+    TransactionTime time(0) NOT NULL,
+    TransactionDate date NOT NULL,
+    FromAccount varchar(50) NULL,
+    ToAccount varchar(50) NULL,
+    CustomerID varchar(50) NOT NULL,
+    CONSTRAINT PK_Transactions PRIMARY KEY (TransactionNumber),
+    CONSTRAINT FK_Transactions_Account FOREIGN KEY (CustomerID) REFERENCES Account(Username)
+)
+GO
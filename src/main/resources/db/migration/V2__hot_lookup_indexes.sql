@@ -0,0 +1,22 @@
+-- Covering indexes for the lookups the model classes issue on every request.
+-- Account lookups by Username and account lookups by account number are
+-- served by the primary keys.
+
+-- CheckingAccount.getAccountNumber(customerId) and balance reads by customer.
+-- The clustered key (CheckingAccountNumber) is carried in every nonclustered index.
+CREATE INDEX IX_CheckingAccount_CustomerID
+    ON CheckingAccount (CustomerID) INCLUDE (Balance)
+GO
+
+-- SavingsAccount.getAccountNumber(customerId) and balance reads by customer.
+CREATE INDEX IX_SavingAccount_CustomerID
+    ON SavingAccount (CustomerID) INCLUDE (Balance)
+GO
+
+-- Transaction history: equality on CustomerID, range on TransactionDate and
+-- the keyset order used for pagination, so pages are a seek plus an ordered
+-- range scan with no sort and no key lookups.
+CREATE INDEX IX_Transactions_Customer_Date
+    ON Transactions (CustomerID, TransactionDate DESC, TransactionTime DESC, TransactionNumber DESC)
+    INCLUDE (TransactionType, TransactionAmount, FromAccount, ToAccount)
+GO
@@ -0,0 +1,15 @@
+-- Batch interest accrual. Each savings account records the last run that
+-- credited it, in the same transaction as the balance change, so an
+-- interrupted run resumes with exactly the accounts it has not yet credited.
+
+ALTER TABLE SavingAccount ADD LastInterestRunId varchar(50) NULL
+GO
+
+CREATE TABLE InterestRun (
+    RunId varchar(50) NOT NULL,
+    InterestRate decimal(9,6) NOT NULL,
+    StartedAt datetime2 NOT NULL,
+    CompletedAt datetime2 NULL,
+    CONSTRAINT PK_InterestRun PRIMARY KEY (RunId)
+)
+GO
@@ -0,0 +1,5 @@
+-- Room for salted PBKDF2 hashes. Existing plaintext passwords are upgraded
+-- to hashes by the application on each user's next successful sign-in.
+
+ALTER TABLE Account ALTER COLUMN Password varchar(255) NOT NULL
+GO
@@ -0,0 +1,26 @@
+-- End-of-day reconciliation. The ledger is summed per account from both
+-- sides of each transaction, so each side gets a covering index. Each run
+-- records the slice of transaction numbers it covered; an incremental run
+-- re-checks only the accounts that appear in ledger rows after the last
+-- completed run's slice.
+
+CREATE INDEX IX_Transactions_ToAccount
+    ON Transactions (ToAccount) INCLUDE (TransactionAmount)
+GO
+
+CREATE INDEX IX_Transactions_FromAccount
+    ON Transactions (FromAccount) INCLUDE (TransactionAmount)
+GO
+
+CREATE TABLE ReconciliationRun (
+    RunId bigint IDENTITY(1,1) NOT NULL,
+    Incremental bit NOT NULL,
+    FromTransactionNumber bigint NOT NULL,
+    ToTransactionNumber bigint NOT NULL,
+    StartedAt datetime2 NOT NULL,
+    CompletedAt datetime2 NULL,
+    AccountsChecked bigint NULL,
+    Mismatches int NULL,
+    CONSTRAINT PK_ReconciliationRun PRIMARY KEY (RunId)
+)
+GO
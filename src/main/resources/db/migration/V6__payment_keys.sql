@@ -0,0 +1,12 @@
+-- Payment file ingestion. Every processed payment line records its
+-- idempotency key in the same transaction as its balance change and ledger
+-- row, so re-running a partly processed file skips the lines already done.
+-- Declined lines are recorded too and are not retried.
+
+CREATE TABLE PaymentKey (
+    IdempotencyKey varchar(100) NOT NULL,
+    Outcome varchar(10) NOT NULL,
+    ProcessedAt datetime2 NOT NULL,
+    CONSTRAINT PK_PaymentKey PRIMARY KEY (IdempotencyKey)
+)
+GO
@@ -0,0 +1,78 @@
+-- Converts tables created by the original setup script, which V1 leaves in
+-- place, to the baseline column types: float amounts become decimal(19,4),
+-- the yyyy-MM-dd and HH:mm:ss strings become date and time(0), and
+-- transaction numbers become bigint. Each step only runs while its column
+-- still has the legacy type, so on a database created by V1 this is a no-op.
+-- Indexes from V2 and V5 that cover a converted column are dropped first and
+-- recreated unchanged afterwards.
+
+IF EXISTS (SELECT 1 FROM sys.columns
+           WHERE object_id = OBJECT_ID('CheckingAccount') AND name = 'Balance'
+             AND TYPE_NAME(system_type_id) = 'float')
+BEGIN
+    DROP INDEX IX_CheckingAccount_CustomerID ON CheckingAccount
+    ALTER TABLE CheckingAccount ALTER COLUMN Balance decimal(19,4) NOT NULL
+    CREATE INDEX IX_CheckingAccount_CustomerID
+        ON CheckingAccount (CustomerID) INCLUDE (Balance)
+END
+GO
+
+IF EXISTS (SELECT 1 FROM sys.columns
+           WHERE object_id = OBJECT_ID('SavingAccount') AND name = 'Balance'
+             AND TYPE_NAME(system_type_id) = 'float')
+BEGIN
+    DROP INDEX IX_SavingAccount_CustomerID ON SavingAccount
+    ALTER TABLE SavingAccount ALTER COLUMN Balance decimal(19,4) NOT NULL
+    CREATE INDEX IX_SavingAccount_CustomerID
+        ON SavingAccount (CustomerID) INCLUDE (Balance)
+END
+GO
+
+-- Refuse to convert rows that would not survive the conversion, rather than
+-- failing halfway through with a less useful error.
+IF EXISTS (SELECT 1 FROM sys.columns
+           WHERE object_id = OBJECT_ID('Transactions') AND name = 'TransactionNumber'
+             AND TYPE_NAME(system_type_id) <> 'bigint')
+   AND EXISTS (SELECT 1 FROM Transactions
+               WHERE TRY_CONVERT(bigint, TransactionNumber) IS NULL
+                  OR TRY_CONVERT(date, TransactionDate, 23) IS NULL
+                  OR TRY_CONVERT(time(0), TransactionTime, 108) IS NULL)
+    THROW 50007, 'Transactions contains numbers, dates or times that cannot be converted; fix those rows and re-run the migration.', 1
+GO
+
+IF EXISTS (SELECT 1 FROM sys.columns
+           WHERE object_id = OBJECT_ID('Transactions') AND name = 'TransactionNumber'
+             AND TYPE_NAME(system_type_id) <> 'bigint')
+BEGIN
+    DROP INDEX IX_Transactions_Customer_Date ON Transactions
+    DROP INDEX IX_Transactions_ToAccount ON Transactions
+    DROP INDEX IX_Transactions_FromAccount ON Transactions
+
+    -- The original script left the primary key constraint unnamed.
+    DECLARE @dropPrimaryKey nvarchar(400)
+    SELECT @dropPrimaryKey = N'ALTER TABLE Transactions DROP CONSTRAINT ' + QUOTENAME(name)
+    FROM sys.key_constraints
+    WHERE parent_object_id = OBJECT_ID('Transactions') AND type = 'PK'
+    EXEC sp_executesql @dropPrimaryKey
+
+    -- Rewrite the strings in ISO form so the column conversions below do
+    -- not depend on the session's DATEFORMAT or language.
+    UPDATE Transactions
+    SET TransactionDate = CONVERT(varchar(10), CONVERT(date, TransactionDate, 23), 23),
+        TransactionTime = CONVERT(varchar(8), CONVERT(time(0), TransactionTime, 108), 108)
+
+    ALTER TABLE Transactions ALTER COLUMN TransactionNumber bigint NOT NULL
+    ALTER TABLE Transactions ALTER COLUMN TransactionAmount decimal(19,4) NOT NULL
+    ALTER TABLE Transactions ALTER COLUMN TransactionDate date NOT NULL
+    ALTER TABLE Transactions ALTER COLUMN TransactionTime time(0) NOT NULL
+    ALTER TABLE Transactions ADD CONSTRAINT PK_Transactions PRIMARY KEY (TransactionNumber)
+
+    CREATE INDEX IX_Transactions_Customer_Date
+        ON Transactions (CustomerID, TransactionDate DESC, TransactionTime DESC, TransactionNumber DESC)
+        INCLUDE (TransactionType, TransactionAmount, FromAccount, ToAccount)
+    CREATE INDEX IX_Transactions_ToAccount
+        ON Transactions (ToAccount) INCLUDE (TransactionAmount)
+    CREATE INDEX IX_Transactions_FromAccount
+        ON Transactions (FromAccount) INCLUDE (TransactionAmount)
+END
+GO